@@ -178,43 +178,54 @@ async function notifyApplicationReadyInternal(bundleName) {
   await NativeCodePush.notifyApplicationReady(bundleName);
   const statusReport = await NativeCodePush.getNewStatusReport(bundleName);
   statusReport && tryReportStatus(statusReport, null, bundleName); // Don't wait for this to complete.
+  drainStatusReportQueue(bundleName);
 
   return statusReport;
 }
 
-async function tryReportStatus(statusReport, resumeListener, bundleName) {
+async function sendStatusReport(statusReport, bundleName) {
   const config = await getConfiguration(bundleName);
   const previousLabelOrAppVersion = statusReport.previousLabelOrAppVersion;
   const previousDeploymentKey = statusReport.previousDeploymentKey || config.deploymentKey;
-  try {
-    if (statusReport.appVersion) {
-      log(`Reporting binary update (${statusReport.appVersion})`, bundleName);
+  if (statusReport.appVersion) {
+    log(`Reporting binary update (${statusReport.appVersion})`, bundleName);
 
-      const sdk = getPromisifiedSdk(requestFetchAdapter, config);
-      await sdk.reportStatusDeploy(/* deployedPackage */ null, /* status */ null, previousLabelOrAppVersion, previousDeploymentKey);
+    const sdk = getPromisifiedSdk(requestFetchAdapter, config);
+    await sdk.reportStatusDeploy(/* deployedPackage */ null, /* status */ null, previousLabelOrAppVersion, previousDeploymentKey);
+  } else {
+    const label = statusReport.package.label;
+    if (statusReport.status === "DeploymentSucceeded") {
+      log(`Reporting CodePush update success (${label})`, bundleName);
     } else {
-      const label = statusReport.package.label;
-      if (statusReport.status === "DeploymentSucceeded") {
-        log(`Reporting CodePush update success (${label})`, bundleName);
-      } else {
-        log(`Reporting CodePush update rollback (${label})`, bundleName);
-        await NativeCodePush.setLatestRollbackInfo(statusReport.package.packageHash, bundleName);
-      }
+      log(`Reporting CodePush update rollback (${label})`, bundleName);
+    }
 
-      config.deploymentKey = statusReport.package.deploymentKey;
-      const sdk = getPromisifiedSdk(requestFetchAdapter, config);
-      await sdk.reportStatusDeploy(statusReport.package, statusReport.status, previousLabelOrAppVersion, previousDeploymentKey);
+    config.deploymentKey = statusReport.package.deploymentKey;
+    const sdk = getPromisifiedSdk(requestFetchAdapter, config);
+    await sdk.reportStatusDeploy(statusReport.package, statusReport.status, previousLabelOrAppVersion, previousDeploymentKey);
+  }
+}
+
+async function tryReportStatus(statusReport, resumeListener, bundleName) {
+  try {
+    // Counted once per rollback, on the first attempt, not on every retry or drain of its report.
+    if (!resumeListener && !statusReport.appVersion && statusReport.status !== "DeploymentSucceeded") {
+      await NativeCodePush.setLatestRollbackInfo(statusReport.package.packageHash, bundleName);
     }
 
+    await sendStatusReport(statusReport, bundleName);
     NativeCodePush.recordStatusReported(bundleName, statusReport);
     resumeListener && AppState.removeEventListener("change", resumeListener);
   } catch (e) {
     log(`Report status failed: ${JSON.stringify(statusReport)}`, bundleName);
     NativeCodePush.saveStatusReportForRetry(bundleName, statusReport);
+    // Where the report was queued, the queue sends it once its backoff expires.
+    drainStatusReportQueue(bundleName);
     // Try again when the app resumes
     if (!resumeListener) {
       resumeListener = async (newState) => {
         if (newState !== "active") return;
+        drainStatusReportQueue(bundleName);
         const refreshedStatusReport = await NativeCodePush.getNewStatusReport(bundleName);
         if (refreshedStatusReport) {
           tryReportStatus(refreshedStatusReport, resumeListener, bundleName);
@@ -227,6 +238,49 @@ async function tryReportStatus(statusReport, resumeListener, bundleName) {
   }
 }
 
+const STATUS_REPORT_BATCH_SIZE = 10;
+const drainingBundleNames = new Set();
+const scheduledDrainBundleNames = new Set();
+
+// Sends the status reports queued by earlier failed attempts, a batch at a time. The acquisition
+// server has no batch endpoint, so a batch only saves bridge round trips: its reports are still
+// sent one request each, concurrently, and acknowledged together. When a batch has failures the
+// native queue backs off exponentially and tells us when to try again.
+// Acknowledged reports are recorded as reported natively. Only the Android native module keeps
+// such a queue, and this is the only place its reports are taken from.
+async function drainStatusReportQueue(bundleName) {
+  if (!NativeCodePush.getStatusReportBatch || drainingBundleNames.has(bundleName)) return;
+
+  drainingBundleNames.add(bundleName);
+  let retryAfterMs = 0;
+  try {
+    while (true) {
+      const batch = await NativeCodePush.getStatusReportBatch(bundleName, STATUS_REPORT_BATCH_SIZE);
+      if (batch.reports.length === 0) {
+        retryAfterMs = batch.retryAfterMs;
+        break;
+      }
+
+      const results = await Promise.all(batch.reports.map((statusReport) =>
+        sendStatusReport(statusReport, bundleName).then(() => true, () => false)));
+      const reportedIds = batch.ids.filter((id, index) => results[index]);
+      await NativeCodePush.acknowledgeStatusReports(bundleName, reportedIds, reportedIds.length < batch.ids.length);
+    }
+  } catch (e) {
+    log(`Draining queued status reports failed: ${e.message}`, bundleName);
+  } finally {
+    drainingBundleNames.delete(bundleName);
+  }
+
+  if (retryAfterMs > 0 && !scheduledDrainBundleNames.has(bundleName)) {
+    scheduledDrainBundleNames.add(bundleName);
+    setTimeout(() => {
+      scheduledDrainBundleNames.delete(bundleName);
+      drainStatusReportQueue(bundleName);
+    }, retryAfterMs);
+  }
+}
+
 async function shouldUpdateBeIgnored(remotePackage, syncOptions) {
   let { rollbackRetryOptions, bundleName, ignoreFailedUpdates } = syncOptions;
 
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
+import android.os.AsyncTask;
 
 import com.facebook.react.ReactInstanceManager;
 import com.facebook.react.ReactPackage;
@@ -14,23 +15,37 @@ import com.facebook.react.devsupport.DevInternalSettings;
 import com.facebook.react.devsupport.interfaces.DevSupportManager;
 import com.facebook.react.uimanager.ViewManager;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class CodePush implements ReactPackage {
 
     private static boolean sIsRunningBinaryVersion = false;
-    private static boolean sNeedToReportRollback = false;
-    private static boolean sTestConfigurationFlag = false;
+    private static volatile boolean sNeedToReportRollback = false;
     private static String sAppVersion = null;
 
-    private boolean mDidUpdate = false;
+    // Resolves the pending update state of one resource at a time: the resources share SharedPreferences entries,
+    // such as the failed updates, that rolling back reads, modifies and writes.
+    private static final ExecutorService sInitializationExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CodePushInitialization");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     // Config properties.
     private static String mServerUrl = "https://codepush.appcenter.ms/";
@@ -40,14 +55,34 @@ public class CodePush implements ReactPackage {
     private static CodePush mCodePushInstance;
 
     private static String mPublicKey;
+    private static String mDeploymentKey;
+
+    // Native update prefetch, see CodePushUpdatePrefetcher.
+    private static boolean mIsBackgroundPrefetchEnabled = false;
+    private static long mBackgroundPrefetchIntervalMs = 0;
+    private static CodePushUpdateCheckEndpoint mUpdateCheckEndpoint;
+
+    private static long mUpdateCheckCacheTtlMs = CodePushConstants.DEFAULT_UPDATE_CHECK_CACHE_TTL_MS;
+    private static CodePushUpdateCheckClient mUpdateCheckClient;
+
+    // The resource whose bundle is loaded by the ReactInstanceManager.
+    private static String mMainResourceName = CodePushConstants.DEFAULT_MAIN_RESOURCE_NAME;
 
-    private static Map<String, Object> mModuleInstances = new HashMap<>();
+    // Milliseconds without frames after which a resume/suspend update is applied, 0 disables it.
+    private static long mInstallIdleWindowMs = 0;
+
+    // Thresholds that must both be met before another download progress event is emitted, 0 means every frame.
+    private static long mDownloadProgressIntervalMs = 0;
+    private static double mDownloadProgressPercentStep = 0;
+
+    private static Map<String, Object> mModuleInstances = new ConcurrentHashMap<>();
 
     public static String getServiceUrl() {
         return mServerUrl;
     }
 
     public CodePush(Context context, String serverUrl) {
+        CodePushAndroidPlatform.install();
         mContext = context.getApplicationContext();
         mServerUrl = serverUrl;
         if (sAppVersion == null) {
@@ -65,16 +100,53 @@ public class CodePush implements ReactPackage {
         mCodePushInstance = this;
     }
 
-    public static void initializeModule(String resourceName) {
-        ModuleInstance moduleInstance = new ModuleInstance();
+    // Only creates the managers, which does no I/O. Resolving the pending update state of the resource, which reads
+    // SharedPreferences and package metadata and may roll back an update, runs on a background thread so that it is
+    // off the Application startup path. getModuleInstance() and getJSBundleFile() wait for that resolution only; the
+    // trash reaper, the lazy asset prefetch and the background prefetch are started after it. If it fails, the
+    // resource runs its binary bundle.
+    public static void initializeModule(final String resourceName) {
+        final ModuleInstance moduleInstance = new ModuleInstance();
 
         moduleInstance.updateManager = new CodePushUpdateManager(mContext.getFilesDir().getAbsolutePath(), resourceName);
         moduleInstance.telemetryManager = new CodePushTelemetryManager(mContext, resourceName);
-        moduleInstance.settingsManager = new SettingsManager(mContext);
+        moduleInstance.settingsManager = new SettingsManager(new SharedPreferencesKeyValueStore(mContext, CodePushConstants.CODE_PUSH_PREFERENCES));
 
         mModuleInstances.put(resourceName, moduleInstance);
 
-        mCodePushInstance.initializeUpdateAfterRestart(resourceName);
+        sInitializationExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // A prefetched update changes the package this launch runs, so it is part of the pending update
+                    // state. Without one, which is the common case, this is a single SharedPreferences lookup.
+                    mCodePushInstance.installPrefetchedUpdate(resourceName);
+                    mCodePushInstance.initializeUpdateAfterRestart(resourceName);
+                } catch (Exception e) {
+                    CodePushUtils.log(e, resourceName);
+                    moduleInstance.setFailed(e);
+                    return;
+                } finally {
+                    moduleInstance.setReady();
+                }
+
+                // Keeps the initialization executor free for the next resource.
+                AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            moduleInstance.updateManager.emptyTrashInBackground();
+                            moduleInstance.updateManager.prefetchLazyAssetsInBackground();
+                            if (mIsBackgroundPrefetchEnabled) {
+                                mCodePushInstance.startBackgroundPrefetch(resourceName);
+                            }
+                        } catch (Exception e) {
+                            CodePushUtils.log(e, resourceName);
+                        }
+                    }
+                });
+            }
+        });
     }
 
     private String getPublicKeyByResourceDescriptor(int publicKeyResourceDescriptor){
@@ -128,7 +200,7 @@ public class CodePush implements ReactPackage {
             }
         }
 
-        if (moduleInstance.settingsManager.isPendingUpdate(null) && !isLiveReloadEnabled) {
+        if (moduleInstance.settingsManager.isPendingUpdate(resourceName, null) && !isLiveReloadEnabled) {
             // This needs to be kept in sync with https://github.com/facebook/react-native/blob/master/ReactAndroid/src/main/java/com/facebook/react/devsupport/DevSupportManager.java#L78
             File cachedDevBundle = new File(mContext.getFilesDir(), "ReactNativeDevBundle.js");
             if (cachedDevBundle.exists()) {
@@ -137,8 +209,16 @@ public class CodePush implements ReactPackage {
         }
     }
 
+    /**
+     * Returns whether this launch runs an update of the main resource for the first time.
+     */
     public boolean didUpdate() {
-        return mDidUpdate;
+        return didUpdate(mMainResourceName);
+    }
+
+    public boolean didUpdate(String resourceName) {
+        ModuleInstance moduleInstance = getModuleInstance(resourceName);
+        return moduleInstance != null && moduleInstance.didUpdate();
     }
 
     public String getAppVersion() {
@@ -149,19 +229,117 @@ public class CodePush implements ReactPackage {
         return mPublicKey;
     }
 
+    public String getDeploymentKey() {
+        return mDeploymentKey;
+    }
+
+    public static void setDeploymentKey(String deploymentKey) {
+        mDeploymentKey = deploymentKey;
+    }
+
+    public static void setBackgroundPrefetchEnabled(boolean isBackgroundPrefetchEnabled) {
+        mIsBackgroundPrefetchEnabled = isBackgroundPrefetchEnabled;
+    }
+
+    public static void setBackgroundPrefetchInterval(long backgroundPrefetchIntervalMs) {
+        mBackgroundPrefetchIntervalMs = backgroundPrefetchIntervalMs;
+    }
+
+    public static void setUpdateCheckEndpoint(CodePushUpdateCheckEndpoint updateCheckEndpoint) {
+        mUpdateCheckEndpoint = updateCheckEndpoint;
+    }
+
+    static CodePushUpdateCheckEndpoint getUpdateCheckEndpoint(Context context, String serverUrl) {
+        return mUpdateCheckEndpoint != null ? mUpdateCheckEndpoint : new CodePushAcquisitionEndpoint(serverUrl, getUpdateCheckClient(context));
+    }
+
+    public static void setUpdateCheckCacheTtl(long updateCheckCacheTtlMs) {
+        mUpdateCheckCacheTtlMs = updateCheckCacheTtlMs;
+    }
+
+    static synchronized CodePushUpdateCheckClient getUpdateCheckClient(Context context) {
+        if (mUpdateCheckClient == null) {
+            String cacheDirectoryPath = CodePushUtils.appendPathComponent(context.getCacheDir().getAbsolutePath(),
+                    CodePushConstants.UPDATE_CHECK_CACHE_FOLDER_NAME);
+            mUpdateCheckClient = new CodePushUpdateCheckClient(cacheDirectoryPath, mUpdateCheckCacheTtlMs, getHttpTransport());
+        }
+        return mUpdateCheckClient;
+    }
+
+    public static void setHttpTransport(CodePushHttpTransport httpTransport) {
+        CodePushCoreConfig.setHttpTransport(httpTransport);
+    }
+
+    public static void setHttpTimeouts(long connectTimeoutMs, long readTimeoutMs) {
+        CodePushCoreConfig.setHttpTimeouts(connectTimeoutMs, readTimeoutMs);
+    }
+
+    public static void setHttpHeaders(Map<String, String> httpHeaders) {
+        CodePushCoreConfig.setHttpHeaders(httpHeaders);
+    }
+
+    public static void setDownloadMirrors(List<String> downloadMirrors) {
+        CodePushCoreConfig.setDownloadMirrors(downloadMirrors);
+    }
+
+    public static void setSegmentedDownload(long segmentedDownloadThreshold, int downloadSegmentCount) {
+        CodePushCoreConfig.setSegmentedDownload(segmentedDownloadThreshold, downloadSegmentCount);
+    }
+
+    public static void setPackageCache(int maxPackageCount, long maxBytes) {
+        CodePushCoreConfig.setPackageCache(maxPackageCount, maxBytes);
+    }
+
+    public static void setLazyAssetsEnabled(boolean isLazyAssetsEnabled) {
+        CodePushCoreConfig.setLazyAssetsEnabled(isLazyAssetsEnabled);
+    }
+
+    public static void setZeroExtractionEnabled(boolean isZeroExtractionEnabled) {
+        CodePushCoreConfig.setZeroExtractionEnabled(isZeroExtractionEnabled);
+    }
+
+    public static void setBufferPoolSize(long maxPooledBytes) {
+        CodePushBufferPool.setMaxPooledBytes(maxPooledBytes);
+    }
+
+    static CodePushHttpTransport getHttpTransport() {
+        return CodePushCoreConfig.getHttpTransport();
+    }
+
     long getBinaryResourcesModifiedTime() {
+        return getBinaryResourcesModifiedTime(mContext);
+    }
+
+    static long getBinaryResourcesModifiedTime(Context context) {
         try {
-            String packageName = this.mContext.getPackageName();
-            int codePushApkBuildTimeId = this.mContext.getResources().getIdentifier(CodePushConstants.CODE_PUSH_APK_BUILD_TIME_KEY, "string", packageName);
+            String packageName = context.getPackageName();
+            int codePushApkBuildTimeId = context.getResources().getIdentifier(CodePushConstants.CODE_PUSH_APK_BUILD_TIME_KEY, "string", packageName);
             // replace double quotes needed for correct restoration of long value from strings.xml
             // https://github.com/Microsoft/cordova-plugin-code-push/issues/264
-            String codePushApkBuildTime = this.mContext.getResources().getString(codePushApkBuildTimeId).replaceAll("\"","");
+            String codePushApkBuildTime = context.getResources().getString(codePushApkBuildTimeId).replaceAll("\"","");
             return Long.parseLong(codePushApkBuildTime);
         } catch (Exception e) {
             throw new CodePushUnknownException("Error in getting binary resources modified time", e);
         }
     }
 
+    static String getHashForBinaryContents(Context context, boolean isDebugMode) {
+        try {
+            return CodePushUtils.getStringFromInputStream(context.getAssets().open(CodePushConstants.CODE_PUSH_HASH_FILE_NAME));
+        } catch (IOException e) {
+            try {
+                return CodePushUtils.getStringFromInputStream(context.getAssets().open(CodePushConstants.CODE_PUSH_OLD_HASH_FILE_NAME));
+            } catch (IOException ex) {
+                if (!isDebugMode) {
+                    // Only print this message in "Release" mode. In "Debug", we may not have the
+                    // hash if the build skips bundling the files.
+                    CodePushUtils.log("Unable to get the hash of the binary's bundled resources - \"codepush.gradle\" may have not been added to the build definition.");
+                }
+            }
+            return null;
+        }
+    }
+
     public String getPackageFolder(String resourceName) {
         ModuleInstance moduleInstance = getModuleInstance(resourceName);
         JSONObject codePushLocalPackage = moduleInstance.updateManager.getCurrentPackage();
@@ -181,9 +359,54 @@ public class CodePush implements ReactPackage {
     }
 
     public ModuleInstance getModuleInstance(String resourceName) {
+        ModuleInstance moduleInstance = getInitializingModuleInstance(resourceName);
+        if (moduleInstance != null) {
+            moduleInstance.awaitReady();
+        }
+        return moduleInstance;
+    }
+
+    // Used by the background part of initializeModule, which must not wait for itself.
+    private ModuleInstance getInitializingModuleInstance(String resourceName) {
         return (ModuleInstance) mModuleInstances.get(resourceName);
     }
 
+    public Set<String> getResourceNames() {
+        return mModuleInstances.keySet();
+    }
+
+    public static String getMainResourceName() {
+        return mMainResourceName;
+    }
+
+    public static void setMainResourceName(String mainResourceName) {
+        mMainResourceName = mainResourceName;
+    }
+
+    public long getInstallIdleWindow() {
+        return mInstallIdleWindowMs;
+    }
+
+    public static void setInstallIdleWindow(long installIdleWindowMs) {
+        mInstallIdleWindowMs = installIdleWindowMs;
+    }
+
+    public long getDownloadProgressInterval() {
+        return mDownloadProgressIntervalMs;
+    }
+
+    public static void setDownloadProgressInterval(long downloadProgressIntervalMs) {
+        mDownloadProgressIntervalMs = downloadProgressIntervalMs;
+    }
+
+    public double getDownloadProgressPercentStep() {
+        return mDownloadProgressPercentStep;
+    }
+
+    public static void setDownloadProgressPercentStep(double downloadProgressPercentStep) {
+        mDownloadProgressPercentStep = downloadProgressPercentStep;
+    }
+
     public static String getBundleName(String resourceName) {
         return resourceName + ".bundle";
     }
@@ -197,9 +420,27 @@ public class CodePush implements ReactPackage {
     }
 
     public String getJSBundleFileInternal(String resourceName) {
+        long startedAt = CodePushPerformanceMetrics.startTimer();
+        try {
+            return resolveJSBundleFile(resourceName);
+        } finally {
+            CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.GET_JS_BUNDLE_FILE, startedAt);
+        }
+    }
+
+    private String resolveJSBundleFile(String resourceName) {
         ModuleInstance moduleInstance = getModuleInstance(resourceName);
         String binaryJsBundleUrl = CodePushConstants.ASSETS_BUNDLE_PREFIX + getBundleName(resourceName);
 
+        if (moduleInstance.getInitializationFailure() != null) {
+            // Whether the current package crashed the last launch is unknown, so it is not loaded.
+            CodePushUtils.log("Loading the binary bundle, the pending update state could not be resolved: "
+                    + moduleInstance.getInitializationFailure().getMessage(), resourceName);
+            CodePushUtils.logBundleUrl(binaryJsBundleUrl, resourceName);
+            sIsRunningBinaryVersion = true;
+            return binaryJsBundleUrl;
+        }
+
         String packageFilePath = null;
         try {
             packageFilePath = moduleInstance.updateManager.getCurrentPackageBundlePath(getBundleName(resourceName));
@@ -223,7 +464,7 @@ public class CodePush implements ReactPackage {
             return packageFilePath;
         } else {
             // The binary version is newer.
-            this.mDidUpdate = false;
+            moduleInstance.setDidUpdate(false);
             if (hasBinaryVersionChanged(packageMetadata)) {
                 this.clearUpdates(resourceName);
             }
@@ -239,11 +480,21 @@ public class CodePush implements ReactPackage {
     }
 
     void initializeUpdateAfterRestart(String resourceName) {
-        ModuleInstance moduleInstance = getModuleInstance(resourceName);
+        long traceStartedAt = CodePushTracer.beginSection("initializeUpdateAfterRestart");
+        try {
+            initializeUpdateAfterRestartInternal(resourceName);
+        } finally {
+            CodePushTracer.endSection("initializeUpdateAfterRestart", traceStartedAt);
+        }
+    }
+
+    private void initializeUpdateAfterRestartInternal(String resourceName) {
+        ModuleInstance moduleInstance = getInitializingModuleInstance(resourceName);
         // Reset the state which indicates that
         // the app was just freshly updated.
-        mDidUpdate = false;
-        JSONObject pendingUpdate = moduleInstance.settingsManager.getPendingUpdate();
+        moduleInstance.setDidUpdate(false);
+        moduleInstance.settingsManager.migrateLegacyPendingUpdate(resourceName, moduleInstance.updateManager.getCurrentPackageHash());
+        JSONObject pendingUpdate = moduleInstance.settingsManager.getPendingUpdate(resourceName);
         if (pendingUpdate != null) {
             JSONObject packageMetadata = moduleInstance.updateManager.getCurrentPackage();
             if (packageMetadata == null || !isPackageBundleLatest(packageMetadata) && hasBinaryVersionChanged(packageMetadata)) {
@@ -251,6 +502,14 @@ public class CodePush implements ReactPackage {
                 return;
             }
 
+            String pendingHash = pendingUpdate.optString(CodePushConstants.PENDING_UPDATE_HASH_KEY, null);
+            if (!packageMetadata.optString(CodePushConstants.PACKAGE_HASH_KEY, "").equals(pendingHash)) {
+                // Only the current package of this resource can be its pending update, anything else is stale.
+                CodePushUtils.log("Discarding pending update " + pendingHash + ", it is not the current package", resourceName);
+                moduleInstance.settingsManager.removePendingUpdate(resourceName);
+                return;
+            }
+
             try {
                 boolean updateIsLoading = pendingUpdate.getBoolean(CodePushConstants.PENDING_UPDATE_IS_LOADING_KEY);
                 if (updateIsLoading) {
@@ -258,15 +517,15 @@ public class CodePush implements ReactPackage {
                     // Therefore, deduce that it is a broken update and rollback.
                     CodePushUtils.log("Update did not finish loading the last time, rolling back to a previous version.", resourceName);
                     sNeedToReportRollback = true;
-                    rollbackPackage(moduleInstance);
+                    rollbackPackage(moduleInstance, resourceName);
                 } else {
                     // There is in fact a new update running for the first
                     // time, so update the local state to ensure the client knows.
-                    mDidUpdate = true;
+                    moduleInstance.setDidUpdate(true);
 
                     // Mark that we tried to initialize the new update, so that if it crashes,
                     // we will know that we need to rollback when the app next starts.
-                    moduleInstance.settingsManager.savePendingUpdate(pendingUpdate.getString(CodePushConstants.PENDING_UPDATE_HASH_KEY),
+                    moduleInstance.settingsManager.savePendingUpdate(resourceName, pendingUpdate.getString(CodePushConstants.PENDING_UPDATE_HASH_KEY),
                             /* isLoading */true);
                 }
             } catch (JSONException e) {
@@ -276,6 +535,86 @@ public class CodePush implements ReactPackage {
         }
     }
 
+    // Installs an update downloaded by CodePushUpdatePrefetcher during a previous run as a pending update,
+    // so that it is picked up by initializeUpdateAfterRestart just like one installed from JS.
+    void installPrefetchedUpdate(String resourceName) {
+        ModuleInstance moduleInstance = getInitializingModuleInstance(resourceName);
+        String prefetchedHash = moduleInstance.settingsManager.getPrefetchedUpdateHash(resourceName);
+        if (prefetchedHash == null) {
+            return;
+        }
+
+        moduleInstance.settingsManager.removePrefetchedUpdate(resourceName);
+        JSONObject prefetchedPackage = moduleInstance.updateManager.getPackage(prefetchedHash);
+        if (prefetchedPackage == null
+                || !isPackageBundleLatest(prefetchedPackage)
+                || moduleInstance.settingsManager.isFailedHash(prefetchedHash)) {
+            CodePushUtils.log("Discarding prefetched update " + prefetchedHash, resourceName);
+            return;
+        }
+
+        CodePushUtils.log("Installing prefetched update " + prefetchedHash, resourceName);
+        moduleInstance.updateManager.installPackage(prefetchedPackage, moduleInstance.settingsManager.isPendingUpdate(resourceName, null));
+        moduleInstance.settingsManager.savePendingUpdate(resourceName, prefetchedHash, /* isLoading */false);
+    }
+
+    private void startBackgroundPrefetch(final String resourceName) {
+        if (mDeploymentKey == null) {
+            CodePushUtils.log("Skipping background prefetch, no deployment key has been configured", resourceName);
+            return;
+        }
+
+        final ModuleInstance moduleInstance = getInitializingModuleInstance(resourceName);
+        savePrefetchConfig(moduleInstance.settingsManager, resourceName);
+        if (mBackgroundPrefetchIntervalMs > 0) {
+            CodePushPrefetchJobService.schedule(mContext, mBackgroundPrefetchIntervalMs);
+        }
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    CodePushUpdatePrefetcher prefetcher = new CodePushUpdatePrefetcher(moduleInstance.updateManager,
+                            moduleInstance.settingsManager, getUpdateCheckEndpoint(mContext, mServerUrl), resourceName, sAppVersion,
+                            getBinaryResourcesModifiedTime(), getHashForBinaryContents(mContext, isDebugMode()),
+                            mPublicKey);
+                    prefetcher.prefetch(mDeploymentKey, null);
+                } catch (Exception e) {
+                    CodePushUtils.log(e, resourceName);
+                }
+            }
+        });
+    }
+
+    // Remembers what the periodic job needs to prefetch updates when CodePush has not been initialized in its process.
+    private void savePrefetchConfig(SettingsManager settingsManager, String resourceName) {
+        JSONObject prefetchConfig = settingsManager.getPrefetchConfig();
+        JSONArray resourceNames = prefetchConfig == null ? null : prefetchConfig.optJSONArray("resourceNames");
+        if (prefetchConfig == null) {
+            prefetchConfig = new JSONObject();
+        }
+        if (resourceNames == null) {
+            resourceNames = new JSONArray();
+        }
+
+        boolean hasResourceName = false;
+        for (int i = 0; i < resourceNames.length(); i++) {
+            if (resourceName.equals(resourceNames.optString(i))) {
+                hasResourceName = true;
+            }
+        }
+        if (!hasResourceName) {
+            resourceNames.put(resourceName);
+        }
+
+        CodePushUtils.setJSONValueForKey(prefetchConfig, "resourceNames", resourceNames);
+        CodePushUtils.setJSONValueForKey(prefetchConfig, "deploymentKey", mDeploymentKey);
+        CodePushUtils.setJSONValueForKey(prefetchConfig, "serverUrl", mServerUrl);
+        CodePushUtils.setJSONValueForKey(prefetchConfig, "appVersion", sAppVersion);
+        CodePushUtils.setJSONValueForKey(prefetchConfig, "publicKey", mPublicKey);
+        settingsManager.savePrefetchConfig(prefetchConfig);
+    }
+
     void invalidateCurrentInstance() {
         mCodePushInstance = null;
     }
@@ -318,11 +657,11 @@ public class CodePush implements ReactPackage {
         sAppVersion = appVersionOverride;
     }
 
-    private void rollbackPackage(ModuleInstance moduleInstance) {
+    private void rollbackPackage(ModuleInstance moduleInstance, String resourceName) {
         JSONObject failedPackage = moduleInstance.updateManager.getCurrentPackage();
         moduleInstance.settingsManager.saveFailedUpdate(failedPackage);
         moduleInstance.updateManager.rollbackPackage();
-        moduleInstance.settingsManager.removePendingUpdate();
+        moduleInstance.settingsManager.removePendingUpdate(resourceName);
     }
 
     public void setNeedToReportRollback(boolean needToReportRollback) {
@@ -331,17 +670,18 @@ public class CodePush implements ReactPackage {
 
     /* The below 3 methods are used for running tests.*/
     public static boolean isUsingTestConfiguration() {
-        return sTestConfigurationFlag;
+        return CodePushCoreConfig.isUsingTestConfiguration();
     }
 
     public static void setUsingTestConfiguration(boolean shouldUseTestConfiguration) {
-        sTestConfigurationFlag = shouldUseTestConfiguration;
+        CodePushCoreConfig.setUsingTestConfiguration(shouldUseTestConfiguration);
     }
 
     public void clearUpdates(String resourceName) {
         ModuleInstance moduleInstance = getModuleInstance(resourceName);
         moduleInstance.updateManager.clearUpdates();
-        moduleInstance.settingsManager.removePendingUpdate();
+        getUpdateCheckClient(mContext).clear();
+        moduleInstance.settingsManager.removePendingUpdate(resourceName);
         moduleInstance.settingsManager.removeFailedUpdates();
     }
 
@@ -0,0 +1,95 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Queries the CodePush acquisition API, mirroring what the JS SDK's {@code queryUpdateWithCurrentPackage} does.
+ */
+public class CodePushAcquisitionEndpoint implements CodePushUpdateCheckEndpoint {
+
+    private static final String UPDATE_CHECK_PATH = "v0.1/public/codepush/update_check";
+
+    private String mServerUrl;
+    private CodePushUpdateCheckClient mUpdateCheckClient;
+
+    public CodePushAcquisitionEndpoint(String serverUrl, CodePushUpdateCheckClient updateCheckClient) {
+        mServerUrl = serverUrl.endsWith("/") ? serverUrl : serverUrl + "/";
+        mUpdateCheckClient = updateCheckClient;
+    }
+
+    String getUpdateCheckUrl(String deploymentKey, String appVersion, String currentPackageHash,
+                             String currentLabel, String clientUniqueId) {
+        StringBuilder url = new StringBuilder(mServerUrl).append(UPDATE_CHECK_PATH);
+        url.append("?deployment_key=").append(encode(deploymentKey));
+        url.append("&app_version=").append(encode(appVersion));
+        if (currentPackageHash != null) {
+            url.append("&package_hash=").append(encode(currentPackageHash));
+        }
+        if (currentLabel != null) {
+            url.append("&label=").append(encode(currentLabel));
+        }
+        if (clientUniqueId != null) {
+            url.append("&client_unique_id=").append(encode(clientUniqueId));
+        }
+        return url.toString();
+    }
+
+    @Override
+    public JSONObject checkForUpdate(String deploymentKey, String appVersion, String currentPackageHash,
+                                     String currentLabel, String clientUniqueId) throws IOException {
+        String updateCheckUrl = getUpdateCheckUrl(deploymentKey, appVersion, currentPackageHash, currentLabel, clientUniqueId);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", "application/json");
+        CodePushUpdateCheckClient.Response response = mUpdateCheckClient.get(updateCheckUrl, headers);
+        if (response.statusCode != HttpURLConnection.HTTP_OK) {
+            throw new IOException("Update check failed with HTTP status " + response.statusCode);
+        }
+
+        return parseUpdateCheckResponse(response.body, deploymentKey, appVersion);
+    }
+
+    static JSONObject parseUpdateCheckResponse(String responseBody, String deploymentKey, String appVersion) {
+        try {
+            JSONObject updateInfo = new JSONObject(responseBody).optJSONObject("update_info");
+            if (updateInfo == null
+                    || !updateInfo.optBoolean("is_available", false)
+                    || updateInfo.optBoolean("is_disabled", false)
+                    || updateInfo.optBoolean("update_app_version", false)) {
+                // Either nothing new, or the release targets a different binary version.
+                return null;
+            }
+
+            JSONObject remotePackage = new JSONObject();
+            remotePackage.put("deploymentKey", deploymentKey);
+            remotePackage.put("description", updateInfo.optString("description", ""));
+            remotePackage.put("label", updateInfo.optString("label", null));
+            // The server already matched target_binary_range (e.g. "^1.2.0") against the running binary, and the
+            // package is only installed as long as its appVersion equals that binary's, as with the JS SDK.
+            remotePackage.put("appVersion", appVersion);
+            remotePackage.put("isMandatory", updateInfo.optBoolean("is_mandatory", false));
+            remotePackage.put(CodePushConstants.PACKAGE_HASH_KEY, updateInfo.optString("package_hash", null));
+            remotePackage.put("packageSize", updateInfo.optLong("package_size", 0));
+            remotePackage.put(CodePushConstants.DOWNLOAD_URL_KEY, updateInfo.optString("download_url", null));
+            return remotePackage;
+        } catch (JSONException e) {
+            throw new CodePushUnknownException("Unable to parse update check response: " + responseBody, e);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("UTF-8 encoding is not supported", e);
+        }
+    }
+}
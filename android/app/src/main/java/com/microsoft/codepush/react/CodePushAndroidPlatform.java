@@ -0,0 +1,60 @@
+package com.microsoft.codepush.react;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.Trace;
+import android.util.Base64;
+import android.util.Log;
+
+/**
+ * Backs the core update engine with logcat, android.util.Base64 and android.os.Trace, see {@link CodePushPlatform}.
+ */
+class CodePushAndroidPlatform {
+
+    private static boolean sIsInstalled = false;
+
+    static synchronized void install() {
+        if (sIsInstalled) {
+            return;
+        }
+
+        CodePushPlatform.setLogger(new CodePushLogger() {
+            @Override
+            public void log(CodePushLogLevel level, String message) {
+                Log.println(level.getValue(), CodePushConstants.REACT_NATIVE_LOG_TAG, message);
+            }
+        });
+        CodePushPlatform.setBase64(new CodePushBase64() {
+            @Override
+            public byte[] decode(String encoded) {
+                return Base64.decode(encoded, Base64.DEFAULT);
+            }
+        });
+        CodePushTracer.setSystemTrace(new CodePushTracer.SystemTrace() {
+            @Override
+            public void beginSection(String name) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                    Trace.beginSection(name);
+                }
+            }
+
+            @Override
+            public void endSection() {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                    Trace.endSection();
+                }
+            }
+
+            @Override
+            public int getProcessId() {
+                return Process.myPid();
+            }
+
+            @Override
+            public int getThreadId() {
+                return Process.myTid();
+            }
+        });
+        sIsInstalled = true;
+    }
+}
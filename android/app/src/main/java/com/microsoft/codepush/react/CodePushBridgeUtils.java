@@ -1,6 +1,8 @@
 package com.microsoft.codepush.react;
 
-import android.util.Log;
+import android.util.JsonReader;
+import android.util.JsonWriter;
+import android.util.MalformedJsonException;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.NoSuchKeyException;
@@ -15,18 +17,16 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Iterator;
 
-public class CodePushUtils {
-
-    public static String appendPathComponent(String basePath, String appendPathComponent) {
-        return new File(basePath, appendPathComponent).getAbsolutePath();
-    }
+/**
+ * Conversions between the JSON used by the core update engine and the maps passed over the React Native bridge.
+ */
+public class CodePushBridgeUtils {
 
     public static WritableArray convertJsonArrayToWritable(JSONArray jsonArr) {
         WritableArray arr = Arguments.createArray();
@@ -172,60 +172,173 @@ public class CodePushUtils {
         return jsonObj;
     }
 
-    public static String getStringFromInputStream(InputStream inputStream) throws IOException {
-        BufferedReader bufferedReader = null;
+    /**
+     * Reads a JSON object from a file straight into a {@link WritableMap}, without building
+     * the intermediate string and {@link JSONObject} that {@link CodePushUtils#getJsonObjectFromFile} needs.
+     */
+    public static WritableMap convertJsonFileToWritable(String filePath) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new BufferedInputStream(new FileInputStream(filePath)), "UTF-8"));
         try {
-            StringBuilder buffer = new StringBuilder();
-            bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
-
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                buffer.append(line);
-                buffer.append("\n");
-            }
-
-            return buffer.toString().trim();
+            return readWritableMap(reader);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new CodePushMalformedDataException(filePath, e);
         } finally {
-            if (bufferedReader != null) bufferedReader.close();
-            if (inputStream != null) inputStream.close();
+            reader.close();
         }
     }
 
-    public static JSONObject getJsonObjectFromFile(String filePath) throws IOException {
-        String content = FileUtils.readFileToString(filePath);
-        try {
-            return new JSONObject(content);
-        } catch (JSONException jsonException) {
-            // Should not happen
-            throw new CodePushMalformedDataException(filePath, jsonException);
+    static WritableMap readWritableMap(JsonReader reader) throws IOException {
+        WritableMap map = Arguments.createMap();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    map.putMap(key, readWritableMap(reader));
+                    break;
+                case BEGIN_ARRAY:
+                    map.putArray(key, readWritableArray(reader));
+                    break;
+                case STRING:
+                    map.putString(key, reader.nextString());
+                    break;
+                case NUMBER:
+                    String number = reader.nextString();
+                    if (isIntegerLiteral(number)) {
+                        map.putInt(key, Integer.parseInt(number));
+                    } else {
+                        map.putDouble(key, Double.parseDouble(number));
+                    }
+                    break;
+                case BOOLEAN:
+                    map.putBoolean(key, reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    map.putNull(key);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected token " + reader.peek() + " for key " + key);
+            }
         }
+        reader.endObject();
+        return map;
     }
 
-    public static void log(String message) {
-        Log.d(CodePushConstants.REACT_NATIVE_LOG_TAG, "[CodePush] " + message);
+    static WritableArray readWritableArray(JsonReader reader) throws IOException {
+        WritableArray arr = Arguments.createArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    arr.pushMap(readWritableMap(reader));
+                    break;
+                case BEGIN_ARRAY:
+                    arr.pushArray(readWritableArray(reader));
+                    break;
+                case STRING:
+                    arr.pushString(reader.nextString());
+                    break;
+                case NUMBER:
+                    String number = reader.nextString();
+                    if (isIntegerLiteral(number)) {
+                        arr.pushInt(Integer.parseInt(number));
+                    } else {
+                        arr.pushDouble(Double.parseDouble(number));
+                    }
+                    break;
+                case BOOLEAN:
+                    arr.pushBoolean(reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    arr.pushNull();
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected token " + reader.peek() + " in array");
+            }
+        }
+        reader.endArray();
+        return arr;
     }
 
-    public static void log(String message, String resourceName) {
-        Log.d(CodePushConstants.REACT_NATIVE_LOG_TAG, "[CodePush] [" + resourceName + "] " + message);
+    static void writeReadableMap(JsonWriter writer, ReadableMap map) throws IOException {
+        writer.beginObject();
+        ReadableMapKeySetIterator it = map.keySetIterator();
+        while (it.hasNextKey()) {
+            String key = it.nextKey();
+            writer.name(key);
+            switch (map.getType(key)) {
+                case Map:
+                    writeReadableMap(writer, map.getMap(key));
+                    break;
+                case Array:
+                    writeReadableArray(writer, map.getArray(key));
+                    break;
+                case String:
+                    writer.value(map.getString(key));
+                    break;
+                case Number:
+                    writeNumber(writer, map.getDouble(key));
+                    break;
+                case Boolean:
+                    writer.value(map.getBoolean(key));
+                    break;
+                case Null:
+                    writer.nullValue();
+                    break;
+            }
+        }
+        writer.endObject();
     }
 
-    public static void log(Throwable tr) {
-        Log.e(CodePushConstants.REACT_NATIVE_LOG_TAG, "[CodePush] Exception", tr);
+    static void writeReadableArray(JsonWriter writer, ReadableArray arr) throws IOException {
+        writer.beginArray();
+        for (int i = 0; i < arr.size(); i++) {
+            switch (arr.getType(i)) {
+                case Map:
+                    writeReadableMap(writer, arr.getMap(i));
+                    break;
+                case Array:
+                    writeReadableArray(writer, arr.getArray(i));
+                    break;
+                case String:
+                    writer.value(arr.getString(i));
+                    break;
+                case Number:
+                    writeNumber(writer, arr.getDouble(i));
+                    break;
+                case Boolean:
+                    writer.value(arr.getBoolean(i));
+                    break;
+                case Null:
+                    writer.nullValue();
+                    break;
+            }
+        }
+        writer.endArray();
     }
 
-    public static void log(Throwable tr, String resourceName) {
-        Log.e(CodePushConstants.REACT_NATIVE_LOG_TAG, "[CodePush] [" + resourceName + "] Exception", tr);
+    // Whole numbers are written without a fraction, like convertReadableToJsonArray does.
+    private static void writeNumber(JsonWriter writer, double number) throws IOException {
+        if (number == Math.floor(number) && !Double.isInfinite(number)) {
+            writer.value((long) number);
+        } else {
+            writer.value(number);
+        }
     }
 
-    public static void logBundleUrl(String path, String resourceName) {
-        log("Loading JS bundle from \"" + path + "\"", resourceName);
-    }
+    // Matches what JSONObject would parse into an Integer.
+    private static boolean isIntegerLiteral(String number) {
+        if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+            return false;
+        }
 
-    public static void setJSONValueForKey(JSONObject json, String key, Object value) {
         try {
-            json.put(key, value);
-        } catch (JSONException e) {
-            throw new CodePushUnknownException("Unable to set value " + value + " for key " + key + " to JSONObject");
+            long value = Long.parseLong(number);
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            return false;
         }
     }
 
@@ -236,9 +349,4 @@ public class CodePushUtils {
             return null;
         }
     }
-
-    public static void writeJsonToFile(JSONObject json, String filePath) throws IOException {
-        String jsonString = json.toString();
-        FileUtils.writeStringToFile(jsonString, filePath);
-    }
 }
@@ -2,6 +2,9 @@ package com.microsoft.codepush.react;
 
 import android.content.Context;
 
+import java.util.List;
+import java.util.Map;
+
 public class CodePushBuilder {
     private String mDeploymentKey;
     private Context mContext;
@@ -9,6 +12,31 @@ public class CodePushBuilder {
     private boolean mIsDebugMode;
     private String mServerUrl;
     private Integer mPublicKeyResourceDescriptor;
+    private String mMainResourceName;
+    private Long mInstallIdleWindowMs;
+    private Long mDownloadProgressIntervalMs;
+    private Double mDownloadProgressPercentStep;
+    private boolean mIsBackgroundPrefetchEnabled;
+    private long mBackgroundPrefetchIntervalMs;
+    private CodePushUpdateCheckEndpoint mUpdateCheckEndpoint;
+    private Long mUpdateCheckCacheTtlMs;
+    private CodePushHttpTransport mHttpTransport;
+    private long mConnectTimeoutMs = CodePushConstants.DEFAULT_CONNECT_TIMEOUT_MS;
+    private long mReadTimeoutMs = CodePushConstants.DEFAULT_READ_TIMEOUT_MS;
+    private Map<String, String> mHttpHeaders;
+    private List<String> mDownloadMirrors;
+    private long mSegmentedDownloadThreshold;
+    private int mDownloadSegmentCount = CodePushConstants.DEFAULT_DOWNLOAD_SEGMENT_COUNT;
+    private int mPackageCacheMaxCount = CodePushConstants.DEFAULT_PACKAGE_CACHE_MAX_COUNT;
+    private long mPackageCacheMaxBytes;
+    private boolean mIsLazyAssetsEnabled;
+    private boolean mIsZeroExtractionEnabled;
+    private long mBufferPoolSize = CodePushConstants.DEFAULT_BUFFER_POOL_SIZE;
+    private CodePushPerformanceMetrics.Listener mPerformanceMetricsListener;
+    private boolean mIsTracingEnabled;
+    private int mTraceBufferSize = CodePushConstants.DEFAULT_TRACE_BUFFER_SIZE;
+    private CodePushLogLevel mLogLevel = CodePushConstants.DEFAULT_LOG_LEVEL;
+    private int mLogBufferSize = CodePushConstants.DEFAULT_LOG_BUFFER_SIZE;
 
     public CodePushBuilder(String deploymentKey, Context context) {
         this.mDeploymentKey = deploymentKey;
@@ -31,7 +59,157 @@ public class CodePushBuilder {
         return this;
     }
 
+    public CodePushBuilder setMainResourceName(String mainResourceName) {
+        this.mMainResourceName = mainResourceName;
+        return this;
+    }
+
+    public CodePushBuilder setInstallIdleWindow(long installIdleWindowMs) {
+        this.mInstallIdleWindowMs = installIdleWindowMs;
+        return this;
+    }
+
+    public CodePushBuilder setDownloadProgressInterval(long downloadProgressIntervalMs) {
+        this.mDownloadProgressIntervalMs = downloadProgressIntervalMs;
+        return this;
+    }
+
+    public CodePushBuilder setDownloadProgressPercentStep(double downloadProgressPercentStep) {
+        this.mDownloadProgressPercentStep = downloadProgressPercentStep;
+        return this;
+    }
+
+    public CodePushBuilder setBackgroundPrefetchEnabled(boolean isBackgroundPrefetchEnabled) {
+        this.mIsBackgroundPrefetchEnabled = isBackgroundPrefetchEnabled;
+        return this;
+    }
+
+    public CodePushBuilder setBackgroundPrefetchInterval(long backgroundPrefetchIntervalMs) {
+        this.mBackgroundPrefetchIntervalMs = backgroundPrefetchIntervalMs;
+        return this;
+    }
+
+    public CodePushBuilder setUpdateCheckEndpoint(CodePushUpdateCheckEndpoint updateCheckEndpoint) {
+        this.mUpdateCheckEndpoint = updateCheckEndpoint;
+        return this;
+    }
+
+    public CodePushBuilder setUpdateCheckCacheTtl(long updateCheckCacheTtlMs) {
+        this.mUpdateCheckCacheTtlMs = updateCheckCacheTtlMs;
+        return this;
+    }
+
+    public CodePushBuilder setHttpTransport(CodePushHttpTransport httpTransport) {
+        this.mHttpTransport = httpTransport;
+        return this;
+    }
+
+    public CodePushBuilder setConnectTimeout(long connectTimeoutMs) {
+        this.mConnectTimeoutMs = connectTimeoutMs;
+        return this;
+    }
+
+    public CodePushBuilder setReadTimeout(long readTimeoutMs) {
+        this.mReadTimeoutMs = readTimeoutMs;
+        return this;
+    }
+
+    public CodePushBuilder setHttpHeaders(Map<String, String> httpHeaders) {
+        this.mHttpHeaders = httpHeaders;
+        return this;
+    }
+
+    public CodePushBuilder setDownloadMirrors(List<String> downloadMirrors) {
+        this.mDownloadMirrors = downloadMirrors;
+        return this;
+    }
+
+    public CodePushBuilder setSegmentedDownload(long segmentedDownloadThreshold, int downloadSegmentCount) {
+        this.mSegmentedDownloadThreshold = segmentedDownloadThreshold;
+        this.mDownloadSegmentCount = downloadSegmentCount;
+        return this;
+    }
+
+    public CodePushBuilder setPackageCache(int maxPackageCount, long maxBytes) {
+        this.mPackageCacheMaxCount = maxPackageCount;
+        this.mPackageCacheMaxBytes = maxBytes;
+        return this;
+    }
+
+    public CodePushBuilder setLazyAssetsEnabled(boolean isLazyAssetsEnabled) {
+        this.mIsLazyAssetsEnabled = isLazyAssetsEnabled;
+        return this;
+    }
+
+    public CodePushBuilder setZeroExtractionEnabled(boolean isZeroExtractionEnabled) {
+        this.mIsZeroExtractionEnabled = isZeroExtractionEnabled;
+        return this;
+    }
+
+    public CodePushBuilder setBufferPoolSize(long maxPooledBytes) {
+        this.mBufferPoolSize = maxPooledBytes;
+        return this;
+    }
+
+    public CodePushBuilder setPerformanceMetricsListener(CodePushPerformanceMetrics.Listener performanceMetricsListener) {
+        this.mPerformanceMetricsListener = performanceMetricsListener;
+        return this;
+    }
+
+    public CodePushBuilder setTracingEnabled(boolean isTracingEnabled) {
+        this.mIsTracingEnabled = isTracingEnabled;
+        return this;
+    }
+
+    public CodePushBuilder setTraceBufferSize(int traceBufferSize) {
+        this.mTraceBufferSize = traceBufferSize;
+        return this;
+    }
+
+    public CodePushBuilder setLogLevel(CodePushLogLevel logLevel) {
+        this.mLogLevel = logLevel;
+        return this;
+    }
+
+    public CodePushBuilder setLogBufferSize(int logBufferSize) {
+        this.mLogBufferSize = logBufferSize;
+        return this;
+    }
+
     public CodePush build() {
+        CodePushUtils.setLogLevel(this.mLogLevel);
+        CodePushUtils.setLogBufferSize(this.mLogBufferSize);
+        CodePushPerformanceMetrics.setListener(this.mPerformanceMetricsListener);
+        CodePushTracer.setBufferSize(this.mTraceBufferSize);
+        CodePushTracer.setEnabled(this.mIsTracingEnabled);
+        CodePush.setSegmentedDownload(this.mSegmentedDownloadThreshold, this.mDownloadSegmentCount);
+        CodePush.setPackageCache(this.mPackageCacheMaxCount, this.mPackageCacheMaxBytes);
+        CodePush.setLazyAssetsEnabled(this.mIsLazyAssetsEnabled);
+        CodePush.setZeroExtractionEnabled(this.mIsZeroExtractionEnabled);
+        CodePush.setBufferPoolSize(this.mBufferPoolSize);
+        CodePush.setDownloadMirrors(this.mDownloadMirrors);
+        CodePush.setHttpTimeouts(this.mConnectTimeoutMs, this.mReadTimeoutMs);
+        CodePush.setHttpHeaders(this.mHttpHeaders);
+        CodePush.setHttpTransport(this.mHttpTransport);
+        if (this.mUpdateCheckCacheTtlMs != null) {
+            CodePush.setUpdateCheckCacheTtl(this.mUpdateCheckCacheTtlMs);
+        }
+        CodePush.setDeploymentKey(this.mDeploymentKey);
+        CodePush.setBackgroundPrefetchEnabled(this.mIsBackgroundPrefetchEnabled);
+        CodePush.setBackgroundPrefetchInterval(this.mBackgroundPrefetchIntervalMs);
+        CodePush.setUpdateCheckEndpoint(this.mUpdateCheckEndpoint);
+        if (this.mDownloadProgressIntervalMs != null) {
+            CodePush.setDownloadProgressInterval(this.mDownloadProgressIntervalMs);
+        }
+        if (this.mDownloadProgressPercentStep != null) {
+            CodePush.setDownloadProgressPercentStep(this.mDownloadProgressPercentStep);
+        }
+        if (this.mInstallIdleWindowMs != null) {
+            CodePush.setInstallIdleWindow(this.mInstallIdleWindowMs);
+        }
+        if (this.mMainResourceName != null) {
+            CodePush.setMainResourceName(this.mMainResourceName);
+        }
         return new CodePush(this.mContext, this.mServerUrl);
     }
 }
@@ -0,0 +1,252 @@
+package com.microsoft.codepush.react;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.Window;
+
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * Decides when a pending update installed with {@link CodePushInstallMode#IMMEDIATE},
+ * {@link CodePushInstallMode#ON_NEXT_RESUME} or {@link CodePushInstallMode#ON_NEXT_SUSPEND}
+ * gets applied.
+ *
+ * All durations are measured with {@link SystemClock#elapsedRealtime()}, which is monotonic and keeps
+ * counting while the device sleeps. Besides the background triggers, an optional idle window lets a
+ * resume/suspend install be applied in the foreground once no frame has been drawn for that long, so a
+ * reload never lands in the middle of an interaction.
+ *
+ * Input is only noticed through what it changes on screen: a drawn frame, a scroll, a focus or touch mode
+ * change. The window callback is left alone, since other libraries wrap it too, so e.g. a finger resting on
+ * the screen without any visual feedback does not count as activity.
+ */
+public class CodePushInstallScheduler implements LifecycleEventListener {
+
+    private static final long NOT_PAUSED = -1;
+
+    private final ReactApplicationContext mReactContext;
+    private final CodePushRestartCoordinator mRestartCoordinator;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Only accessed on the main thread.
+    private boolean mIsScheduled = false;
+    private int mInstallMode;
+    private long mMinimumBackgroundDurationMs;
+    private long mIdleWindowMs;
+    private long mLastPausedAt = NOT_PAUSED;
+
+    private volatile long mLastActivityAt;
+    private Activity mMonitoredActivity;
+
+    private final Runnable mSuspendRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mLastPausedAt == NOT_PAUSED) {
+                return;
+            }
+
+            long backgroundDurationMs = SystemClock.elapsedRealtime() - mLastPausedAt;
+            if (backgroundDurationMs >= mMinimumBackgroundDurationMs) {
+                CodePushUtils.log("Loading bundle on suspend after " + backgroundDurationMs + "ms in background");
+                apply();
+            } else {
+                // The handler clock stops while the device sleeps, re-check the remaining time.
+                mMainHandler.postDelayed(this, mMinimumBackgroundDurationMs - backgroundDurationMs);
+            }
+        }
+    };
+
+    private final Runnable mIdleCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long idleDurationMs = SystemClock.elapsedRealtime() - mLastActivityAt;
+            if (idleDurationMs >= mIdleWindowMs) {
+                CodePushUtils.log("Loading bundle after " + idleDurationMs + "ms without frames");
+                apply();
+            } else {
+                mMainHandler.postDelayed(this, mIdleWindowMs - idleDurationMs);
+            }
+        }
+    };
+
+    private final ViewTreeObserver.OnDrawListener mOnDrawListener = new ViewTreeObserver.OnDrawListener() {
+        @Override
+        public void onDraw() {
+            onActivity();
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            onActivity();
+        }
+    };
+
+    private final ViewTreeObserver.OnGlobalFocusChangeListener mOnGlobalFocusChangeListener = new ViewTreeObserver.OnGlobalFocusChangeListener() {
+        @Override
+        public void onGlobalFocusChanged(View oldFocus, View newFocus) {
+            onActivity();
+        }
+    };
+
+    private final ViewTreeObserver.OnTouchModeChangeListener mOnTouchModeChangeListener = new ViewTreeObserver.OnTouchModeChangeListener() {
+        @Override
+        public void onTouchModeChanged(boolean isInTouchMode) {
+            onActivity();
+        }
+    };
+
+    public CodePushInstallScheduler(ReactApplicationContext reactContext, CodePushRestartCoordinator restartCoordinator) {
+        mReactContext = reactContext;
+        mRestartCoordinator = restartCoordinator;
+    }
+
+    /**
+     * Starts (or updates) the schedule for a freshly installed pending update. Safe to call from any thread;
+     * later calls override the install mode and durations of earlier ones.
+     *
+     * @param minimumBackgroundDuration seconds the app has to spend in the background before the update is applied.
+     * @param idleWindowMs milliseconds without frames after which the update is applied in the
+     *                     foreground, or 0 to only apply it on resume/suspend.
+     */
+    public void schedule(final int installMode, final int minimumBackgroundDuration, final long idleWindowMs) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mInstallMode = installMode;
+                mMinimumBackgroundDurationMs = minimumBackgroundDuration * 1000L;
+                mIdleWindowMs = idleWindowMs;
+                if (!mIsScheduled) {
+                    // Ensure we do not add the listener twice.
+                    mIsScheduled = true;
+                    mReactContext.addLifecycleEventListener(CodePushInstallScheduler.this);
+                }
+
+                if (mLastPausedAt == NOT_PAUSED) {
+                    startIdleMonitoring();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops all triggers, e.g. because the bundle is being reloaded. Safe to call from any thread.
+     */
+    public void cancel() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    cancel();
+                }
+            });
+            return;
+        }
+
+        mMainHandler.removeCallbacks(mSuspendRunnable);
+        stopIdleMonitoring();
+        if (mIsScheduled) {
+            mIsScheduled = false;
+            mLastPausedAt = NOT_PAUSED;
+            mReactContext.removeLifecycleEventListener(this);
+        }
+    }
+
+    @Override
+    public void onHostResume() {
+        mMainHandler.removeCallbacks(mSuspendRunnable);
+
+        // The resume handler fires immediately if the app is already in the
+        // foreground, so only act once it has actually been backgrounded.
+        if (mLastPausedAt != NOT_PAUSED) {
+            long backgroundDurationMs = SystemClock.elapsedRealtime() - mLastPausedAt;
+            mLastPausedAt = NOT_PAUSED;
+            if (mInstallMode == CodePushInstallMode.IMMEDIATE.getValue()
+                    || backgroundDurationMs >= mMinimumBackgroundDurationMs) {
+                CodePushUtils.log("Loading bundle on resume after " + backgroundDurationMs + "ms in background");
+                apply();
+                return;
+            }
+        }
+
+        startIdleMonitoring();
+    }
+
+    @Override
+    public void onHostPause() {
+        // Save the current time so that when the app is later
+        // resumed, we can detect how long it was in the background.
+        mLastPausedAt = SystemClock.elapsedRealtime();
+        stopIdleMonitoring();
+
+        if (mInstallMode == CodePushInstallMode.ON_NEXT_SUSPEND.getValue()) {
+            mMainHandler.postDelayed(mSuspendRunnable, mMinimumBackgroundDurationMs);
+        }
+    }
+
+    @Override
+    public void onHostDestroy() {
+        stopIdleMonitoring();
+    }
+
+    private void apply() {
+        cancel();
+        mRestartCoordinator.requestRestart(true);
+    }
+
+    private void onActivity() {
+        mLastActivityAt = SystemClock.elapsedRealtime();
+    }
+
+    private boolean isIdleInstallEnabled() {
+        return mIdleWindowMs > 0 && (mInstallMode == CodePushInstallMode.ON_NEXT_RESUME.getValue()
+                || mInstallMode == CodePushInstallMode.ON_NEXT_SUSPEND.getValue());
+    }
+
+    private void startIdleMonitoring() {
+        if (!isIdleInstallEnabled() || mMonitoredActivity != null) {
+            return;
+        }
+
+        Activity activity = mReactContext.getCurrentActivity();
+        if (activity == null || activity.getWindow() == null) {
+            return;
+        }
+
+        mMonitoredActivity = activity;
+        ViewTreeObserver viewTreeObserver = activity.getWindow().getDecorView().getViewTreeObserver();
+        viewTreeObserver.addOnDrawListener(mOnDrawListener);
+        viewTreeObserver.addOnScrollChangedListener(mOnScrollChangedListener);
+        viewTreeObserver.addOnGlobalFocusChangeListener(mOnGlobalFocusChangeListener);
+        viewTreeObserver.addOnTouchModeChangeListener(mOnTouchModeChangeListener);
+
+        mLastActivityAt = SystemClock.elapsedRealtime();
+        mMainHandler.postDelayed(mIdleCheckRunnable, mIdleWindowMs);
+    }
+
+    private void stopIdleMonitoring() {
+        mMainHandler.removeCallbacks(mIdleCheckRunnable);
+        if (mMonitoredActivity == null) {
+            return;
+        }
+
+        Window window = mMonitoredActivity.getWindow();
+        if (window != null) {
+            ViewTreeObserver viewTreeObserver = window.getDecorView().getViewTreeObserver();
+            if (viewTreeObserver.isAlive()) {
+                viewTreeObserver.removeOnDrawListener(mOnDrawListener);
+                viewTreeObserver.removeOnScrollChangedListener(mOnScrollChangedListener);
+                viewTreeObserver.removeOnGlobalFocusChangeListener(mOnGlobalFocusChangeListener);
+                viewTreeObserver.removeOnTouchModeChangeListener(mOnTouchModeChangeListener);
+            }
+        }
+
+        mMonitoredActivity = null;
+    }
+}
@@ -12,16 +12,14 @@ import com.facebook.react.ReactInstanceManager;
 import com.facebook.react.ReactRootView;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.JSBundleLoader;
-import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.ChoreographerCompat;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
-import com.facebook.react.modules.core.ReactChoreographer;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -29,7 +27,6 @@ import org.json.JSONObject;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,15 +34,22 @@ import java.util.Map;
 public class CodePushNativeModule extends ReactContextBaseJavaModule {
     private ReactApplicationContext mReactContext = null;
     private String mClientUniqueId = null;
-    private LifecycleEventListener mLifecycleEventListener = null;
-    private int mMinimumBackgroundDuration = 0;
 
     private CodePush mCodePush;
+    private CodePushRestartCoordinator mRestartCoordinator;
+    private CodePushInstallScheduler mInstallScheduler;
 
     public CodePushNativeModule(ReactApplicationContext reactContext, CodePush codePush) {
         super(reactContext);
 
         mCodePush = codePush;
+        mRestartCoordinator = new CodePushRestartCoordinator(codePush, new CodePushRestartCoordinator.ContextReloader() {
+            @Override
+            public void reload(List<String> resourceNames) {
+                loadBundle(resourceNames);
+            }
+        });
+        mInstallScheduler = new CodePushInstallScheduler(reactContext, mRestartCoordinator);
         mReactContext = reactContext;
         // Initialize module state while we have a reference to the current context.
         mClientUniqueId = Settings.Secure.getString(reactContext.getContentResolver(), Settings.Secure.ANDROID_ID);
@@ -73,7 +77,7 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
     }
 
     public String getBinaryContentsHash() {
-        return CodePushUpdateUtils.getHashForBinaryContents(mReactContext, mCodePush.isDebugMode());
+        return CodePush.getHashForBinaryContents(mReactContext, mCodePush.isDebugMode());
     }
 
     private void loadBundleLegacy() {
@@ -113,53 +117,70 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
         }
     }
 
-    private void loadBundle(final String resourceName) {
-        clearLifecycleEventListener();
+    private void loadBundle(final List<String> resourceNames) {
+        final long loadStartedAt = CodePushPerformanceMetrics.startTimer();
+        long traceStartedAt = CodePushTracer.beginSection("loadBundle");
         try {
-            mCodePush.clearDebugCacheIfNeeded(resolveInstanceManager(), resourceName);
-        } catch(Exception e) {
-            // If we got error in out reflection we should clear debug cache anyway.
-            mCodePush.clearDebugCacheIfNeeded(null, resourceName);
-        }
-
-        try {
-            // #1) Get the ReactInstanceManager instance, which is what includes the
-            //     logic to reload the current React context.
-            final ReactInstanceManager instanceManager = resolveInstanceManager();
-            if (instanceManager == null) {
-                return;
+            clearLifecycleEventListener();
+            for (String resourceName : resourceNames) {
+                try {
+                    mCodePush.clearDebugCacheIfNeeded(resolveInstanceManager(), resourceName);
+                } catch(Exception e) {
+                    // If we got error in out reflection we should clear debug cache anyway.
+                    mCodePush.clearDebugCacheIfNeeded(null, resourceName);
+                }
             }
 
-            String latestJSBundleFile = mCodePush.getJSBundleFileInternal(resourceName);
-
-            // #2) Update the locally stored JS bundle file path
-            setJSBundle(instanceManager, latestJSBundleFile);
+            try {
+                // #1) Get the ReactInstanceManager instance, which is what includes the
+                //     logic to reload the current React context.
+                final ReactInstanceManager instanceManager = resolveInstanceManager();
+                if (instanceManager == null) {
+                    return;
+                }
 
-            // #3) Get the context creation method and fire it on the UI thread (which RN enforces)
-            new Handler(Looper.getMainLooper()).post(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        // We don't need to resetReactRootViews anymore
-                        // due the issue https://github.com/facebook/react-native/issues/14533
-                        // has been fixed in RN 0.46.0
-                        //resetReactRootViews(instanceManager);
-
-                        instanceManager.recreateReactContextInBackground();
-                        mCodePush.initializeUpdateAfterRestart(resourceName);
-                    } catch (Exception e) {
-                        // The recreation method threw an unknown exception
-                        // so just simply fallback to restarting the Activity (if it exists)
-                        loadBundleLegacy();
+                String latestJSBundleFile = mCodePush.getJSBundleFileInternal(CodePush.getMainResourceName());
+
+                // #2) Update the locally stored JS bundle file path
+                setJSBundle(instanceManager, latestJSBundleFile);
+
+                // #3) Get the context creation method and fire it on the UI thread (which RN enforces)
+                new Handler(Looper.getMainLooper()).post(new Runnable() {
+                    @Override
+                    public void run() {
+                        long recreateTraceStartedAt = CodePushTracer.beginSection("recreateReactContext");
+                        try {
+                            // We don't need to resetReactRootViews anymore
+                            // due the issue https://github.com/facebook/react-native/issues/14533
+                            // has been fixed in RN 0.46.0
+                            //resetReactRootViews(instanceManager);
+
+                            instanceManager.recreateReactContextInBackground();
+                            CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.LOAD_BUNDLE, loadStartedAt);
+
+                            // A single context recreation picks up every pending resource,
+                            // so move all of them to the "loading" state together.
+                            for (String resourceName : resourceNames) {
+                                mCodePush.initializeUpdateAfterRestart(resourceName);
+                            }
+                        } catch (Exception e) {
+                            // The recreation method threw an unknown exception
+                            // so just simply fallback to restarting the Activity (if it exists)
+                            loadBundleLegacy();
+                        } finally {
+                            CodePushTracer.endSection("recreateReactContext", recreateTraceStartedAt);
+                        }
                     }
-                }
-            });
+                });
 
-        } catch (Exception e) {
-            // Our reflection logic failed somewhere
-            // so fall back to restarting the Activity (if it exists)
-            CodePushUtils.log("Failed to load the bundle, falling back to restarting the Activity (if it exists). " + e.getMessage());
-            loadBundleLegacy();
+            } catch (Exception e) {
+                // Our reflection logic failed somewhere
+                // so fall back to restarting the Activity (if it exists)
+                CodePushUtils.log("Failed to load the bundle, falling back to restarting the Activity (if it exists). " + e.getMessage());
+                loadBundleLegacy();
+            }
+        } finally {
+            CodePushTracer.endSection("loadBundle", traceStartedAt);
         }
     }
 
@@ -179,10 +200,7 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
 
     private void clearLifecycleEventListener() {
         // Remove LifecycleEventListener to prevent infinite restart loop
-        if (mLifecycleEventListener != null) {
-            getReactApplicationContext().removeLifecycleEventListener(mLifecycleEventListener);
-            mLifecycleEventListener = null;
-        }
+        mInstallScheduler.cancel();
     }
 
     // Use reflection to find the ReactInstanceManager. See #556 for a proposal for a less brittle way to approach this.
@@ -203,72 +221,68 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
         return instanceManager;
     }
 
+    // Like CodePushUpdateManager.getPackage, but reads the metadata file straight into a bridge map.
+    private WritableMap readPackageMetadata(ModuleInstance moduleInstance, String packageHash) {
+        if (packageHash == null) {
+            return null;
+        }
+
+        try {
+            return CodePushBridgeUtils.convertJsonFileToWritable(moduleInstance.updateManager.getPackageMetadataPath(packageHash));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     @ReactMethod
     public void downloadUpdate(final ReadableMap updatePackage, final boolean notifyProgress, final String resourceName, final Promise promise) {
         AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
             @Override
             protected Void doInBackground(Void... params) {
-                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                long traceStartedAt = CodePushTracer.beginSection("downloadUpdate");
                 try {
-                    JSONObject mutableUpdatePackage = CodePushUtils.convertReadableToJsonObject(updatePackage);
-                    CodePushUtils.setJSONValueForKey(mutableUpdatePackage, CodePushConstants.BINARY_MODIFIED_TIME_KEY, "" + mCodePush.getBinaryResourcesModifiedTime());
-                    moduleInstance.updateManager.downloadPackage(mutableUpdatePackage, mCodePush.getBundleName(resourceName), new DownloadProgressCallback() {
-                        private boolean hasScheduledNextFrame = false;
-                        private DownloadProgress latestDownloadProgress = null;
-
-                        @Override
-                        public void call(DownloadProgress downloadProgress) {
-                            if (!notifyProgress) {
-                                return;
-                            }
+                    ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                    JSONObject mutableUpdatePackage = null;
+                    try {
+                        mutableUpdatePackage = CodePushBridgeUtils.convertReadableToJsonObject(updatePackage);
+                        CodePushUtils.setJSONValueForKey(mutableUpdatePackage, CodePushConstants.BINARY_MODIFIED_TIME_KEY, "" + mCodePush.getBinaryResourcesModifiedTime());
+                        DownloadProgress downloadProgress = new DownloadProgress();
+                        DownloadProgressEmitter progressEmitter = null;
+                        if (notifyProgress) {
+                            progressEmitter = new DownloadProgressEmitter(getReactApplicationContext(), downloadProgress,
+                                    mCodePush.getDownloadProgressInterval(), mCodePush.getDownloadProgressPercentStep());
+                            progressEmitter.start();
+                        }
 
-                            latestDownloadProgress = downloadProgress;
-                            // If the download is completed, synchronously send the last event.
-                            if (latestDownloadProgress.isCompleted()) {
-                                dispatchDownloadProgressEvent();
-                                return;
+                        String packageHash = CodePushBridgeUtils.tryGetString(updatePackage, CodePushConstants.PACKAGE_HASH_KEY);
+                        try {
+                            if (packageHash != null && packageHash.equals(moduleInstance.settingsManager.getPrefetchedUpdateHash(resourceName))
+                                    && moduleInstance.updateManager.getPackage(packageHash) != null) {
+                                // Already downloaded and verified by the native prefetch, JS is about to install it.
+                                CodePushUtils.log("Using prefetched update " + packageHash, resourceName);
+                                moduleInstance.settingsManager.removePrefetchedUpdate(resourceName);
+                            } else {
+                                moduleInstance.updateManager.downloadPackage(mutableUpdatePackage, mCodePush.getBundleName(resourceName),
+                                        downloadProgress, mCodePush.getPublicKey());
                             }
-
-                            if (hasScheduledNextFrame) {
-                                return;
+                        } finally {
+                            if (progressEmitter != null) {
+                                progressEmitter.finish();
                             }
-
-                            hasScheduledNextFrame = true;
-                            getReactApplicationContext().runOnUiQueueThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    ReactChoreographer.getInstance().postFrameCallback(ReactChoreographer.CallbackType.TIMERS_EVENTS, new ChoreographerCompat.FrameCallback() {
-                                        @Override
-                                        public void doFrame(long frameTimeNanos) {
-                                            if (!latestDownloadProgress.isCompleted()) {
-                                                dispatchDownloadProgressEvent();
-                                            }
-
-                                            hasScheduledNextFrame = false;
-                                        }
-                                    });
-                                }
-                            });
                         }
 
-                        public void dispatchDownloadProgressEvent() {
-                            getReactApplicationContext()
-                                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                                    .emit(CodePushConstants.DOWNLOAD_PROGRESS_EVENT_NAME, latestDownloadProgress.createWritableMap());
-                        }
-                    }, mCodePush.getPublicKey());
-
-                    JSONObject newPackage = moduleInstance.updateManager.getPackage(CodePushUtils.tryGetString(updatePackage, CodePushConstants.PACKAGE_HASH_KEY));
-                    promise.resolve(CodePushUtils.convertJsonObjectToWritable(newPackage));
-                } catch (CodePushInvalidUpdateException e) {
-                    CodePushUtils.log(e, resourceName);
-                    moduleInstance.settingsManager.saveFailedUpdate(CodePushUtils.convertReadableToJsonObject(updatePackage));
-                    promise.reject(e);
-                } catch (IOException | CodePushUnknownException e) {
-                    CodePushUtils.log(e, resourceName);
-                    promise.reject(e);
+                        promise.resolve(CodePushBridgeUtils.convertJsonFileToWritable(moduleInstance.updateManager.getPackageMetadataPath(packageHash)));
+                    } catch (CodePushInvalidUpdateException e) {
+                        CodePushUtils.log(e, resourceName);
+                        moduleInstance.settingsManager.saveFailedUpdate(mutableUpdatePackage);
+                        promise.reject(e);
+                    } catch (IOException | CodePushUnknownException e) {
+                        CodePushUtils.log(e, resourceName);
+                        promise.reject(e);
+                    }
+                } finally {
+                    CodePushTracer.endSection("downloadUpdate", traceStartedAt);
                 }
-
                 return null;
             }
         };
@@ -283,6 +297,9 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
             configMap.putString("appVersion", mCodePush.getAppVersion());
             configMap.putString("clientUniqueId", mClientUniqueId);
             configMap.putString("serverUrl", mCodePush.getServerUrl());
+            if (mCodePush.getDeploymentKey() != null) {
+                configMap.putString("deploymentKey", mCodePush.getDeploymentKey());
+            }
 
             // The binary hash may be null in debug builds
             String binaryContentsHash = getBinaryContentsHash();
@@ -296,6 +313,151 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void requestUpdateCheck(final String url, final ReadableMap headers, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                try {
+                    Map<String, String> requestHeaders = new HashMap<>();
+                    if (headers != null) {
+                        ReadableMapKeySetIterator it = headers.keySetIterator();
+                        while (it.hasNextKey()) {
+                            String key = it.nextKey();
+                            requestHeaders.put(key, headers.getString(key));
+                        }
+                    }
+
+                    CodePushUpdateCheckClient.Response response = CodePush.getUpdateCheckClient(mReactContext).get(url, requestHeaders);
+                    WritableMap responseMap = Arguments.createMap();
+                    responseMap.putInt("statusCode", response.statusCode);
+                    responseMap.putString("body", response.body);
+                    promise.resolve(responseMap);
+                } catch (IOException | CodePushUnknownException | CodePushMalformedDataException e) {
+                    CodePushUtils.log(e);
+                    promise.reject(e);
+                }
+
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @ReactMethod
+    public void getUpdateCheckMetrics(Promise promise) {
+        promise.resolve(CodePushBridgeUtils.convertJsonObjectToWritable(CodePush.getUpdateCheckClient(mReactContext).getMetrics()));
+    }
+
+    @ReactMethod
+    public void getBufferPoolStats(Promise promise) {
+        promise.resolve(CodePushBridgeUtils.convertJsonObjectToWritable(CodePushBufferPool.getStats()));
+    }
+
+    @ReactMethod
+    public void getPerformanceMetrics(Promise promise) {
+        promise.resolve(CodePushBridgeUtils.convertJsonObjectToWritable(CodePushPerformanceMetrics.getSnapshot()));
+    }
+
+    @ReactMethod
+    public void getRecentLogEvents(Promise promise) {
+        promise.resolve(CodePushBridgeUtils.convertJsonArrayToWritable(CodePushUtils.getRecentLogEvents()));
+    }
+
+    @ReactMethod
+    public void getTrace(Promise promise) {
+        promise.resolve(CodePushTracer.getChromeTrace().toString());
+    }
+
+    @ReactMethod
+    public void getCachedPackages(final String resourceName, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                promise.resolve(CodePushBridgeUtils.convertJsonArrayToWritable(moduleInstance.updateManager.getCachedPackages()));
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @ReactMethod
+    public void getLazyAssetStatus(final String resourceName, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                try {
+                    promise.resolve(CodePushBridgeUtils.convertJsonObjectToWritable(moduleInstance.updateManager.getLazyAssetStatus()));
+                } catch (IOException | CodePushInvalidUpdateException | CodePushUnknownException e) {
+                    CodePushUtils.log(e, resourceName);
+                    promise.reject(e);
+                }
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    // Resolves once every asset of the current package that was left out of it has been fetched.
+    @ReactMethod
+    public void prefetchLazyAssets(final String resourceName, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                try {
+                    moduleInstance.updateManager.fetchLazyAssets();
+                    promise.resolve(CodePushBridgeUtils.convertJsonObjectToWritable(moduleInstance.updateManager.getLazyAssetStatus()));
+                } catch (IOException | CodePushInvalidUpdateException | CodePushUnknownException e) {
+                    CodePushUtils.log(e, resourceName);
+                    promise.reject(e);
+                }
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    // Resolves with the absolute path of the asset, e.g. to build an image URI, or null if the package lists no such asset.
+    @ReactMethod
+    public void resolveLazyAsset(final String relativePath, final String resourceName, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                try {
+                    promise.resolve(moduleInstance.updateManager.resolveLazyAsset(relativePath));
+                } catch (IOException | CodePushInvalidUpdateException | CodePushUnknownException e) {
+                    CodePushUtils.log(e, resourceName);
+                    promise.reject(e);
+                }
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @ReactMethod
+    public void getTrashStatus(final String resourceName, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                promise.resolve(CodePushBridgeUtils.convertJsonObjectToWritable(moduleInstance.updateManager.getTrashStatus()));
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     @ReactMethod
     public void getUpdateMetadata(final int updateState,final String resourceName, final Promise promise) {
         AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
@@ -303,7 +465,7 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
             protected Void doInBackground(Void... params) {
                 ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
                 try {
-                    JSONObject currentPackage = moduleInstance.updateManager.getCurrentPackage();
+                    WritableMap currentPackage = readPackageMetadata(moduleInstance, moduleInstance.updateManager.getCurrentPackageHash());
 
                     if (currentPackage == null) {
                         promise.resolve(null);
@@ -312,9 +474,10 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
 
                     Boolean currentUpdateIsPending = false;
 
-                    if (currentPackage.has(CodePushConstants.PACKAGE_HASH_KEY)) {
-                        String currentHash = currentPackage.optString(CodePushConstants.PACKAGE_HASH_KEY, null);
-                        currentUpdateIsPending = moduleInstance.settingsManager.isPendingUpdate(currentHash);
+                    if (currentPackage.hasKey(CodePushConstants.PACKAGE_HASH_KEY)) {
+                        String currentHash = currentPackage.isNull(CodePushConstants.PACKAGE_HASH_KEY)
+                                ? null : currentPackage.getString(CodePushConstants.PACKAGE_HASH_KEY);
+                        currentUpdateIsPending = moduleInstance.settingsManager.isPendingUpdate(resourceName, currentHash);
                     }
 
                     if (updateState == CodePushUpdateState.PENDING.getValue() && !currentUpdateIsPending) {
@@ -324,14 +487,14 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
                     } else if (updateState == CodePushUpdateState.RUNNING.getValue() && currentUpdateIsPending) {
                         // The caller wants the running update, but the current
                         // one is pending, so we need to grab the previous.
-                        JSONObject previousPackage = moduleInstance.updateManager.getPreviousPackage();
+                        WritableMap previousPackage = readPackageMetadata(moduleInstance, moduleInstance.updateManager.getPreviousPackageHash());
 
                         if (previousPackage == null) {
                             promise.resolve(null);
                             return null;
                         }
 
-                        promise.resolve(CodePushUtils.convertJsonObjectToWritable(previousPackage));
+                        promise.resolve(previousPackage);
                     } else {
                         // The current package satisfies the request:
                         // 1) Caller wanted a pending, and there is a pending update
@@ -341,12 +504,12 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
                             // This only matters in Debug builds. Since we do not clear "outdated" updates,
                             // we need to indicate to the JS side that somehow we have a current update on
                             // disk that is not actually running.
-                            CodePushUtils.setJSONValueForKey(currentPackage, "_isDebugOnly", true);
+                            currentPackage.putBoolean("_isDebugOnly", true);
                         }
 
                         // Enable differentiating pending vs. non-pending updates
-                        CodePushUtils.setJSONValueForKey(currentPackage, "isPending", currentUpdateIsPending);
-                        promise.resolve(CodePushUtils.convertJsonObjectToWritable(currentPackage));
+                        currentPackage.putBoolean("isPending", currentUpdateIsPending);
+                        promise.resolve(currentPackage);
                     }
                 } catch (CodePushMalformedDataException e) {
                     // We need to recover the app in case 'codepush.json' is corrupted
@@ -378,7 +541,7 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
                         if (failedUpdates != null && failedUpdates.length() > 0) {
                             try {
                                 JSONObject lastFailedPackageJSON = failedUpdates.getJSONObject(failedUpdates.length() - 1);
-                                WritableMap lastFailedPackage = CodePushUtils.convertJsonObjectToWritable(lastFailedPackageJSON);
+                                WritableMap lastFailedPackage = CodePushBridgeUtils.convertJsonObjectToWritable(lastFailedPackageJSON);
                                 WritableMap failedStatusReport = moduleInstance.telemetryManager.getRollbackReport(lastFailedPackage);
                                 if (failedStatusReport != null) {
                                     promise.resolve(failedStatusReport);
@@ -388,10 +551,10 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
                                 throw new CodePushUnknownException("Unable to read failed updates information stored in SharedPreferences.", e);
                             }
                         }
-                    } else if (mCodePush.didUpdate()) {
-                        JSONObject currentPackage = moduleInstance.updateManager.getCurrentPackage();
+                    } else if (moduleInstance.didUpdate()) {
+                        WritableMap currentPackage = readPackageMetadata(moduleInstance, moduleInstance.updateManager.getCurrentPackageHash());
                         if (currentPackage != null) {
-                            WritableMap newPackageStatusReport = moduleInstance.telemetryManager.getUpdateReport(CodePushUtils.convertJsonObjectToWritable(currentPackage));
+                            WritableMap newPackageStatusReport = moduleInstance.telemetryManager.getUpdateReport(currentPackage);
                             if (newPackageStatusReport != null) {
                                 promise.resolve(newPackageStatusReport);
                                 return null;
@@ -428,83 +591,37 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
         AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
             @Override
             protected Void doInBackground(Void... params) {
-                final ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                long traceStartedAt = CodePushTracer.beginSection("installUpdate");
                 try {
-                    moduleInstance.updateManager.installPackage(CodePushUtils.convertReadableToJsonObject(updatePackage), moduleInstance.settingsManager.isPendingUpdate(null));
-
-                    String pendingHash = CodePushUtils.tryGetString(updatePackage, CodePushConstants.PACKAGE_HASH_KEY);
-                    if (pendingHash == null) {
-                        throw new CodePushUnknownException("Update package to be installed has no hash.");
-                    } else {
-                        moduleInstance.settingsManager.savePendingUpdate(pendingHash, /* isLoading */false);
-                    }
-
-                    if (installMode == CodePushInstallMode.ON_NEXT_RESUME.getValue() ||
-                            // We also add the resume listener if the installMode is IMMEDIATE, because
-                            // if the current activity is backgrounded, we want to reload the bundle when
-                            // it comes back into the foreground.
-                            installMode == CodePushInstallMode.IMMEDIATE.getValue() ||
-                            installMode == CodePushInstallMode.ON_NEXT_SUSPEND.getValue()) {
-
-                        // Store the minimum duration on the native module as an instance
-                        // variable instead of relying on a closure below, so that any
-                        // subsequent resume-based installs could override it.
-                        CodePushNativeModule.this.mMinimumBackgroundDuration = minimumBackgroundDuration;
-
-                        if (mLifecycleEventListener == null) {
-                            // Ensure we do not add the listener twice.
-                            mLifecycleEventListener = new LifecycleEventListener() {
-                                private Date lastPausedDate = null;
-                                private Handler appSuspendHandler = new Handler(Looper.getMainLooper());
-                                private Runnable loadBundleRunnable = new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        CodePushUtils.log("Loading bundle on suspend", resourceName);
-                                        loadBundle(resourceName);
-                                    }
-                                };
-
-                                @Override
-                                public void onHostResume() {
-                                    appSuspendHandler.removeCallbacks(loadBundleRunnable);
-                                    // As of RN 36, the resume handler fires immediately if the app is in
-                                    // the foreground, so explicitly wait for it to be backgrounded first
-                                    // if (lastPausedDate != null) {
-                                    //     long durationInBackground = (new Date().getTime() - lastPausedDate.getTime()) / 1000;
-                                    //     if (installMode == CodePushInstallMode.IMMEDIATE.getValue()
-                                    //             || durationInBackground >= CodePushNativeModule.this.mMinimumBackgroundDuration) {
-                                    //         CodePushUtils.log("Loading bundle on resume", resourceName);
-                                    //         loadBundle(resourceName);
-                                    //     }
-                                    // }
-                                }
-
-                                @Override
-                                public void onHostPause() {
-                                    // Save the current time so that when the app is later
-                                    // resumed, we can detect how long it was in the background.
-                                    lastPausedDate = new Date();
-
-                                    if (installMode == CodePushInstallMode.ON_NEXT_SUSPEND.getValue() && moduleInstance.settingsManager.isPendingUpdate(null)) {
-                                        appSuspendHandler.postDelayed(loadBundleRunnable, minimumBackgroundDuration * 1000);
-                                    }
-                                }
+                    final ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                    try {
+                        String pendingHash = CodePushBridgeUtils.tryGetString(updatePackage, CodePushConstants.PACKAGE_HASH_KEY);
+                        moduleInstance.updateManager.installPackage(pendingHash, moduleInstance.settingsManager.isPendingUpdate(resourceName, null));
 
-                                @Override
-                                public void onHostDestroy() {
-                                }
-                            };
+                        if (pendingHash == null) {
+                            throw new CodePushUnknownException("Update package to be installed has no hash.");
+                        } else {
+                            moduleInstance.settingsManager.savePendingUpdate(resourceName, pendingHash, /* isLoading */false);
+                        }
 
-                            getReactApplicationContext().addLifecycleEventListener(mLifecycleEventListener);
+                        if (installMode == CodePushInstallMode.ON_NEXT_RESUME.getValue() ||
+                                // We also schedule the install if the installMode is IMMEDIATE, because
+                                // if the current activity is backgrounded, we want to reload the bundle when
+                                // it comes back into the foreground.
+                                installMode == CodePushInstallMode.IMMEDIATE.getValue() ||
+                                installMode == CodePushInstallMode.ON_NEXT_SUSPEND.getValue()) {
+                            // Any subsequent resume-based install overrides the mode and durations used here.
+                            mInstallScheduler.schedule(installMode, minimumBackgroundDuration, mCodePush.getInstallIdleWindow());
                         }
-                    }
 
-                    promise.resolve("");
-                } catch(CodePushUnknownException e) {
-                    CodePushUtils.log(e, resourceName);
-                    promise.reject(e);
+                        promise.resolve("");
+                    } catch(CodePushUnknownException e) {
+                        CodePushUtils.log(e, resourceName);
+                        promise.reject(e);
+                    }
+                } finally {
+                    CodePushTracer.endSection("installUpdate", traceStartedAt);
                 }
-
                 return null;
             }
         };
@@ -529,7 +646,7 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
         try {
             JSONObject latestRollbackInfo = moduleInstance.settingsManager.getLatestRollbackInfo();
             if (latestRollbackInfo != null) {
-                promise.resolve(CodePushUtils.convertJsonObjectToWritable(latestRollbackInfo));
+                promise.resolve(CodePushBridgeUtils.convertJsonObjectToWritable(latestRollbackInfo));
             } else {
                 promise.resolve(null);
             }
@@ -555,7 +672,7 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
     public void isFirstRun(String packageHash, final String resourceName, Promise promise) {
         ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
         try {
-            boolean isFirstRun = mCodePush.didUpdate()
+            boolean isFirstRun = moduleInstance.didUpdate()
                     && packageHash != null
                     && packageHash.length() > 0
                     && packageHash.equals(moduleInstance.updateManager.getCurrentPackageHash());
@@ -570,7 +687,7 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
     public void notifyApplicationReady(String resourceName, Promise promise) {
         ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
         try {
-            moduleInstance.settingsManager.removePendingUpdate();
+            moduleInstance.settingsManager.removePendingUpdate(resourceName);
             promise.resolve("");
         } catch(CodePushUnknownException e) {
             CodePushUtils.log(e, resourceName);
@@ -590,18 +707,10 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void restartApp(boolean onlyIfUpdateIsPending, Promise promise) {
-        final String resourceName = "common";
-        ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
         try {
-            // If this is an unconditional restart request, or there
-            // is current pending update, then reload the app.
-            if (!onlyIfUpdateIsPending || moduleInstance.settingsManager.isPendingUpdate(null)) {
-                loadBundle(resourceName);
-                promise.resolve(true);
-                return;
-            }
-
-            promise.resolve(false);
+            // If this is an unconditional restart request, or any registered
+            // resource has a pending update, then reload the app once for all of them.
+            promise.resolve(mRestartCoordinator.requestRestart(onlyIfUpdateIsPending));
         } catch(CodePushUnknownException e) {
             CodePushUtils.log(e);
             promise.reject(e);
@@ -618,6 +727,47 @@ public class CodePushNativeModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void getStatusReportBatch(final String resourceName, final int maxCount, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                try {
+                    promise.resolve(moduleInstance.telemetryManager.getStatusReportBatch(maxCount));
+                } catch (IOException | CodePushUnknownException e) {
+                    CodePushUtils.log(e, resourceName);
+                    promise.reject(e);
+                }
+
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    @ReactMethod
+    public void acknowledgeStatusReports(final String resourceName, final ReadableArray reportedIds, final boolean hasFailures, final Promise promise) {
+        AsyncTask<Void, Void, Void> asyncTask = new AsyncTask<Void, Void, Void>() {
+            @Override
+            protected Void doInBackground(Void... params) {
+                ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+                try {
+                    moduleInstance.telemetryManager.acknowledgeStatusReports(reportedIds, hasFailures);
+                    promise.resolve(null);
+                } catch (IOException | CodePushUnknownException e) {
+                    CodePushUtils.log(e, resourceName);
+                    promise.reject(e);
+                }
+
+                return null;
+            }
+        };
+
+        asyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     @ReactMethod
     // Replaces the current bundle with the one downloaded from removeBundleUrl.
     // It is only to be used during tests. No-ops if the test configuration flag is not set.
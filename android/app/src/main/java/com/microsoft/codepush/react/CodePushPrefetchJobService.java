@@ -0,0 +1,109 @@
+package com.microsoft.codepush.react;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Build;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Periodically prefetches updates for every resource that has enabled background prefetch, even when the
+ * app is not running. Uses the configuration saved by {@link CodePush} when prefetch was last enabled.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class CodePushPrefetchJobService extends JobService {
+
+    public static void schedule(Context context, long intervalMs) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            CodePushUtils.log("Periodic background prefetch requires Android 5.0 or later");
+            return;
+        }
+
+        JobInfo jobInfo = new JobInfo.Builder(CodePushConstants.PREFETCH_JOB_ID, new ComponentName(context, CodePushPrefetchJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPeriodic(intervalMs)
+                .setPersisted(false)
+                .build();
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        jobScheduler.schedule(jobInfo);
+    }
+
+    // The thread running the current job, interrupted when the system stops the job. Only one job runs at a time.
+    private volatile Thread mWorkerThread;
+    private volatile boolean mIsStopped;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final Context context = getApplicationContext();
+        CodePushAndroidPlatform.install();
+        mIsStopped = false;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                mWorkerThread = Thread.currentThread();
+                boolean needsReschedule = false;
+                try {
+                    prefetchAll(context);
+                } catch (Exception e) {
+                    if (!mIsStopped) {
+                        CodePushUtils.log(e);
+                    }
+                    needsReschedule = true;
+                } finally {
+                    mWorkerThread = null;
+                    // Clear an interrupt from onStopJob, the pool thread is reused.
+                    Thread.interrupted();
+                }
+
+                if (!mIsStopped) {
+                    jobFinished(params, needsReschedule);
+                }
+            }
+        });
+
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // E.g. the network went away. Abort the download, the job is rescheduled and the next run starts over.
+        mIsStopped = true;
+        Thread workerThread = mWorkerThread;
+        if (workerThread != null) {
+            workerThread.interrupt();
+        }
+        return true;
+    }
+
+    private void prefetchAll(Context context) throws Exception {
+        SettingsManager settingsManager = new SettingsManager(new SharedPreferencesKeyValueStore(context, CodePushConstants.CODE_PUSH_PREFERENCES));
+        JSONObject prefetchConfig = settingsManager.getPrefetchConfig();
+        if (prefetchConfig == null) {
+            return;
+        }
+
+        String serverUrl = prefetchConfig.getString("serverUrl");
+        String deploymentKey = prefetchConfig.getString("deploymentKey");
+        String appVersion = prefetchConfig.getString("appVersion");
+        String publicKey = prefetchConfig.optString("publicKey", null);
+        JSONArray resourceNames = prefetchConfig.getJSONArray("resourceNames");
+        long binaryModifiedTime = CodePush.getBinaryResourcesModifiedTime(context);
+        String binaryContentsHash = CodePush.getHashForBinaryContents(context, false);
+
+        for (int i = 0; i < resourceNames.length() && !mIsStopped; i++) {
+            String resourceName = resourceNames.getString(i);
+            CodePushUpdateManager updateManager = new CodePushUpdateManager(context.getFilesDir().getAbsolutePath(), resourceName);
+            CodePushUpdatePrefetcher prefetcher = new CodePushUpdatePrefetcher(updateManager, settingsManager,
+                    CodePush.getUpdateCheckEndpoint(context, serverUrl), resourceName, appVersion, binaryModifiedTime,
+                    binaryContentsHash, publicKey);
+            prefetcher.prefetch(deploymentKey, null);
+        }
+    }
+}
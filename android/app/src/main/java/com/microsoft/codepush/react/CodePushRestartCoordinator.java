@@ -0,0 +1,92 @@
+package com.microsoft.codepush.react;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects restart requests for all registered resources and applies them with a single
+ * React context recreation, so that pending updates for several bundles landing at the same
+ * time only cost the user one restart.
+ */
+public class CodePushRestartCoordinator {
+
+    /**
+     * Performs the actual context recreation for a batch of resources. Always invoked on the main thread.
+     */
+    public interface ContextReloader {
+        void reload(List<String> resourceNames);
+    }
+
+    private final CodePush mCodePush;
+    private final ContextReloader mContextReloader;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Resources collected for the next reload. Guarded by "this".
+    private final Set<String> mScheduledResourceNames = new LinkedHashSet<>();
+    private boolean mIsReloadScheduled = false;
+
+    private final Runnable mReloadRunnable = new Runnable() {
+        @Override
+        public void run() {
+            List<String> resourceNames;
+            synchronized (CodePushRestartCoordinator.this) {
+                resourceNames = new ArrayList<>(mScheduledResourceNames);
+                mScheduledResourceNames.clear();
+                mIsReloadScheduled = false;
+            }
+
+            CodePushUtils.log("Restarting app for resources " + resourceNames);
+            mContextReloader.reload(resourceNames);
+        }
+    };
+
+    public CodePushRestartCoordinator(CodePush codePush, ContextReloader contextReloader) {
+        mCodePush = codePush;
+        mContextReloader = contextReloader;
+    }
+
+    /**
+     * Returns the names of all registered resources whose current package is an update that
+     * has been installed but not yet loaded.
+     */
+    public List<String> getPendingResourceNames() {
+        List<String> pendingResourceNames = new ArrayList<>();
+        for (String resourceName : mCodePush.getResourceNames()) {
+            ModuleInstance moduleInstance = mCodePush.getModuleInstance(resourceName);
+            String currentPackageHash = moduleInstance.updateManager.getCurrentPackageHash();
+            if (currentPackageHash != null && moduleInstance.settingsManager.isPendingUpdate(resourceName, currentPackageHash)) {
+                pendingResourceNames.add(resourceName);
+            }
+        }
+
+        return pendingResourceNames;
+    }
+
+    /**
+     * Schedules one context recreation covering every resource with a pending update. Requests
+     * arriving before the scheduled reload runs are merged into it.
+     *
+     * @return false if {@code onlyIfUpdateIsPending} is set and no resource has a pending update.
+     */
+    public boolean requestRestart(boolean onlyIfUpdateIsPending) {
+        List<String> pendingResourceNames = getPendingResourceNames();
+        if (onlyIfUpdateIsPending && pendingResourceNames.isEmpty()) {
+            return false;
+        }
+
+        synchronized (this) {
+            mScheduledResourceNames.addAll(pendingResourceNames);
+            if (!mIsReloadScheduled) {
+                mIsReloadScheduled = true;
+                mMainHandler.post(mReloadRunnable);
+            }
+        }
+
+        return true;
+    }
+}
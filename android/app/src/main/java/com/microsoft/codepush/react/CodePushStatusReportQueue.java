@@ -0,0 +1,243 @@
+package com.microsoft.codepush.react;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded on-disk queue of status reports that could not be sent yet.
+ *
+ * The file holds one JSON line per report, {@code {"id": ..., "report": {...}}}, so enqueuing is a
+ * single append. Reports with the same id replace earlier ones. The file is compacted, keeping only the
+ * newest {@code maxSize} distinct reports, when reports are removed or once it has grown to twice that
+ * many lines. A line torn by a crash during an append is dropped on the next read.
+ */
+class CodePushStatusReportQueue {
+
+    static class Entry {
+        final String id;
+        final String line;
+
+        Entry(String id, String line) {
+            this.id = id;
+            this.line = line;
+        }
+
+        WritableMap getReport() throws IOException {
+            JsonReader reader = new JsonReader(new StringReader(line));
+            try {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("report".equals(reader.nextName())) {
+                        return CodePushBridgeUtils.readWritableMap(reader);
+                    }
+                    reader.skipValue();
+                }
+                return null;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private final File mFile;
+    private final int mMaxSize;
+
+    // Lines currently in the file, -1 until first counted.
+    private int mLineCount = -1;
+
+    public CodePushStatusReportQueue(String filePath, int maxSize) {
+        mFile = new File(filePath);
+        mMaxSize = maxSize;
+    }
+
+    public synchronized void add(String id, ReadableMap report) throws IOException {
+        StringWriter line = new StringWriter();
+        JsonWriter writer = new JsonWriter(line);
+        writer.beginObject();
+        writer.name("id").value(id);
+        writer.name("report");
+        CodePushBridgeUtils.writeReadableMap(writer, report);
+        writer.endObject();
+        writer.close();
+
+        mFile.getParentFile().mkdirs();
+        boolean isLastLineTorn = endsWithoutNewline();
+        Writer out = new OutputStreamWriter(new FileOutputStream(mFile, true), "UTF-8");
+        try {
+            if (isLastLineTorn) {
+                out.write('\n');
+            }
+            out.write(line.toString());
+            out.write('\n');
+        } finally {
+            out.close();
+        }
+
+        if (mLineCount >= 0) {
+            mLineCount++;
+        }
+        if (getLineCount() > mMaxSize * 2) {
+            compact(readEntries().values());
+        }
+    }
+
+    /**
+     * Returns up to {@code maxCount} distinct reports, oldest first, without removing them.
+     */
+    public synchronized List<Entry> peek(int maxCount) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (Entry entry : readEntries().values()) {
+            if (entries.size() >= maxCount) {
+                break;
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Removes the reports with the given ids and returns the removed entries.
+     */
+    public synchronized List<Entry> remove(Collection<String> ids) throws IOException {
+        Map<String, Entry> entries = readEntries();
+        List<Entry> removedEntries = new ArrayList<>();
+        for (String id : ids) {
+            Entry removedEntry = entries.remove(id);
+            if (removedEntry != null) {
+                removedEntries.add(removedEntry);
+            }
+        }
+        if (!removedEntries.isEmpty()) {
+            compact(entries.values());
+        }
+        return removedEntries;
+    }
+
+    public synchronized boolean isEmpty() throws IOException {
+        return !mFile.exists() || readEntries().isEmpty();
+    }
+
+    public synchronized void clear() {
+        mFile.delete();
+        mLineCount = 0;
+    }
+
+    // Distinct entries in the order of their latest occurrence.
+    private Map<String, Entry> readEntries() throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (!mFile.exists()) {
+            mLineCount = 0;
+            return entries;
+        }
+
+        int lineCount = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                String id = readId(line);
+                if (id != null) {
+                    entries.remove(id);
+                    entries.put(id, new Entry(id, line));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        mLineCount = lineCount;
+        return entries;
+    }
+
+    private void compact(Collection<Entry> entries) throws IOException {
+        int skipCount = Math.max(0, entries.size() - mMaxSize);
+        File compactedFile = new File(mFile.getPath() + ".tmp");
+        Writer out = new OutputStreamWriter(new FileOutputStream(compactedFile), "UTF-8");
+        int lineCount = 0;
+        try {
+            for (Entry entry : entries) {
+                if (skipCount > 0) {
+                    skipCount--;
+                    continue;
+                }
+                out.write(entry.line);
+                out.write('\n');
+                lineCount++;
+            }
+        } finally {
+            out.close();
+        }
+
+        if (!compactedFile.renameTo(mFile)) {
+            throw new IOException("Unable to replace " + mFile);
+        }
+        mLineCount = lineCount;
+    }
+
+    private int getLineCount() throws IOException {
+        if (mLineCount < 0) {
+            readEntries();
+        }
+        return mLineCount;
+    }
+
+    private boolean endsWithoutNewline() throws IOException {
+        if (mFile.length() == 0) {
+            return false;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(mFile, "r");
+        try {
+            file.seek(file.length() - 1);
+            return file.read() != '\n';
+        } finally {
+            file.close();
+        }
+    }
+
+    // Returns the id of a complete entry, or null if the line is not one.
+    private static String readId(String line) {
+        try {
+            JsonReader reader = new JsonReader(new StringReader(line));
+            try {
+                String id = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("id".equals(reader.nextName())) {
+                        id = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return reader.peek() == JsonToken.END_DOCUMENT ? id : null;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+    }
+}
@@ -4,15 +4,24 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
 public class CodePushTelemetryManager {
     private SharedPreferences mSettings;
     private String mResourceName;
+    private CodePushStatusReportQueue mStatusReportQueue;
     private final String APP_VERSION_KEY = "appVersion";
     private final String DEPLOYMENT_FAILED_STATUS = "DeploymentFailed";
     private final String DEPLOYMENT_KEY_KEY = "deploymentKey";
@@ -24,10 +33,16 @@ public class CodePushTelemetryManager {
     private final String PREVIOUS_LABEL_OR_APP_VERSION_KEY = "previousLabelOrAppVersion";
     private final String RETRY_DEPLOYMENT_REPORT_KEY = "CODE_PUSH_RETRY_DEPLOYMENT_REPORT";
     private final String STATUS_KEY = "status";
+    private final String STATUS_REPORT_NEXT_RETRY_KEY = "CODE_PUSH_STATUS_REPORT_NEXT_RETRY";
+    private final String STATUS_REPORT_RETRY_COUNT_KEY = "CODE_PUSH_STATUS_REPORT_RETRY_COUNT";
 
     public CodePushTelemetryManager(Context applicationContext, String resourceName) {
         mSettings = applicationContext.getSharedPreferences(CodePushConstants.CODE_PUSH_PREFERENCES, 0);
         mResourceName = resourceName;
+        String queueFolderPath = CodePushUtils.appendPathComponent(applicationContext.getFilesDir().getAbsolutePath(),
+                CodePushConstants.STATUS_REPORT_QUEUE_FOLDER_NAME);
+        mStatusReportQueue = new CodePushStatusReportQueue(CodePushUtils.appendPathComponent(queueFolderPath, resourceName + ".jsonl"),
+                CodePushConstants.STATUS_REPORT_QUEUE_MAX_SIZE);
     }
 
     public WritableMap getBinaryUpdateReport(String appVersion) {
@@ -53,16 +68,21 @@ public class CodePushTelemetryManager {
             }
         }
 
+        removeQueuedStatusReport(reportMap);
         return reportMap;
     }
 
+    /**
+     * Returns a report saved for retry by versions without the queue. Queued reports are only handed out
+     * through {@link #getStatusReportBatch}, so a report is never sent by a retry and a batch at the same time.
+     */
     public WritableMap getRetryStatusReport() {
         String retryStatusReportString = mSettings.getString(RETRY_DEPLOYMENT_REPORT_KEY, null);
         if (retryStatusReportString != null) {
             clearRetryStatusReport();
             try {
                 JSONObject retryStatusReport = new JSONObject(retryStatusReportString);
-                return CodePushUtils.convertJsonObjectToWritable(retryStatusReport);
+                return CodePushBridgeUtils.convertJsonObjectToWritable(retryStatusReport);
             } catch (JSONException e) {
                 e.printStackTrace();
             }
@@ -71,6 +91,66 @@ public class CodePushTelemetryManager {
         return null;
     }
 
+    /**
+     * Returns up to {@code maxCount} queued status reports as {@code {ids, reports, retryAfterMs}}. While
+     * the queue is backing off after failed attempts no reports are returned and {@code retryAfterMs}
+     * tells when to ask again. The acquisition server takes one report per request, so the caller still
+     * sends the reports of a batch one by one.
+     */
+    public WritableMap getStatusReportBatch(int maxCount) throws IOException {
+        WritableArray ids = Arguments.createArray();
+        WritableArray reports = Arguments.createArray();
+        long retryDelayMs = 0;
+        if (!mStatusReportQueue.isEmpty()) {
+            retryDelayMs = getStatusReportRetryDelay();
+            if (retryDelayMs == 0) {
+                for (CodePushStatusReportQueue.Entry entry : mStatusReportQueue.peek(maxCount)) {
+                    WritableMap report = entry.getReport();
+                    if (report != null) {
+                        ids.pushString(entry.id);
+                        reports.pushMap(report);
+                    }
+                }
+            }
+        }
+
+        WritableMap batch = Arguments.createMap();
+        batch.putArray("ids", ids);
+        batch.putArray("reports", reports);
+        batch.putDouble("retryAfterMs", retryDelayMs);
+        return batch;
+    }
+
+    /**
+     * Removes the reports that were delivered from the queue and records them as reported, like
+     * {@link #recordStatusReported} does for reports sent directly. If any report of the batch failed, the
+     * next batch is delayed with exponential backoff, otherwise the backoff is reset.
+     */
+    public void acknowledgeStatusReports(ReadableArray reportedIds, boolean hasFailures) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < reportedIds.size(); i++) {
+            ids.add(reportedIds.getString(i));
+        }
+        if (!ids.isEmpty()) {
+            // Oldest first, so the last deployment report ends up being the newest one delivered.
+            for (CodePushStatusReportQueue.Entry entry : mStatusReportQueue.remove(ids)) {
+                WritableMap report = entry.getReport();
+                if (report != null) {
+                    recordStatusReported(report);
+                }
+            }
+        }
+
+        if (hasFailures) {
+            recordStatusReportFailure();
+        } else {
+            mSettings.edit()
+                    .remove(STATUS_REPORT_RETRY_COUNT_KEY + "_" + mResourceName)
+                    .remove(STATUS_REPORT_NEXT_RETRY_KEY + "_" + mResourceName)
+                    .commit();
+        }
+    }
+
     public WritableMap getRollbackReport(WritableMap lastFailedPackage) {
         WritableMap reportMap =  Arguments.createMap();
         reportMap.putMap(PACKAGE_KEY, lastFailedPackage);
@@ -107,6 +187,7 @@ public class CodePushTelemetryManager {
             }
         }
 
+        removeQueuedStatusReport(reportMap);
         return reportMap;
     }
 
@@ -125,8 +206,12 @@ public class CodePushTelemetryManager {
     }
 
     public void saveStatusReportForRetry(ReadableMap statusReport) {
-        JSONObject statusReportJSON = CodePushUtils.convertReadableToJsonObject(statusReport);
-        mSettings.edit().putString(RETRY_DEPLOYMENT_REPORT_KEY, statusReportJSON.toString()).commit();
+        try {
+            mStatusReportQueue.add(getStatusReportQueueId(statusReport), statusReport);
+        } catch (IOException e) {
+            throw new CodePushUnknownException("Unable to save status report for retry", e);
+        }
+        recordStatusReportFailure();
     }
 
     private void clearRetryStatusReport() {
@@ -145,8 +230,8 @@ public class CodePushTelemetryManager {
     private String getPackageStatusReportIdentifier(ReadableMap updatePackage) {
         // Because deploymentKeys can be dynamically switched, we use a
         // combination of the deploymentKey and label as the packageIdentifier.
-        String deploymentKey = CodePushUtils.tryGetString(updatePackage, DEPLOYMENT_KEY_KEY);
-        String label = CodePushUtils.tryGetString(updatePackage, LABEL_KEY);
+        String deploymentKey = CodePushBridgeUtils.tryGetString(updatePackage, DEPLOYMENT_KEY_KEY);
+        String label = CodePushBridgeUtils.tryGetString(updatePackage, LABEL_KEY);
         if (deploymentKey != null && label != null) {
             return deploymentKey + ":" + label;
         } else {
@@ -154,6 +239,51 @@ public class CodePushTelemetryManager {
         }
     }
 
+    // Reports about the same package or binary with the same status replace each other in the queue.
+    private String getStatusReportQueueId(ReadableMap statusReport) {
+        String identifier = null;
+        if (statusReport.hasKey(APP_VERSION_KEY)) {
+            identifier = statusReport.getString(APP_VERSION_KEY);
+        } else if (statusReport.hasKey(PACKAGE_KEY)) {
+            String packageIdentifier = getPackageStatusReportIdentifier(statusReport.getMap(PACKAGE_KEY));
+            if (packageIdentifier != null) {
+                identifier = CodePushBridgeUtils.tryGetString(statusReport, STATUS_KEY) + "/" + packageIdentifier;
+            }
+        }
+
+        return identifier != null ? identifier : UUID.randomUUID().toString();
+    }
+
+    // A freshly generated report supersedes a queued copy of itself.
+    private void removeQueuedStatusReport(ReadableMap statusReport) {
+        if (statusReport == null) {
+            return;
+        }
+
+        try {
+            mStatusReportQueue.remove(Collections.singletonList(getStatusReportQueueId(statusReport)));
+        } catch (IOException e) {
+            CodePushUtils.log(e, mResourceName);
+        }
+    }
+
+    private long getStatusReportRetryDelay() {
+        long nextRetryAt = mSettings.getLong(STATUS_REPORT_NEXT_RETRY_KEY + "_" + mResourceName, 0);
+        return Math.max(0, nextRetryAt - CodePushPlatform.getClock().currentTimeMillis());
+    }
+
+    private void recordStatusReportFailure() {
+        int retryCount = mSettings.getInt(STATUS_REPORT_RETRY_COUNT_KEY + "_" + mResourceName, 0) + 1;
+        long delayMs = Math.min(CodePushConstants.STATUS_REPORT_MAX_RETRY_DELAY_MS,
+                CodePushConstants.STATUS_REPORT_BASE_RETRY_DELAY_MS << Math.min(retryCount - 1, 20));
+        // Randomize the second half of the delay so that devices that went offline together do not retry together.
+        delayMs = delayMs / 2 + (long) (Math.random() * (delayMs / 2));
+        mSettings.edit()
+                .putInt(STATUS_REPORT_RETRY_COUNT_KEY + "_" + mResourceName, retryCount)
+                .putLong(STATUS_REPORT_NEXT_RETRY_KEY + "_" + mResourceName, CodePushPlatform.getClock().currentTimeMillis() + delayMs)
+                .commit();
+    }
+
     private String getPreviousStatusReportIdentifier() {
         return mSettings.getString(LAST_DEPLOYMENT_REPORT_KEY, null);
     }
@@ -0,0 +1,215 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Performs update check requests with an on-disk response cache keyed by server endpoint, deployment key, app
+ * version and current package hash.
+ *
+ * A cached response younger than the TTL is returned without touching the network, which collapses bursts
+ * of checks. Older responses are revalidated with If-None-Match / If-Modified-Since, so an unchanged
+ * release costs a 304 instead of a full response.
+ */
+public class CodePushUpdateCheckClient {
+
+    public static class Response {
+        public final int statusCode;
+        public final String body;
+
+        public Response(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+
+    private static final String BODY_KEY = "body";
+    private static final String ETAG_KEY = "etag";
+    private static final String LAST_MODIFIED_KEY = "lastModified";
+    private static final String STORED_AT_KEY = "storedAt";
+
+    private final String mCacheDirectoryPath;
+    private final long mTtlMs;
+    private final CodePushHttpTransport mHttpTransport;
+
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mFreshHitCount = new AtomicLong();
+    private final AtomicLong mNotModifiedCount = new AtomicLong();
+    private final AtomicLong mSavedBytes = new AtomicLong();
+    private final AtomicLong mReceivedBytes = new AtomicLong();
+
+    public CodePushUpdateCheckClient(String cacheDirectoryPath, long ttlMs, CodePushHttpTransport httpTransport) {
+        mCacheDirectoryPath = cacheDirectoryPath;
+        mTtlMs = ttlMs;
+        mHttpTransport = httpTransport;
+    }
+
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        mRequestCount.incrementAndGet();
+        File cacheFile = getCacheFile(url);
+        JSONObject cachedResponse = readCacheEntry(cacheFile);
+        if (cachedResponse != null) {
+            long age = CodePushPlatform.getClock().currentTimeMillis() - cachedResponse.optLong(STORED_AT_KEY, 0);
+            if (age >= 0 && age < mTtlMs) {
+                String body = cachedResponse.optString(BODY_KEY, null);
+                mFreshHitCount.incrementAndGet();
+                mSavedBytes.addAndGet(getByteCount(body));
+                return new Response(HttpURLConnection.HTTP_OK, body);
+            }
+        }
+
+        CodePushHttpRequest request = new CodePushHttpRequest(url).setHeaders(headers);
+        if (cachedResponse != null) {
+            String etag = cachedResponse.optString(ETAG_KEY, null);
+            String lastModified = cachedResponse.optString(LAST_MODIFIED_KEY, null);
+            if (etag != null) request.setHeader("If-None-Match", etag);
+            if (lastModified != null) request.setHeader("If-Modified-Since", lastModified);
+        }
+
+        CodePushHttpResponse response = null;
+        try {
+            response = mHttpTransport.execute(request);
+            int statusCode = response.getStatusCode();
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && cachedResponse != null) {
+                String body = cachedResponse.optString(BODY_KEY, null);
+                mNotModifiedCount.incrementAndGet();
+                mSavedBytes.addAndGet(getByteCount(body));
+                CodePushUtils.setJSONValueForKey(cachedResponse, STORED_AT_KEY, CodePushPlatform.getClock().currentTimeMillis());
+                writeCacheEntry(cacheFile, cachedResponse);
+                return new Response(HttpURLConnection.HTTP_OK, body);
+            }
+
+            String body = CodePushUtils.getStringFromInputStream(response.getBody());
+            mReceivedBytes.addAndGet(getByteCount(body));
+            if (statusCode == HttpURLConnection.HTTP_OK) {
+                JSONObject cacheEntry = new JSONObject();
+                CodePushUtils.setJSONValueForKey(cacheEntry, BODY_KEY, body);
+                CodePushUtils.setJSONValueForKey(cacheEntry, ETAG_KEY, response.getHeader("ETag"));
+                CodePushUtils.setJSONValueForKey(cacheEntry, LAST_MODIFIED_KEY, response.getHeader("Last-Modified"));
+                CodePushUtils.setJSONValueForKey(cacheEntry, STORED_AT_KEY, CodePushPlatform.getClock().currentTimeMillis());
+                writeCacheEntry(cacheFile, cacheEntry);
+            }
+
+            return new Response(statusCode, body);
+        } catch (MalformedURLException e) {
+            throw new CodePushMalformedDataException(url, e);
+        } finally {
+            if (response != null) response.close();
+        }
+    }
+
+    /**
+     * Returns request count, hit counts, hit rate and bytes saved by the cache since this client was created.
+     */
+    public JSONObject getMetrics() {
+        long requestCount = mRequestCount.get();
+        long hitCount = mFreshHitCount.get() + mNotModifiedCount.get();
+        JSONObject metrics = new JSONObject();
+        CodePushUtils.setJSONValueForKey(metrics, "requestCount", requestCount);
+        CodePushUtils.setJSONValueForKey(metrics, "freshHitCount", mFreshHitCount.get());
+        CodePushUtils.setJSONValueForKey(metrics, "notModifiedCount", mNotModifiedCount.get());
+        CodePushUtils.setJSONValueForKey(metrics, "hitRate", requestCount == 0 ? 0.0 : (double) hitCount / requestCount);
+        CodePushUtils.setJSONValueForKey(metrics, "savedBytes", mSavedBytes.get());
+        CodePushUtils.setJSONValueForKey(metrics, "receivedBytes", mReceivedBytes.get());
+        return metrics;
+    }
+
+    public void clear() {
+        FileUtils.deleteDirectoryAtPath(mCacheDirectoryPath);
+    }
+
+    // Responses depend on the server endpoint, the deployment, the binary and the installed package, other
+    // parameters such as the client id do not change the answer.
+    static String getCacheKey(String url) {
+        URL parsedUrl;
+        try {
+            parsedUrl = new URL(url);
+        } catch (MalformedURLException e) {
+            throw new CodePushMalformedDataException(url, e);
+        }
+        String query = parsedUrl.getQuery();
+
+        String deploymentKey = null;
+        String appVersion = null;
+        String packageHash = null;
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separatorIndex = parameter.indexOf('=');
+                if (separatorIndex < 0) {
+                    continue;
+                }
+
+                String name = parameter.substring(0, separatorIndex);
+                String value = decode(parameter.substring(separatorIndex + 1));
+                if ("deployment_key".equals(name) || "deploymentKey".equals(name)) {
+                    deploymentKey = value;
+                } else if ("app_version".equals(name) || "appVersion".equals(name)) {
+                    appVersion = value;
+                } else if ("package_hash".equals(name) || "packageHash".equals(name)) {
+                    packageHash = value;
+                }
+            }
+        }
+
+        String endpoint = parsedUrl.getProtocol() + "://" + parsedUrl.getAuthority() + parsedUrl.getPath();
+        return endpoint + "\n" + deploymentKey + "\n" + appVersion + "\n" + packageHash;
+    }
+
+    private File getCacheFile(String url) {
+        String cacheKeyHash = CodePushUpdateUtils.computeHash(new ByteArrayInputStream(getCacheKey(url).getBytes()));
+        return new File(mCacheDirectoryPath, cacheKeyHash + ".json");
+    }
+
+    private JSONObject readCacheEntry(File cacheFile) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        try {
+            JSONObject cacheEntry = CodePushUtils.getJsonObjectFromFile(cacheFile.getAbsolutePath());
+            return cacheEntry.has(BODY_KEY) ? cacheEntry : null;
+        } catch (IOException | CodePushMalformedDataException e) {
+            // A broken entry is just a cache miss.
+            cacheFile.delete();
+            return null;
+        }
+    }
+
+    private void writeCacheEntry(File cacheFile, JSONObject cacheEntry) {
+        try {
+            cacheFile.getParentFile().mkdirs();
+            CodePushUtils.writeJsonToFile(cacheEntry, cacheFile.getAbsolutePath());
+        } catch (IOException e) {
+            CodePushUtils.log("Unable to cache update check response: " + e.getMessage());
+        }
+    }
+
+    // The UTF-8 size of a response body, which is what it costs on the wire without compression.
+    private static long getByteCount(String body) {
+        try {
+            return body.getBytes("UTF-8").length;
+        } catch (UnsupportedEncodingException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("UTF-8 encoding is not supported", e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("UTF-8 encoding is not supported", e);
+        }
+    }
+}
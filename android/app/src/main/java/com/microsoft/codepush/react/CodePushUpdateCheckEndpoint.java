@@ -0,0 +1,25 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+/**
+ * Answers update checks made from native code, without the JS runtime.
+ *
+ * The default implementation is {@link CodePushAcquisitionEndpoint}; a different one can be supplied
+ * to {@link CodePushUpdatePrefetcher}, e.g. to test against a local stand-in server.
+ */
+public interface CodePushUpdateCheckEndpoint {
+
+    /**
+     * Asks the update server whether there is a release applicable to the given binary and package.
+     *
+     * @param currentPackageHash the hash of the installed update, or null if the binary version is running.
+     * @param currentLabel the label of the installed update, or null if the binary version is running.
+     * @return the remote package, with the same keys the JS SDK uses ("downloadUrl", "packageHash",
+     *         "label", ...), or null if no applicable update is available.
+     */
+    JSONObject checkForUpdate(String deploymentKey, String appVersion, String currentPackageHash,
+                              String currentLabel, String clientUniqueId) throws IOException;
+}
@@ -0,0 +1,83 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+/**
+ * Checks for and downloads the latest release of a resource from native code, so that it is ready
+ * before JS boots. A downloaded package is only recorded as prefetched; it is installed as a pending
+ * update by {@link CodePush#initializeModule(String)} on the next launch, before a bundle is picked.
+ */
+public class CodePushUpdatePrefetcher {
+
+    private final CodePushUpdateManager mUpdateManager;
+    private final SettingsManager mSettingsManager;
+    private final CodePushUpdateCheckEndpoint mUpdateCheckEndpoint;
+    private final String mResourceName;
+    private final String mAppVersion;
+    private final long mBinaryModifiedTime;
+    private final String mBinaryContentsHash;
+    private final String mPublicKey;
+
+    public CodePushUpdatePrefetcher(CodePushUpdateManager updateManager, SettingsManager settingsManager,
+                                    CodePushUpdateCheckEndpoint updateCheckEndpoint, String resourceName,
+                                    String appVersion, long binaryModifiedTime, String binaryContentsHash,
+                                    String publicKey) {
+        mUpdateManager = updateManager;
+        mSettingsManager = settingsManager;
+        mUpdateCheckEndpoint = updateCheckEndpoint;
+        mResourceName = resourceName;
+        mAppVersion = appVersion;
+        mBinaryModifiedTime = binaryModifiedTime;
+        mBinaryContentsHash = binaryContentsHash;
+        mPublicKey = publicKey;
+    }
+
+    /**
+     * Downloads and verifies the latest release, if there is one that is not installed or prefetched yet.
+     *
+     * @return true if a new package has been prefetched.
+     */
+    public boolean prefetch(String deploymentKey, String clientUniqueId) throws IOException {
+        // Only report the installed update if it targets the running binary,
+        // otherwise ask for any release of the current app version.
+        JSONObject currentPackage = mUpdateManager.getCurrentPackage();
+        String currentPackageHash = null;
+        String currentLabel = null;
+        if (currentPackage != null && mAppVersion.equals(currentPackage.optString("appVersion", null))) {
+            currentPackageHash = currentPackage.optString(CodePushConstants.PACKAGE_HASH_KEY, null);
+            currentLabel = currentPackage.optString("label", null);
+        }
+
+        JSONObject update = mUpdateCheckEndpoint.checkForUpdate(deploymentKey, mAppVersion, currentPackageHash, currentLabel, clientUniqueId);
+        String packageHash = update == null ? null : update.optString(CodePushConstants.PACKAGE_HASH_KEY, null);
+        if (packageHash == null
+                || packageHash.equals(currentPackageHash)
+                || currentPackageHash == null && packageHash.equals(mBinaryContentsHash)) {
+            CodePushUtils.log("Prefetch found no new update.", mResourceName);
+            return false;
+        }
+
+        if (mSettingsManager.isFailedHash(packageHash) || mSettingsManager.isPendingUpdate(mResourceName, packageHash)) {
+            return false;
+        }
+
+        if (packageHash.equals(mSettingsManager.getPrefetchedUpdateHash(mResourceName)) && mUpdateManager.getPackage(packageHash) != null) {
+            // Already downloaded by an earlier run.
+            return false;
+        }
+
+        CodePushUtils.setJSONValueForKey(update, CodePushConstants.BINARY_MODIFIED_TIME_KEY, "" + mBinaryModifiedTime);
+        CodePushUtils.log("Prefetching update " + packageHash, mResourceName);
+        try {
+            mUpdateManager.downloadPackage(update, CodePush.getBundleName(mResourceName), new DownloadProgress(), mPublicKey);
+        } catch (CodePushInvalidUpdateException e) {
+            mSettingsManager.saveFailedUpdate(update);
+            throw e;
+        }
+
+        mSettingsManager.savePrefetchedUpdate(mResourceName, packageHash);
+        return true;
+    }
+}
@@ -1,5 +0,0 @@
-package com.microsoft.codepush.react;
-
-interface DownloadProgressCallback {
-    void call(DownloadProgress downloadProgress);
-}
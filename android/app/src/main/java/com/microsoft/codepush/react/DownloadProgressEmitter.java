@@ -0,0 +1,133 @@
+package com.microsoft.codepush.react;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.modules.core.ChoreographerCompat;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.modules.core.ReactChoreographer;
+
+/**
+ * Samples a {@link DownloadProgress} once per frame on the UI thread and emits
+ * {@link CodePushConstants#DOWNLOAD_PROGRESS_EVENT_NAME} events for the download and
+ * {@link CodePushConstants#UPDATE_PHASE_PROGRESS_EVENT_NAME} events for the extract and verify phases to JS,
+ * according to the configured policy. Download progress callbacks therefore see the download complete once,
+ * and are not called again while the package is extracted and verified.
+ *
+ * An event is emitted when the progress changed and every configured threshold is met: at least
+ * {@code minIntervalMs} since the previous event and at least {@code minPercentStep} percent of the current
+ * phase since the previous event. Phase switches and phase completion are always emitted.
+ */
+class DownloadProgressEmitter extends ChoreographerCompat.FrameCallback {
+
+    private final ReactApplicationContext mReactContext;
+    private final DownloadProgress mDownloadProgress;
+    private final long mMinIntervalNanos;
+    private final double mMinPercentStep;
+
+    // Reused for every sample, guarded by "this".
+    private final DownloadProgress.Snapshot mSnapshot = new DownloadProgress.Snapshot();
+    private DownloadProgress.Phase mLastEmittedPhase = null;
+    private long mLastEmittedPhaseCompleted = -1;
+    private long mLastEmittedAtNanos = 0;
+    private long mLastEmittedReceivedBytes = -1;
+
+    private volatile boolean mIsFinished = false;
+
+    public DownloadProgressEmitter(ReactApplicationContext reactContext, DownloadProgress downloadProgress,
+                                   long minIntervalMs, double minPercentStep) {
+        mReactContext = reactContext;
+        mDownloadProgress = downloadProgress;
+        mMinIntervalNanos = minIntervalMs * 1000000L;
+        mMinPercentStep = minPercentStep;
+    }
+
+    public void start() {
+        mReactContext.runOnUiQueueThread(new Runnable() {
+            @Override
+            public void run() {
+                ReactChoreographer.getInstance().postFrameCallback(ReactChoreographer.CallbackType.TIMERS_EVENTS, DownloadProgressEmitter.this);
+            }
+        });
+    }
+
+    /**
+     * Stops sampling and synchronously emits the final state if it has not been reported yet.
+     */
+    public void finish() {
+        mIsFinished = true;
+        emitIfNeeded(true);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mIsFinished) {
+            return;
+        }
+
+        emitIfNeeded(false);
+        ReactChoreographer.getInstance().postFrameCallback(ReactChoreographer.CallbackType.TIMERS_EVENTS, this);
+    }
+
+    private synchronized void emitIfNeeded(boolean force) {
+        mDownloadProgress.sample(mSnapshot);
+        boolean isSamePhase = mSnapshot.phase == mLastEmittedPhase;
+        if (isSamePhase && mSnapshot.phaseCompleted == mLastEmittedPhaseCompleted) {
+            return;
+        }
+
+        long now = CodePushPlatform.getClock().nanoTime();
+        if (!force && isSamePhase && !mSnapshot.isPhaseCompleted()) {
+            if (now - mLastEmittedAtNanos < mMinIntervalNanos) {
+                return;
+            }
+
+            if (mMinPercentStep > 0 && mSnapshot.phaseTotal > 0 &&
+                    (mSnapshot.phaseCompleted - mLastEmittedPhaseCompleted) * 100.0 / mSnapshot.phaseTotal < mMinPercentStep) {
+                return;
+            }
+        }
+
+        mLastEmittedPhase = mSnapshot.phase;
+        mLastEmittedPhaseCompleted = mSnapshot.phaseCompleted;
+        mLastEmittedAtNanos = now;
+        if (mSnapshot.phase == DownloadProgress.Phase.DOWNLOAD) {
+            emitDownloadProgress(mSnapshot);
+            return;
+        }
+
+        // The last samples of the download may fall between two frames, report its completion before moving on.
+        if (mSnapshot.receivedBytes != mLastEmittedReceivedBytes) {
+            emitDownloadProgress(mSnapshot);
+        }
+        WritableMap map = new WritableNativeMap();
+        putPhaseProgress(map, mSnapshot.phase, mSnapshot.phaseTotal, mSnapshot.phaseCompleted);
+        emit(CodePushConstants.UPDATE_PHASE_PROGRESS_EVENT_NAME, map);
+    }
+
+    private void emitDownloadProgress(DownloadProgress.Snapshot snapshot) {
+        mLastEmittedReceivedBytes = snapshot.receivedBytes;
+        WritableMap map = new WritableNativeMap();
+        if (snapshot.totalBytes < Integer.MAX_VALUE) {
+            map.putInt("totalBytes", (int) snapshot.totalBytes);
+            map.putInt("receivedBytes", (int) snapshot.receivedBytes);
+        } else {
+            map.putDouble("totalBytes", snapshot.totalBytes);
+            map.putDouble("receivedBytes", snapshot.receivedBytes);
+        }
+        putPhaseProgress(map, DownloadProgress.Phase.DOWNLOAD, snapshot.totalBytes, snapshot.receivedBytes);
+        emit(CodePushConstants.DOWNLOAD_PROGRESS_EVENT_NAME, map);
+    }
+
+    private void emit(String eventName, WritableMap map) {
+        mReactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, map);
+    }
+
+    private static void putPhaseProgress(WritableMap map, DownloadProgress.Phase phase, long phaseTotal, long phaseCompleted) {
+        map.putString("phase", phase.getName());
+        map.putDouble("phaseTotal", phaseTotal);
+        map.putDouble("phaseCompleted", phaseCompleted);
+    }
+}
@@ -1,7 +1,61 @@
 package com.microsoft.codepush.react;
 
+import java.util.concurrent.CountDownLatch;
+
 public class ModuleInstance {
     public CodePushUpdateManager updateManager;
     public CodePushTelemetryManager telemetryManager;
     public SettingsManager settingsManager;
+
+    // Released once the background part of CodePush.initializeModule has run, see awaitReady().
+    private final CountDownLatch mReady = new CountDownLatch(1);
+    private volatile Exception mInitializationFailure;
+
+    // Whether this launch runs an update of the resource for the first time.
+    private volatile boolean mDidUpdate = false;
+
+    void setReady() {
+        mReady.countDown();
+    }
+
+    // Must be called before setReady(), so that every caller of awaitReady() sees it.
+    void setFailed(Exception initializationFailure) {
+        mInitializationFailure = initializationFailure;
+    }
+
+    boolean didUpdate() {
+        return mDidUpdate;
+    }
+
+    void setDidUpdate(boolean didUpdate) {
+        mDidUpdate = didUpdate;
+    }
+
+    /**
+     * Returns why resolving the pending update state failed, or null if it succeeded.
+     */
+    Exception getInitializationFailure() {
+        return mInitializationFailure;
+    }
+
+    /**
+     * Blocks until the pending update state of the resource has been resolved, e.g. a crashed update rolled back.
+     * A failed resolution does not throw here; the resource then runs its binary bundle, see
+     * {@link #getInitializationFailure()}.
+     */
+    public void awaitReady() {
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                mReady.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package com.microsoft.codepush.react;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+public class SharedPreferencesKeyValueStore implements CodePushKeyValueStore {
+
+    private SharedPreferences mPreferences;
+
+    public SharedPreferencesKeyValueStore(Context context, String name) {
+        mPreferences = context.getSharedPreferences(name, 0);
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        return mPreferences.getString(key, defaultValue);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        mPreferences.edit().putString(key, value).commit();
+    }
+
+    @Override
+    public void remove(String key) {
+        mPreferences.edit().remove(key).commit();
+    }
+}
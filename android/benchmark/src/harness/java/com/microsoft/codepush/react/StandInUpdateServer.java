@@ -0,0 +1,215 @@
+package com.microsoft.codepush.react;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An HTTP server on the loopback interface that serves package files the way a slow or flaky CDN would.
+ *
+ * Every path is served according to its {@link Behavior}: latency before the response, a bandwidth limit per
+ * connection, chunked instead of fixed length encoding, dropping the connection part way through the body and
+ * whether byte ranges are supported.
+ */
+class StandInUpdateServer implements Closeable {
+
+    static class Behavior {
+        long latencyMs = 0;
+        // 0 means unlimited.
+        long bytesPerSecond = 0;
+        boolean isChunked = false;
+        boolean isRangeSupported = true;
+        // The first dropCount responses close the connection after dropAfterBytes body bytes.
+        int dropCount = 0;
+        long dropAfterBytes = 0;
+
+        Behavior setLatency(long latencyMs) {
+            this.latencyMs = latencyMs;
+            return this;
+        }
+
+        Behavior setBytesPerSecond(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        Behavior setChunked(boolean isChunked) {
+            this.isChunked = isChunked;
+            return this;
+        }
+
+        Behavior setRangeSupported(boolean isRangeSupported) {
+            this.isRangeSupported = isRangeSupported;
+            return this;
+        }
+
+        Behavior setDrops(int dropCount, long dropAfterBytes) {
+            this.dropCount = dropCount;
+            this.dropAfterBytes = dropAfterBytes;
+            return this;
+        }
+    }
+
+    private static class Route {
+        final File file;
+        final Behavior behavior;
+        final AtomicInteger remainingDrops;
+
+        Route(File file, Behavior behavior) {
+            this.file = file;
+            this.behavior = behavior;
+            this.remainingDrops = new AtomicInteger(behavior.dropCount);
+        }
+    }
+
+    private static final int WRITE_CHUNK_SIZE = 16 * 1024;
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final Map<String, Route> mRoutes = new ConcurrentHashMap<>();
+    private final AtomicLong mServedBytes = new AtomicLong();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    StandInUpdateServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        mServer.start();
+    }
+
+    void setFile(String path, File file, Behavior behavior) {
+        mRoutes.put(path, new Route(file, behavior));
+    }
+
+    String getUrl(String path) {
+        InetSocketAddress address = mServer.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + path;
+    }
+
+    long getServedBytes() {
+        return mServedBytes.get();
+    }
+
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    void resetCounters() {
+        mServedBytes.set(0);
+        mRequestCount.set(0);
+    }
+
+    @Override
+    public void close() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        mRequestCount.incrementAndGet();
+        Route route = mRoutes.get(exchange.getRequestURI().getPath());
+        if (route == null) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+            exchange.close();
+            return;
+        }
+
+        Behavior behavior = route.behavior;
+        sleep(behavior.latencyMs);
+
+        long fileLength = route.file.length();
+        long start = 0;
+        long end = fileLength - 1;
+        int statusCode = HttpURLConnection.HTTP_OK;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (behavior.isRangeSupported) {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            if (range != null && range.startsWith("bytes=")) {
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                start = Long.parseLong(bounds[0]);
+                if (!bounds[1].isEmpty()) {
+                    end = Math.min(end, Long.parseLong(bounds[1]));
+                }
+                if (start > end) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + fileLength);
+                    exchange.sendResponseHeaders(416, -1);
+                    exchange.close();
+                    return;
+                }
+                statusCode = HttpURLConnection.HTTP_PARTIAL;
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
+            }
+        }
+
+        long length = end - start + 1;
+        boolean shouldDrop = behavior.dropAfterBytes < length && route.remainingDrops.getAndDecrement() > 0;
+        exchange.sendResponseHeaders(statusCode, behavior.isChunked ? 0 : length);
+
+        OutputStream body = exchange.getResponseBody();
+        RandomAccessFile file = new RandomAccessFile(route.file, "r");
+        try {
+            file.seek(start);
+            byte[] buffer = new byte[WRITE_CHUNK_SIZE];
+            long startedAt = System.nanoTime();
+            long sent = 0;
+            while (sent < length) {
+                int chunkSize = (int) Math.min(buffer.length, length - sent);
+                if (shouldDrop) {
+                    chunkSize = (int) Math.min(chunkSize, behavior.dropAfterBytes - sent);
+                    if (chunkSize <= 0) {
+                        // Throwing from the handler makes the server close the connection without
+                        // completing the response, which the client sees as a dropped connection.
+                        throw new IOException("Dropping connection after " + sent + " bytes");
+                    }
+                }
+
+                file.readFully(buffer, 0, chunkSize);
+                body.write(buffer, 0, chunkSize);
+                body.flush();
+                sent += chunkSize;
+                mServedBytes.addAndGet(chunkSize);
+
+                if (behavior.bytesPerSecond > 0) {
+                    long dueAtNanos = startedAt + sent * 1000000000L / behavior.bytesPerSecond;
+                    sleep((dueAtNanos - System.nanoTime()) / 1000000);
+                }
+            }
+        } finally {
+            file.close();
+        }
+
+        exchange.close();
+    }
+
+    private static void sleep(long durationMs) {
+        if (durationMs <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(durationMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
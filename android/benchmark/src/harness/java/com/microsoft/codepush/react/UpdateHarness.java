@@ -0,0 +1,250 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the complete download, install and bundle lookup flow of {@link CodePushUpdateManager} against a
+ * {@link StandInUpdateServer} for a set of network scenarios, and reports wall time, bytes written to disk
+ * and peak heap usage for each of them.
+ *
+ * Usage: {@code UpdateHarness [resultsFile] [repetitions]}, see the runHarness task of this module.
+ */
+public class UpdateHarness {
+
+    private static final String RESOURCE_NAME = "harness";
+    private static final String BUNDLE_FILE_NAME = CodePushConstants.DEFAULT_JS_BUNDLE_NAME;
+    private static final String PACKAGE_PATH = "/packages/full.zip";
+    private static final String DIFF_PATH = "/packages/diff.zip";
+    private static final String CURRENT_PATH = "/packages/current.zip";
+    private static final String MIRROR_PREFIX = "/mirror";
+
+    private static final int FILE_COUNT = 500;
+    private static final int MEAN_FILE_SIZE = 32 * 1024;
+    private static final double DIFF_RATIO = 0.1;
+
+    private static class Scenario {
+        final String name;
+        final boolean isDiff;
+        final StandInUpdateServer.Behavior behavior;
+        StandInUpdateServer.Behavior mirrorBehavior;
+        long segmentedDownloadThreshold = 0;
+        int downloadSegmentCount = CodePushConstants.DEFAULT_DOWNLOAD_SEGMENT_COUNT;
+
+        Scenario(String name, boolean isDiff, StandInUpdateServer.Behavior behavior) {
+            this.name = name;
+            this.isDiff = isDiff;
+            this.behavior = behavior;
+        }
+
+        Scenario setMirror(StandInUpdateServer.Behavior mirrorBehavior) {
+            this.mirrorBehavior = mirrorBehavior;
+            return this;
+        }
+
+        Scenario setSegmentedDownload(long segmentedDownloadThreshold, int downloadSegmentCount) {
+            this.segmentedDownloadThreshold = segmentedDownloadThreshold;
+            this.downloadSegmentCount = downloadSegmentCount;
+            return this;
+        }
+    }
+
+    private static class Result {
+        final List<Long> wallTimesMs = new ArrayList<>();
+        long bytesWritten;
+        long servedBytes;
+        int requestCount;
+        long peakHeapBytes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File resultsFile = new File(args.length > 0 ? args[0] : "build/results/harness/results.json");
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        CodePushUtils.setLogLevel(CodePushLogLevel.WARN);
+        File root = Files.createTempDirectory("codepush-harness").toFile();
+        SyntheticPackage syntheticPackage = SyntheticPackage.generate(new File(root, "package"), FILE_COUNT, MEAN_FILE_SIZE,
+                SyntheticPackage.SizeDistribution.EXPONENTIAL, DIFF_RATIO, 1);
+        File currentZip = new File(root, "current.zip");
+        SyntheticPackage.zipFolder(syntheticPackage.currentPackageFolder, currentZip);
+        String currentPackageHash = SyntheticPackage.computeFolderHash(syntheticPackage.currentPackageFolder);
+        long halfPackage = syntheticPackage.fullZip.length() / 2;
+
+        List<Scenario> scenarios = Arrays.asList(
+                new Scenario("full, unthrottled", false, new StandInUpdateServer.Behavior()),
+                new Scenario("full, 4 MB/s, 50 ms latency", false, new StandInUpdateServer.Behavior()
+                        .setBytesPerSecond(4 * 1024 * 1024).setLatency(50)),
+                new Scenario("full, 1 MB/s, 300 ms latency", false, new StandInUpdateServer.Behavior()
+                        .setBytesPerSecond(1024 * 1024).setLatency(300)),
+                new Scenario("full, chunked", false, new StandInUpdateServer.Behavior()
+                        .setChunked(true)),
+                new Scenario("full, dropped at 50%, resumed on mirror", false, new StandInUpdateServer.Behavior()
+                        .setBytesPerSecond(4 * 1024 * 1024).setDrops(Integer.MAX_VALUE, halfPackage))
+                        .setMirror(new StandInUpdateServer.Behavior().setBytesPerSecond(4 * 1024 * 1024).setLatency(200)),
+                new Scenario("full, 4 segments, 1 MB/s per connection", false, new StandInUpdateServer.Behavior()
+                        .setBytesPerSecond(1024 * 1024).setLatency(50))
+                        .setSegmentedDownload(1024 * 1024, 4),
+                new Scenario("full, 4 segments requested, no range support", false, new StandInUpdateServer.Behavior()
+                        .setBytesPerSecond(1024 * 1024).setLatency(50).setRangeSupported(false))
+                        .setSegmentedDownload(1024 * 1024, 4),
+                new Scenario("diff, 1 MB/s, 300 ms latency", true, new StandInUpdateServer.Behavior()
+                        .setBytesPerSecond(1024 * 1024).setLatency(300)));
+
+        JSONArray results = new JSONArray();
+        int failedScenarioCount = 0;
+        StandInUpdateServer server = new StandInUpdateServer();
+        try {
+            server.setFile(CURRENT_PATH, currentZip, new StandInUpdateServer.Behavior());
+            for (Scenario scenario : scenarios) {
+                File packageFile = scenario.isDiff ? syntheticPackage.diffZip : syntheticPackage.fullZip;
+                String packagePath = scenario.isDiff ? DIFF_PATH : PACKAGE_PATH;
+                server.setFile(packagePath, packageFile, scenario.behavior);
+                if (scenario.mirrorBehavior != null) {
+                    server.setFile(MIRROR_PREFIX + packagePath, packageFile, scenario.mirrorBehavior);
+                }
+                CodePush.setSegmentedDownload(scenario.segmentedDownloadThreshold, scenario.downloadSegmentCount);
+
+                try {
+                    Result result = new Result();
+                    for (int i = 0; i < repetitions; i++) {
+                        File documentsDirectory = new File(root, "documents");
+                        FileUtils.deleteDirectoryAtPath(documentsDirectory.getAbsolutePath());
+                        CodePushUpdateManager updateManager = new CodePushUpdateManager(documentsDirectory.getAbsolutePath(), RESOURCE_NAME,
+                                new CodePushOkHttpTransport(CodePushConstants.DEFAULT_CONNECT_TIMEOUT_MS, CodePushConstants.DEFAULT_READ_TIMEOUT_MS, null));
+                        if (scenario.isDiff) {
+                            // The diff applies on top of the previous release, which is installed outside of the measurement.
+                            runUpdate(updateManager, server, currentPackageHash, CURRENT_PATH, false);
+                        }
+
+                        System.gc();
+                        resetPeakHeapUsage();
+                        CodePushPerformanceMetrics.reset();
+                        server.resetCounters();
+                        long startedAt = System.nanoTime();
+                        runUpdate(updateManager, server, syntheticPackage.newPackageHash, packagePath, scenario.mirrorBehavior != null);
+                        result.wallTimesMs.add((System.nanoTime() - startedAt) / 1000000);
+                        result.peakHeapBytes = Math.max(result.peakHeapBytes, getPeakHeapUsage());
+                        result.bytesWritten = getBytesWritten();
+                        result.servedBytes = server.getServedBytes();
+                        result.requestCount = server.getRequestCount();
+                    }
+                    results.put(report(scenario, result, packageFile.length()));
+                } catch (Exception e) {
+                    // Report the failure and keep going, so a single broken scenario does not hide the others.
+                    failedScenarioCount++;
+                    results.put(reportFailure(scenario, e));
+                }
+            }
+        } finally {
+            server.close();
+            CodePush.setSegmentedDownload(0, CodePushConstants.DEFAULT_DOWNLOAD_SEGMENT_COUNT);
+            FileUtils.deleteDirectoryAtPath(root.getAbsolutePath());
+        }
+
+        JSONObject report = new JSONObject();
+        CodePushUtils.setJSONValueForKey(report, "fileCount", FILE_COUNT);
+        CodePushUtils.setJSONValueForKey(report, "meanFileSize", MEAN_FILE_SIZE);
+        CodePushUtils.setJSONValueForKey(report, "diffRatio", DIFF_RATIO);
+        CodePushUtils.setJSONValueForKey(report, "repetitions", repetitions);
+        CodePushUtils.setJSONValueForKey(report, "failedScenarioCount", failedScenarioCount);
+        CodePushUtils.setJSONValueForKey(report, "scenarios", results);
+        resultsFile.getAbsoluteFile().getParentFile().mkdirs();
+        CodePushUtils.writeJsonToFile(report, resultsFile.getAbsolutePath());
+        System.out.println("Results written to " + resultsFile.getAbsolutePath()
+                + (failedScenarioCount > 0 ? ", " + failedScenarioCount + " scenario(s) failed" : ""));
+        // OkHttp and the download executors keep non-daemon threads alive.
+        System.exit(0);
+    }
+
+    private static void runUpdate(CodePushUpdateManager updateManager, StandInUpdateServer server, String packageHash,
+                                  String packagePath, boolean hasMirror) throws IOException {
+        JSONObject updatePackage = SyntheticPackage.createMetadata(packageHash, 0);
+        CodePushUtils.setJSONValueForKey(updatePackage, CodePushConstants.DOWNLOAD_URL_KEY, server.getUrl(packagePath));
+        if (hasMirror) {
+            JSONArray mirrorUrls = new JSONArray();
+            mirrorUrls.put(server.getUrl(MIRROR_PREFIX + packagePath));
+            CodePushUtils.setJSONValueForKey(updatePackage, CodePushConstants.DOWNLOAD_MIRROR_URLS_KEY, mirrorUrls);
+        }
+
+        updateManager.downloadPackage(updatePackage, BUNDLE_FILE_NAME, new DownloadProgress(), null);
+        updateManager.installPackage(packageHash, false);
+        String bundlePath = updateManager.getCurrentPackageBundlePath(BUNDLE_FILE_NAME);
+        if (bundlePath == null || !new File(bundlePath).exists()) {
+            throw new IllegalStateException("Installed package " + packageHash + " has no bundle");
+        }
+    }
+
+    // Everything the update engine writes: the download, the extracted files, copies and metadata.
+    private static long getBytesWritten() {
+        JSONObject metrics = CodePushPerformanceMetrics.getSnapshot();
+        long bytesWritten = 0;
+        for (CodePushPerformanceMetrics.Metric metric : Arrays.asList(CodePushPerformanceMetrics.Metric.DOWNLOAD_BYTES,
+                CodePushPerformanceMetrics.Metric.UNZIP_BYTES, CodePushPerformanceMetrics.Metric.FILE_COPY_BYTES,
+                CodePushPerformanceMetrics.Metric.FILE_WRITE_BYTES)) {
+            JSONObject metricSnapshot = metrics.optJSONObject(metric.getName());
+            if (metricSnapshot != null) {
+                bytesWritten += metricSnapshot.optLong("sum", 0);
+            }
+        }
+        return bytesWritten;
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                memoryPool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long getPeakHeapUsage() {
+        long peakHeapUsage = 0;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                peakHeapUsage += memoryPool.getPeakUsage().getUsed();
+            }
+        }
+        return peakHeapUsage;
+    }
+
+    private static JSONObject report(Scenario scenario, Result result, long packageBytes) {
+        List<Long> wallTimesMs = new ArrayList<>(result.wallTimesMs);
+        Collections.sort(wallTimesMs);
+        long medianWallTimeMs = wallTimesMs.get(wallTimesMs.size() / 2);
+        System.out.println(String.format("%-45s median %6d ms  min %6d ms  written %6d KB  served %6d KB  requests %3d  peak heap %5d MB",
+                scenario.name, medianWallTimeMs, wallTimesMs.get(0), result.bytesWritten / 1024, result.servedBytes / 1024,
+                result.requestCount, result.peakHeapBytes / (1024 * 1024)));
+
+        JSONObject scenarioResult = new JSONObject();
+        CodePushUtils.setJSONValueForKey(scenarioResult, "name", scenario.name);
+        CodePushUtils.setJSONValueForKey(scenarioResult, "packageBytes", packageBytes);
+        CodePushUtils.setJSONValueForKey(scenarioResult, "medianWallTimeMs", medianWallTimeMs);
+        CodePushUtils.setJSONValueForKey(scenarioResult, "minWallTimeMs", wallTimesMs.get(0));
+        CodePushUtils.setJSONValueForKey(scenarioResult, "bytesWritten", result.bytesWritten);
+        CodePushUtils.setJSONValueForKey(scenarioResult, "servedBytes", result.servedBytes);
+        CodePushUtils.setJSONValueForKey(scenarioResult, "requestCount", result.requestCount);
+        CodePushUtils.setJSONValueForKey(scenarioResult, "peakHeapBytes", result.peakHeapBytes);
+        return scenarioResult;
+    }
+
+    private static JSONObject reportFailure(Scenario scenario, Exception e) {
+        System.out.println(String.format("%-45s FAILED: %s", scenario.name, e));
+        e.printStackTrace();
+
+        JSONObject scenarioResult = new JSONObject();
+        CodePushUtils.setJSONValueForKey(scenarioResult, "name", scenario.name);
+        CodePushUtils.setJSONValueForKey(scenarioResult, "error", e.toString());
+        return scenarioResult;
+    }
+}
@@ -0,0 +1,69 @@
+package com.microsoft.codepush.react;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applying a diff update on top of the installed package, with the diff folder laid out as it is right after
+ * extracting the downloaded diff.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DiffMergeBenchmark {
+
+    @Param({"100", "1000"})
+    public int fileCount;
+
+    @Param({"16384"})
+    public int meanFileSize;
+
+    @Param({"EXPONENTIAL"})
+    public SyntheticPackage.SizeDistribution sizeDistribution;
+
+    @Param({"0.01", "0.1", "0.5"})
+    public double diffRatio;
+
+    private File mRoot;
+    private SyntheticPackage mPackage;
+    private File mNewPackageFolder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CodePushUtils.setLogLevel(CodePushLogLevel.NONE);
+        mRoot = Files.createTempDirectory("codepush-benchmark").toFile();
+        mPackage = SyntheticPackage.generate(new File(mRoot, "package"), fileCount, meanFileSize, sizeDistribution, diffRatio, 1);
+        mNewPackageFolder = new File(mRoot, "merged");
+    }
+
+    @Setup(Level.Invocation)
+    public void extractDiff() throws IOException {
+        FileUtils.deleteDirectoryAtPath(mNewPackageFolder.getAbsolutePath());
+        FileUtils.copyDirectoryContents(mPackage.diffFolder.getAbsolutePath(), mNewPackageFolder.getAbsolutePath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteDirectoryAtPath(mRoot.getAbsolutePath());
+    }
+
+    @Benchmark
+    public void copyNecessaryFilesFromCurrentPackage() throws IOException {
+        String diffManifestFilePath = CodePushUtils.appendPathComponent(mNewPackageFolder.getAbsolutePath(), CodePushConstants.DIFF_MANIFEST_FILE_NAME);
+        CodePushUpdateUtils.copyNecessaryFilesFromCurrentPackage(diffManifestFilePath,
+                mPackage.currentPackageFolder.getAbsolutePath(), mNewPackageFolder.getAbsolutePath());
+    }
+}
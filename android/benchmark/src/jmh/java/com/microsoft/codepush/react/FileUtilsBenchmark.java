@@ -0,0 +1,67 @@
+package com.microsoft.codepush.react;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting a full update package and copying a package folder, as done for every full and diff update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FileUtilsBenchmark {
+
+    @Param({"100", "1000"})
+    public int fileCount;
+
+    @Param({"4096", "65536"})
+    public int meanFileSize;
+
+    @Param({"UNIFORM", "EXPONENTIAL"})
+    public SyntheticPackage.SizeDistribution sizeDistribution;
+
+    private File mRoot;
+    private SyntheticPackage mPackage;
+    private File mDestination;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CodePushUtils.setLogLevel(CodePushLogLevel.NONE);
+        mRoot = Files.createTempDirectory("codepush-benchmark").toFile();
+        mPackage = SyntheticPackage.generate(new File(mRoot, "package"), fileCount, meanFileSize, sizeDistribution, 0, 1);
+        mDestination = new File(mRoot, "destination");
+    }
+
+    @Setup(Level.Invocation)
+    public void clearDestination() {
+        FileUtils.deleteDirectoryAtPath(mDestination.getAbsolutePath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteDirectoryAtPath(mRoot.getAbsolutePath());
+    }
+
+    @Benchmark
+    public void unzipFile() throws IOException {
+        FileUtils.unzipFile(mPackage.fullZip, mDestination.getAbsolutePath());
+    }
+
+    @Benchmark
+    public void copyDirectoryContents() throws IOException {
+        FileUtils.copyDirectoryContents(mPackage.newPackageFolder.getAbsolutePath(), mDestination.getAbsolutePath());
+    }
+}
@@ -0,0 +1,87 @@
+package com.microsoft.codepush.react;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting package metadata between bridge maps, JSON objects and files.
+ *
+ * The conversions into bridge maps create WritableNativeMaps, which need the React Native native libraries,
+ * so only the directions starting from a map (using the pure Java JavaOnlyMap) and the JSON file helpers are
+ * covered here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class JsonConversionBenchmark {
+
+    @Param({"0", "100", "1000"})
+    public int extraKeyCount;
+
+    private File mRoot;
+    private JSONObject mMetadata;
+    private JavaOnlyMap mMetadataMap;
+    private String mMetadataFilePath;
+    private String mOutputFilePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CodePushUtils.setLogLevel(CodePushLogLevel.NONE);
+        mRoot = Files.createTempDirectory("codepush-benchmark").toFile();
+        mMetadata = SyntheticPackage.createMetadata("benchmark-package", extraKeyCount);
+        mMetadataMap = new JavaOnlyMap();
+        Iterator<String> keys = mMetadata.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = mMetadata.opt(key);
+            if (value instanceof String) {
+                mMetadataMap.putString(key, (String) value);
+            } else if (value instanceof Boolean) {
+                mMetadataMap.putBoolean(key, (Boolean) value);
+            } else {
+                mMetadataMap.putDouble(key, ((Number) value).doubleValue());
+            }
+        }
+
+        mMetadataFilePath = new File(mRoot, "metadata.json").getAbsolutePath();
+        CodePushUtils.writeJsonToFile(mMetadata, mMetadataFilePath);
+        mOutputFilePath = new File(mRoot, "output.json").getAbsolutePath();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteDirectoryAtPath(mRoot.getAbsolutePath());
+    }
+
+    @Benchmark
+    public JSONObject convertReadableToJsonObject() {
+        return CodePushBridgeUtils.convertReadableToJsonObject(mMetadataMap);
+    }
+
+    @Benchmark
+    public JSONObject getJsonObjectFromFile() throws IOException {
+        return CodePushUtils.getJsonObjectFromFile(mMetadataFilePath);
+    }
+
+    @Benchmark
+    public void writeJsonToFile() throws IOException {
+        CodePushUtils.writeJsonToFile(mMetadata, mOutputFilePath);
+    }
+}
@@ -0,0 +1,48 @@
+package com.microsoft.codepush.react;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up a package hash in a growing list of failed updates, as done on every update check and install.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SettingsManagerBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int failedUpdateCount;
+
+    private SettingsManager mSettingsManager;
+    private String mLastFailedHash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CodePushUtils.setLogLevel(CodePushLogLevel.NONE);
+        mSettingsManager = new SettingsManager(new InMemoryKeyValueStore());
+        for (int i = 0; i < failedUpdateCount; i++) {
+            mLastFailedHash = "failed-package-" + i;
+            mSettingsManager.saveFailedUpdate(SyntheticPackage.createMetadata(mLastFailedHash, 0));
+        }
+    }
+
+    @Benchmark
+    public boolean isFailedHashMiss() {
+        return mSettingsManager.isFailedHash("unknown-package");
+    }
+
+    @Benchmark
+    public boolean isFailedHashLastEntry() {
+        return mSettingsManager.isFailedHash(mLastFailedHash);
+    }
+}
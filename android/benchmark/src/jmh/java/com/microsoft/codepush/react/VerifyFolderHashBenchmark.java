@@ -0,0 +1,65 @@
+package com.microsoft.codepush.react;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing every file of a package and the resulting manifest, as done after every download, and the same
+ * for a diff update that only changes the bundle, with the stored hashes of the other files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class VerifyFolderHashBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int fileCount;
+
+    @Param({"4096", "65536"})
+    public int meanFileSize;
+
+    @Param({"UNIFORM", "EXPONENTIAL"})
+    public SyntheticPackage.SizeDistribution sizeDistribution;
+
+    private File mRoot;
+    private SyntheticPackage mPackage;
+    private Map<String, String> mCarriedOverFileHashes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CodePushUtils.setLogLevel(CodePushLogLevel.NONE);
+        mRoot = Files.createTempDirectory("codepush-benchmark").toFile();
+        mPackage = SyntheticPackage.generate(new File(mRoot, "package"), fileCount, meanFileSize, sizeDistribution, 0, 1);
+        mCarriedOverFileHashes = CodePushUpdateUtils.verifyFolderHash(mPackage.newPackageFolder.getAbsolutePath(), mPackage.newPackageHash, null, null);
+        mCarriedOverFileHashes.keySet().removeAll(CodePushUpdateUtils.getRelativeFilePaths(mPackage.diffFolder.getAbsolutePath()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteDirectoryAtPath(mRoot.getAbsolutePath());
+    }
+
+    @Benchmark
+    public void verifyFolderHash() {
+        CodePushUpdateUtils.verifyFolderHash(mPackage.newPackageFolder.getAbsolutePath(), mPackage.newPackageHash);
+    }
+
+    @Benchmark
+    public void verifyFolderHashWithStoredHashes() {
+        CodePushUpdateUtils.verifyFolderHash(mPackage.newPackageFolder.getAbsolutePath(), mPackage.newPackageHash, null, mCarriedOverFileHashes);
+    }
+}
@@ -0,0 +1,287 @@
+package com.microsoft.codepush.react;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process {@link CodePushHttpTransport} serving canned responses, so download and update check paths
+ * can be exercised and benchmarked deterministically without a network.
+ *
+ * Responses are registered per URL. Range requests are answered with 206 and conditional requests
+ * matching the route's ETag with 304, like a CDN would. Each route can also simulate first-byte latency,
+ * limited throughput, a connection failure or a connection dropped part way through the body.
+ */
+class CodePushFakeHttpTransport implements CodePushHttpTransport {
+
+    public static class Route {
+        private int mStatusCode = HttpURLConnection.HTTP_OK;
+        private final Map<String, String> mHeaders = new LinkedHashMap<>();
+        private byte[] mBody = new byte[0];
+        private long mFirstByteLatencyMs = 0;
+        private long mBytesPerSecond = 0;
+        private IOException mFailure;
+        private long mDropAfterBytes = -1;
+
+        public Route setStatusCode(int statusCode) {
+            mStatusCode = statusCode;
+            return this;
+        }
+
+        public Route setHeader(String name, String value) {
+            mHeaders.put(name, value);
+            return this;
+        }
+
+        public Route setBody(byte[] body) {
+            mBody = body;
+            return this;
+        }
+
+        public Route setFirstByteLatency(long firstByteLatencyMs) {
+            mFirstByteLatencyMs = firstByteLatencyMs;
+            return this;
+        }
+
+        /**
+         * Limits how fast the body can be read, 0 means unlimited.
+         */
+        public Route setBytesPerSecond(long bytesPerSecond) {
+            mBytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Makes every request to this route fail with the given exception.
+         */
+        public Route setFailure(IOException failure) {
+            mFailure = failure;
+            return this;
+        }
+
+        /**
+         * Makes every response of this route fail after the given number of body bytes, -1 means never.
+         */
+        public Route setDropAfterBytes(long dropAfterBytes) {
+            mDropAfterBytes = dropAfterBytes;
+            return this;
+        }
+    }
+
+    private final Map<String, Route> mRoutes = new ConcurrentHashMap<>();
+    private final List<CodePushHttpRequest> mRequests = Collections.synchronizedList(new ArrayList<CodePushHttpRequest>());
+
+    public Route setResponse(String url, byte[] body) {
+        Route route = new Route().setBody(body);
+        mRoutes.put(url, route);
+        return route;
+    }
+
+    public Route setResponse(String url, String body) {
+        return setResponse(url, body.getBytes());
+    }
+
+    public void removeResponse(String url) {
+        mRoutes.remove(url);
+    }
+
+    /**
+     * Returns the requests executed so far, in order.
+     */
+    public List<CodePushHttpRequest> getRequests() {
+        synchronized (mRequests) {
+            return new ArrayList<>(mRequests);
+        }
+    }
+
+    @Override
+    public CodePushHttpResponse execute(CodePushHttpRequest request) throws IOException {
+        mRequests.add(request);
+        Route route = mRoutes.get(request.getUrl());
+        if (route == null) {
+            throw new FileNotFoundException("No fake response registered for " + request.getUrl());
+        }
+
+        sleep(route.mFirstByteLatencyMs);
+        if (route.mFailure != null) {
+            throw route.mFailure;
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>(route.mHeaders);
+        String etag = route.mHeaders.get("ETag");
+        if (etag != null && etag.equals(request.getHeader("If-None-Match"))) {
+            return new FakeResponse(HttpURLConnection.HTTP_NOT_MODIFIED, headers, new byte[0], 0, 0);
+        }
+
+        int start = 0;
+        int end = route.mBody.length;
+        int statusCode = route.mStatusCode;
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.equals(etag)) {
+            // The package changed, so the whole of it is served instead of the range.
+            range = null;
+        }
+
+        if (range != null && statusCode == HttpURLConnection.HTTP_OK && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            start = Integer.parseInt(bounds[0]);
+            if (bounds.length > 1 && !bounds[1].isEmpty()) {
+                end = Math.min(end, Integer.parseInt(bounds[1]) + 1);
+            }
+
+            if (start >= end) {
+                return new FakeResponse(416, headers, new byte[0], 0, 0);
+            }
+
+            statusCode = HttpURLConnection.HTTP_PARTIAL;
+            headers.put("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + route.mBody.length);
+        }
+
+        headers.put("Accept-Ranges", "bytes");
+        return new FakeResponse(statusCode, headers, route.mBody, start, end - start, route.mBytesPerSecond, route.mDropAfterBytes);
+    }
+
+    private static void sleep(long durationMs) throws InterruptedIOException {
+        if (durationMs <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(durationMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static class FakeResponse implements CodePushHttpResponse {
+
+        private final int mStatusCode;
+        private final Map<String, String> mHeaders;
+        private final InputStream mBody;
+        private final int mLength;
+
+        FakeResponse(int statusCode, Map<String, String> headers, byte[] body, int offset, int length) {
+            this(statusCode, headers, body, offset, length, 0, -1);
+        }
+
+        FakeResponse(int statusCode, Map<String, String> headers, byte[] body, int offset, int length, long bytesPerSecond,
+                     long dropAfterBytes) {
+            mStatusCode = statusCode;
+            mHeaders = headers;
+            mLength = length;
+            InputStream bodyStream = dropAfterBytes >= 0 && dropAfterBytes < length
+                    ? new DroppedInputStream(new ByteArrayInputStream(body, offset, (int) dropAfterBytes))
+                    : new ByteArrayInputStream(body, offset, length);
+            mBody = bytesPerSecond > 0 ? new ThrottledInputStream(bodyStream, bytesPerSecond) : bodyStream;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return mStatusCode;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            for (Map.Entry<String, String> header : mHeaders.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long getContentLength() {
+            return mLength;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return mBody;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mBody.close();
+        }
+    }
+
+    private static class DroppedInputStream extends InputStream {
+
+        private final InputStream mDelegate;
+
+        DroppedInputStream(InputStream delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int numBytesRead = mDelegate.read(buffer, offset, length);
+            if (numBytesRead < 0) {
+                throw new IOException("Connection dropped");
+            }
+            return numBytesRead;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mDelegate.close();
+        }
+    }
+
+    private static class ThrottledInputStream extends InputStream {
+
+        private final InputStream mDelegate;
+        private final long mBytesPerSecond;
+        private final long mStartedAt = System.nanoTime();
+        private long mBytesRead = 0;
+
+        ThrottledInputStream(InputStream delegate, long bytesPerSecond) {
+            mDelegate = delegate;
+            mBytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            // Hand out at most a tenth of a second worth of data per read, then wait until
+            // the elapsed time matches the configured rate.
+            int chunkLength = (int) Math.max(1, Math.min(length, mBytesPerSecond / 10));
+            int numBytesRead = mDelegate.read(buffer, offset, chunkLength);
+            if (numBytesRead > 0) {
+                mBytesRead += numBytesRead;
+                long dueAtMs = mBytesRead * 1000 / mBytesPerSecond;
+                long elapsedMs = (System.nanoTime() - mStartedAt) / 1000000;
+                sleep(dueAtMs - elapsedMs);
+            }
+            return numBytesRead;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mDelegate.close();
+        }
+    }
+}
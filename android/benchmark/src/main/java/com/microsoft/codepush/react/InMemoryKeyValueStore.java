@@ -0,0 +1,28 @@
+package com.microsoft.codepush.react;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link CodePushKeyValueStore} kept in a map, so SettingsManager can run off device.
+ */
+class InMemoryKeyValueStore implements CodePushKeyValueStore {
+
+    private final Map<String, String> mValues = new ConcurrentHashMap<>();
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        String value = mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public void remove(String key) {
+        mValues.remove(key);
+    }
+}
@@ -0,0 +1,218 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A generated app release together with the update to its next release, laid out on disk the way the
+ * CodePush server and the update engine lay them out.
+ *
+ * File 0 is the JS bundle, the others are assets spread over a few folders. A {@code diffRatio} fraction of
+ * the files is changed by the next release, and as many again are deleted. Contents are seeded random bytes,
+ * so the same parameters always produce the same package.
+ */
+public class SyntheticPackage {
+
+    public enum SizeDistribution {
+        // Every file has the mean size.
+        UNIFORM,
+        // Exponentially distributed sizes, i.e. many small assets and a few large ones.
+        EXPONENTIAL
+    }
+
+    private static final String BUNDLE_PATH = CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/" + CodePushConstants.DEFAULT_JS_BUNDLE_NAME;
+    private static final int ASSET_FOLDER_COUNT = 16;
+
+    // The contents of the installed release.
+    final File currentPackageFolder;
+    // The full contents of the next release.
+    final File newPackageFolder;
+    // The files changed by the next release plus its diff manifest.
+    final File diffFolder;
+    final File fullZip;
+    final File diffZip;
+    final String newPackageHash;
+    final long totalBytes;
+    final int fileCount;
+
+    private SyntheticPackage(File root, int fileCount, String newPackageHash, long totalBytes) {
+        this.currentPackageFolder = new File(root, "current");
+        this.newPackageFolder = new File(root, "new");
+        this.diffFolder = new File(root, "diff");
+        this.fullZip = new File(root, "full.zip");
+        this.diffZip = new File(root, "diff.zip");
+        this.fileCount = fileCount;
+        this.newPackageHash = newPackageHash;
+        this.totalBytes = totalBytes;
+    }
+
+    static SyntheticPackage generate(File root, int fileCount, int meanFileSize, SizeDistribution sizeDistribution,
+                                     double diffRatio, long seed) throws IOException {
+        FileUtils.deleteDirectoryAtPath(root.getAbsolutePath());
+        // Paths only, the hash and size are filled in once the files exist.
+        SyntheticPackage layout = new SyntheticPackage(root, fileCount, null, 0);
+        Random random = new Random(seed);
+        int changedFileCount = (int) Math.round(fileCount * diffRatio);
+
+        long totalBytes = 0;
+        JSONArray deletedFiles = new JSONArray();
+        for (int i = 0; i < fileCount; i++) {
+            String relativePath = getRelativePath(i);
+            int size = getFileSize(meanFileSize, sizeDistribution, random);
+            byte[] contents = randomBytes(random, size);
+            writeFile(new File(layout.currentPackageFolder, relativePath), contents);
+
+            // The bundle always changes, the other changed files alternate between modified and deleted.
+            boolean isChanged = i == 0 || i <= 2 * changedFileCount && i % 2 == 1;
+            boolean isDeleted = i != 0 && i <= 2 * changedFileCount && i % 2 == 0;
+            if (isDeleted) {
+                deletedFiles.put(relativePath);
+                continue;
+            }
+
+            if (isChanged) {
+                contents = randomBytes(random, getFileSize(meanFileSize, sizeDistribution, random));
+                writeFile(new File(layout.diffFolder, relativePath), contents);
+            }
+
+            writeFile(new File(layout.newPackageFolder, relativePath), contents);
+            totalBytes += contents.length;
+        }
+
+        JSONObject diffManifest = new JSONObject();
+        CodePushUtils.setJSONValueForKey(diffManifest, "deletedFiles", deletedFiles);
+        File diffManifestFile = new File(layout.diffFolder, CodePushConstants.DIFF_MANIFEST_FILE_NAME);
+        CodePushUtils.writeJsonToFile(diffManifest, diffManifestFile.getAbsolutePath());
+
+        zipFolder(layout.newPackageFolder, layout.fullZip);
+        zipFolder(layout.diffFolder, layout.diffZip);
+        return new SyntheticPackage(root, fileCount, computeFolderHash(layout.newPackageFolder), totalBytes);
+    }
+
+    /**
+     * Returns metadata shaped like what the server returns for a package, with {@code extraKeyCount}
+     * additional custom keys.
+     */
+    static JSONObject createMetadata(String packageHash, int extraKeyCount) {
+        JSONObject metadata = new JSONObject();
+        CodePushUtils.setJSONValueForKey(metadata, "appVersion", "1.0.0");
+        CodePushUtils.setJSONValueForKey(metadata, "deploymentKey", "benchmark-deployment-key");
+        CodePushUtils.setJSONValueForKey(metadata, "description", "Synthetic release " + packageHash);
+        CodePushUtils.setJSONValueForKey(metadata, "downloadUrl", "https://codepush.example.com/packages/" + packageHash);
+        CodePushUtils.setJSONValueForKey(metadata, "isMandatory", false);
+        CodePushUtils.setJSONValueForKey(metadata, "label", "v" + Math.abs(packageHash.hashCode()));
+        CodePushUtils.setJSONValueForKey(metadata, CodePushConstants.PACKAGE_HASH_KEY, packageHash);
+        CodePushUtils.setJSONValueForKey(metadata, "packageSize", 1024 * 1024);
+        for (int i = 0; i < extraKeyCount; i++) {
+            CodePushUtils.setJSONValueForKey(metadata, "customKey" + i, "customValue" + i);
+        }
+        return metadata;
+    }
+
+    /**
+     * Computes the package hash the CodePush CLI would assign to the folder contents.
+     */
+    static String computeFolderHash(File folder) throws IOException {
+        List<String> manifest = new ArrayList<>();
+        addToManifest(folder, "", manifest);
+        Collections.sort(manifest);
+        JSONArray manifestJson = new JSONArray();
+        for (String entry : manifest) {
+            manifestJson.put(entry);
+        }
+
+        String manifestString = manifestJson.toString().replace("\\/", "/");
+        return CodePushUpdateUtils.computeHash(new ByteArrayInputStream(manifestString.getBytes()));
+    }
+
+    static void zipFolder(File folder, File zipFile) throws IOException {
+        ZipOutputStream zipStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zipFile)));
+        try {
+            addToZip(folder, "", zipStream);
+        } finally {
+            zipStream.close();
+        }
+    }
+
+    private static String getRelativePath(int index) {
+        if (index == 0) {
+            return BUNDLE_PATH;
+        }
+
+        return CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/assets/folder" + (index % ASSET_FOLDER_COUNT) + "/asset" + index + ".png";
+    }
+
+    private static int getFileSize(int meanFileSize, SizeDistribution sizeDistribution, Random random) {
+        switch (sizeDistribution) {
+            case EXPONENTIAL:
+                return (int) Math.min(Integer.MAX_VALUE / 2, Math.round(-Math.log(1 - random.nextDouble()) * meanFileSize));
+            default:
+                return meanFileSize;
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void writeFile(File file, byte[] contents) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(contents);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static void addToManifest(File folder, String pathPrefix, List<String> manifest) throws IOException {
+        for (File file : folder.listFiles()) {
+            String relativePath = (pathPrefix.isEmpty() ? "" : (pathPrefix + "/")) + file.getName();
+            if (file.isDirectory()) {
+                addToManifest(file, relativePath, manifest);
+            } else {
+                manifest.add(relativePath + ":" + CodePushUpdateUtils.computeHash(new FileInputStream(file)));
+            }
+        }
+    }
+
+    private static void addToZip(File folder, String pathPrefix, ZipOutputStream zipStream) throws IOException {
+        byte[] buffer = new byte[1024 * 64];
+        for (File file : folder.listFiles()) {
+            String relativePath = (pathPrefix.isEmpty() ? "" : (pathPrefix + "/")) + file.getName();
+            if (file.isDirectory()) {
+                addToZip(file, relativePath, zipStream);
+                continue;
+            }
+
+            zipStream.putNextEntry(new ZipEntry(relativePath));
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                int bytesRead;
+                while ((bytesRead = inputStream.read(buffer)) != -1) {
+                    zipStream.write(buffer, 0, bytesRead);
+                }
+            } finally {
+                inputStream.close();
+            }
+            zipStream.closeEntry();
+        }
+    }
+}
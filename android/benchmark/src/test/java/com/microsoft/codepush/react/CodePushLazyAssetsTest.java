@@ -0,0 +1,72 @@
+package com.microsoft.codepush.react;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CodePushLazyAssetsTest {
+
+    private static final String BASE_URL = "https://cdn.example.com/releases/1.2.0/";
+    private static final String ASSET_PATH = "CodePush/drawable-mdpi/image.png";
+    private static final byte[] ASSET_CONTENTS = "image".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final CodePushFakeHttpTransport mHttpTransport = new CodePushFakeHttpTransport();
+
+    @Test
+    public void resolvesANormalizedAssetPath() throws IOException {
+        File packageFolder = createPackage(ASSET_PATH);
+        mHttpTransport.setResponse(BASE_URL + ASSET_PATH, ASSET_CONTENTS);
+
+        String path = new CodePushLazyAssets(packageFolder.getAbsolutePath(), mHttpTransport).resolve("./CodePush//drawable-mdpi/image.png");
+        assertEquals(new File(packageFolder, ASSET_PATH).getAbsolutePath(), path);
+    }
+
+    @Test
+    public void rejectsPathsTheManifestDoesNotList() throws IOException {
+        File packageFolder = createPackage(ASSET_PATH);
+        writeFile(new File(packageFolder, "CodePush/index.android.bundle"), "bundle");
+        writeFile(new File(mTemporaryFolder.getRoot(), "secret"), "secret");
+
+        CodePushLazyAssets lazyAssets = new CodePushLazyAssets(packageFolder.getAbsolutePath(), mHttpTransport);
+        assertNull(lazyAssets.resolve("CodePush/index.android.bundle"));
+        assertNull(lazyAssets.resolve("../secret"));
+        assertNull(lazyAssets.resolve("CodePush/../../secret"));
+    }
+
+    @Test(expected = CodePushInvalidUpdateException.class)
+    public void rejectsAManifestWithAPathOutsideThePackage() throws IOException {
+        File packageFolder = createPackage("CodePush/../../escaped.png");
+        new CodePushLazyAssets(packageFolder.getAbsolutePath(), mHttpTransport);
+    }
+
+    private File createPackage(String assetPath) throws IOException {
+        File packageFolder = new File(mTemporaryFolder.getRoot(), "package");
+        String hash = CodePushUpdateUtils.computeHash(new ByteArrayInputStream(ASSET_CONTENTS));
+        writeFile(new File(CodePushLazyAssets.getManifestPath(packageFolder.getAbsolutePath())),
+                "{\"baseUrl\": \"" + BASE_URL + "\", \"assets\": {\"" + assetPath + "\": {\"hash\": \"" + hash + "\", \"size\": "
+                        + ASSET_CONTENTS.length + "}}}");
+        return packageFolder;
+    }
+
+    private static void writeFile(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.microsoft.codepush.react;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CodePushMirrorInputStreamTest {
+
+    private static final String PRIMARY_URL = "https://primary.example.com/packages/package.zip";
+    private static final String MIRROR_URL = "https://mirror.example.com/packages/package.zip";
+    private static final int PACKAGE_SIZE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void resumesOnTheMirrorThatLostTheRaceWhenThePrimaryDrops() throws IOException {
+        byte[] body = createBody();
+        CodePushFakeHttpTransport httpTransport = new CodePushFakeHttpTransport();
+        httpTransport.setResponse(PRIMARY_URL, body).setDropAfterBytes(PACKAGE_SIZE / 2);
+        httpTransport.setResponse(MIRROR_URL, body).setFirstByteLatency(200);
+
+        assertArrayEquals(body, readAll(httpTransport, Arrays.asList(PRIMARY_URL, MIRROR_URL)));
+
+        List<CodePushHttpRequest> requests = httpTransport.getRequests();
+        assertEquals(3, requests.size());
+        CodePushHttpRequest resumeRequest = requests.get(2);
+        assertEquals(MIRROR_URL, resumeRequest.getUrl());
+        assertEquals("bytes=" + PACKAGE_SIZE / 2 + "-", resumeRequest.getHeader("Range"));
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWhenNoOtherMirrorCanResume() throws IOException {
+        byte[] body = createBody();
+        CodePushFakeHttpTransport httpTransport = new CodePushFakeHttpTransport();
+        httpTransport.setResponse(PRIMARY_URL, body).setDropAfterBytes(PACKAGE_SIZE / 2);
+        httpTransport.setResponse(MIRROR_URL, body).setFirstByteLatency(200).setDropAfterBytes(PACKAGE_SIZE / 4);
+
+        readAll(httpTransport, Arrays.asList(PRIMARY_URL, MIRROR_URL));
+    }
+
+    @Test
+    public void readsFromTheOnlyMirrorWithoutRange() throws IOException {
+        byte[] body = createBody();
+        CodePushFakeHttpTransport httpTransport = new CodePushFakeHttpTransport();
+        httpTransport.setResponse(PRIMARY_URL, body);
+
+        assertArrayEquals(body, readAll(httpTransport, Collections.singletonList(PRIMARY_URL)));
+        assertEquals(1, httpTransport.getRequests().size());
+        assertNull(httpTransport.getRequests().get(0).getHeader("Range"));
+    }
+
+    @Test
+    public void ranksARacedMirrorThatFailedLast() throws IOException {
+        byte[] body = createBody();
+        CodePushFakeHttpTransport httpTransport = new CodePushFakeHttpTransport();
+        httpTransport.setResponse(MIRROR_URL, body).setFailure(new IOException("Connection refused"));
+        httpTransport.setResponse(PRIMARY_URL, body).setFirstByteLatency(200);
+
+        CodePushMirrorStats mirrorStats = createMirrorStats();
+        // The mirror has served quickly before, so it ranks first until its failure is recorded.
+        mirrorStats.recordSuccess(MIRROR_URL, 10, PACKAGE_SIZE, 100);
+        assertArrayEquals(body, readAll(httpTransport, mirrorStats, Arrays.asList(MIRROR_URL, PRIMARY_URL)));
+        assertEquals(Arrays.asList(PRIMARY_URL, MIRROR_URL), mirrorStats.sort(Arrays.asList(MIRROR_URL, PRIMARY_URL)));
+    }
+
+    private byte[] readAll(CodePushHttpTransport httpTransport, List<String> urls) throws IOException {
+        return readAll(httpTransport, createMirrorStats(), urls);
+    }
+
+    private byte[] readAll(CodePushHttpTransport httpTransport, CodePushMirrorStats mirrorStats, List<String> urls) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = new CodePushMirrorInputStream(httpTransport, mirrorStats, urls, Collections.<String, String>emptyMap())) {
+            byte[] buffer = new byte[64 * 1024];
+            int numBytesRead;
+            while ((numBytesRead = input.read(buffer, 0, buffer.length)) >= 0) {
+                output.write(buffer, 0, numBytesRead);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private CodePushMirrorStats createMirrorStats() {
+        return new CodePushMirrorStats(new File(mTemporaryFolder.getRoot(), "mirrors.json").getAbsolutePath());
+    }
+
+    private static byte[] createBody() {
+        byte[] body = new byte[PACKAGE_SIZE];
+        new Random(1).nextBytes(body);
+        return body;
+    }
+}
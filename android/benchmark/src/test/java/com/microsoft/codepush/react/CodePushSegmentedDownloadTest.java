@@ -0,0 +1,58 @@
+package com.microsoft.codepush.react;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class CodePushSegmentedDownloadTest {
+
+    private static final String PACKAGE_URL = "https://primary.example.com/packages/package.zip";
+    private static final int PACKAGE_SIZE = 1024 * 1024;
+    private static final int SEGMENT_COUNT = 4;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void stitchesTheSegmentsOfOneVersion() throws IOException {
+        byte[] body = createBody();
+        CodePushFakeHttpTransport httpTransport = new CodePushFakeHttpTransport();
+        httpTransport.setResponse(PACKAGE_URL, body).setHeader("ETag", "\"v1\"").setDropAfterBytes(PACKAGE_SIZE / SEGMENT_COUNT / 2);
+
+        assertArrayEquals(body, download(httpTransport, "\"v1\""));
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWhenThePackageChangesDuringTheDownload() throws IOException {
+        byte[] body = createBody();
+        CodePushFakeHttpTransport httpTransport = new CodePushFakeHttpTransport();
+        httpTransport.setResponse(PACKAGE_URL, body).setHeader("ETag", "\"v2\"");
+
+        download(httpTransport, "\"v1\"");
+    }
+
+    private byte[] download(CodePushFakeHttpTransport httpTransport, String entityTag) throws IOException {
+        File destination = new File(mTemporaryFolder.getRoot(), "download.zip");
+        CodePushHttpResponse firstResponse = httpTransport.execute(new CodePushHttpRequest(PACKAGE_URL));
+        try {
+            new CodePushSegmentedDownload(httpTransport, PACKAGE_URL, entityTag, PACKAGE_SIZE, SEGMENT_COUNT, new DownloadProgress())
+                    .download(firstResponse.getBody(), destination);
+        } finally {
+            firstResponse.close();
+        }
+        return Files.readAllBytes(destination.toPath());
+    }
+
+    private static byte[] createBody() {
+        byte[] body = new byte[PACKAGE_SIZE];
+        new Random(1).nextBytes(body);
+        return body;
+    }
+}
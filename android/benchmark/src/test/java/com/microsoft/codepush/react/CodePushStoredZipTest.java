@@ -0,0 +1,70 @@
+package com.microsoft.codepush.react;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CodePushStoredZipTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void normalizesEntryNamesInsideThePackage() {
+        assertEquals("a/b", CodePushStoredZip.normalizeEntryName("a/b"));
+        assertEquals("a/b", CodePushStoredZip.normalizeEntryName("./a//b"));
+        assertEquals("b", CodePushStoredZip.normalizeEntryName("a/../b"));
+    }
+
+    @Test
+    public void rejectsEntryNamesOutsideThePackage() {
+        for (String entryName : Arrays.asList("/a", "..", "../a", "a/../../b", "a/..", "a/b/../..", ".")) {
+            assertNull(entryName, CodePushStoredZip.normalizeEntryName(entryName));
+        }
+    }
+
+    @Test
+    public void indexesNormalizedPaths() throws IOException {
+        CodePushStoredZip storedZip = CodePushStoredZip.index(createStoredZip("CodePush/./index.android.bundle"));
+        assertEquals(Arrays.asList("CodePush/index.android.bundle"), storedZip.getPaths());
+    }
+
+    @Test(expected = CodePushInvalidUpdateException.class)
+    public void rejectsAZipWithATrailingParentComponent() throws IOException {
+        CodePushStoredZip.index(createStoredZip("CodePush/.."));
+    }
+
+    private File createStoredZip(String entryName) throws IOException {
+        byte[] contents = "contents".getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        ZipEntry entry = new ZipEntry(entryName);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(contents.length);
+        entry.setCompressedSize(contents.length);
+        entry.setCrc(crc.getValue());
+
+        File zipFile = mTemporaryFolder.newFile("package.zip");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile));
+        try {
+            out.putNextEntry(entry);
+            out.write(contents);
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+        return zipFile;
+    }
+}
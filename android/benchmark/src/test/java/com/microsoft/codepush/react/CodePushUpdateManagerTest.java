@@ -0,0 +1,255 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CodePushUpdateManagerTest {
+
+    private static final String RESOURCE_NAME = "index.android.bundle";
+    private static final String BUNDLE_FILE_NAME = "index.android.bundle";
+    private static final int PACKAGE_SIZE = 256 * 1024;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final CodePushClock mDefaultClock = CodePushPlatform.getClock();
+    private final CodePushFakeHttpTransport mHttpTransport = new CodePushFakeHttpTransport();
+    private CodePushUpdateManager mUpdateManager;
+
+    @Before
+    public void setUp() {
+        // Every read moves the clock forward, so the packages have a distinct last use.
+        final AtomicLong nowMs = new AtomicLong(1000);
+        CodePushPlatform.setClock(new CodePushClock() {
+            @Override
+            public long currentTimeMillis() {
+                return nowMs.incrementAndGet();
+            }
+
+            @Override
+            public long nanoTime() {
+                return nowMs.get() * 1000000;
+            }
+        });
+        mUpdateManager = new CodePushUpdateManager(mTemporaryFolder.getRoot().getAbsolutePath(), RESOURCE_NAME, mHttpTransport);
+    }
+
+    @After
+    public void tearDown() {
+        CodePushPlatform.setClock(mDefaultClock);
+        CodePushCoreConfig.setPackageCache(CodePushConstants.DEFAULT_PACKAGE_CACHE_MAX_COUNT, 0);
+        CodePushCoreConfig.setZeroExtractionEnabled(false);
+    }
+
+    @Test
+    public void writesOutTheImagesOfAPackageKeptAsAZip() throws IOException {
+        CodePushCoreConfig.setZeroExtractionEnabled(true);
+        mHttpTransport.setResponse(getDownloadUrl("zipHash"), createStoredZip(
+                "CodePush/" + BUNDLE_FILE_NAME,
+                "CodePush/drawable-mdpi/image.png",
+                "CodePush/raw/sound.mp3",
+                "CodePush/data.json"));
+        mUpdateManager.downloadPackage(SyntheticPackage.createMetadata("zipHash", 0), BUNDLE_FILE_NAME, new DownloadProgress(), null);
+
+        File packageFolder = new File(mUpdateManager.getPackageFolderPath("zipHash"));
+        assertTrue(CodePushStoredZip.isStoredZipPackage(packageFolder.getAbsolutePath()));
+        assertTrue(new File(packageFolder, "CodePush/" + BUNDLE_FILE_NAME).exists());
+        assertTrue(new File(packageFolder, "CodePush/drawable-mdpi/image.png").exists());
+        assertTrue(new File(packageFolder, "CodePush/raw/sound.mp3").exists());
+        // Only written out when it is read, e.g. through resolveLazyAsset.
+        assertFalse(new File(packageFolder, "CodePush/data.json").exists());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedPackageOverTheCount() throws IOException {
+        CodePushCoreConfig.setPackageCache(3, 0);
+        install("hashA");
+        install("hashB");
+        install("hashC");
+        download("hashD");
+
+        assertCachedPackages("hashB", "hashC", "hashD");
+        assertFalse(new File(mUpdateManager.getPackageFolderPath("hashA")).exists());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedPackageOverTheByteBudget() throws IOException {
+        // Room for two and a half packages, so the third one installed pushes the oldest out.
+        CodePushCoreConfig.setPackageCache(10, PACKAGE_SIZE * 5 / 2);
+        install("hashA");
+        install("hashB");
+        assertCachedPackages("hashA", "hashB");
+
+        install("hashC");
+        assertCachedPackages("hashB", "hashC");
+        assertFalse(new File(mUpdateManager.getPackageFolderPath("hashA")).exists());
+    }
+
+    @Test
+    public void keepsTheCurrentPreviousAndDownloadedPackageOverBudget() throws IOException {
+        CodePushCoreConfig.setPackageCache(1, PACKAGE_SIZE);
+        install("hashA");
+        install("hashB");
+        download("hashC");
+
+        assertCachedPackages("hashA", "hashB", "hashC");
+        for (String packageHash : Arrays.asList("hashA", "hashB", "hashC")) {
+            assertTrue(packageHash, new File(mUpdateManager.getPackageFolderPath(packageHash), BUNDLE_FILE_NAME).exists());
+        }
+    }
+
+    @Test
+    public void downloadsAPackageRequestedTwiceOnce() throws Exception {
+        byte[] sharedBody = createBody(1);
+        byte[] otherBody = createBody(2);
+        CodePushFakeHttpTransport httpTransport = new CodePushFakeHttpTransport();
+        // Slow enough that the second download of the shared package starts while the first is in flight.
+        httpTransport.setResponse(getDownloadUrl("sharedHash"), sharedBody).setFirstByteLatency(300);
+        httpTransport.setResponse(getDownloadUrl("otherHash"), otherBody).setFirstByteLatency(300);
+
+        // E.g. the background prefetch and JS, each with its own update manager for the same resource.
+        String documentsDirectory = mTemporaryFolder.getRoot().getAbsolutePath();
+        CodePushUpdateManager firstUpdateManager = new CodePushUpdateManager(documentsDirectory, RESOURCE_NAME, httpTransport);
+        CodePushUpdateManager secondUpdateManager = new CodePushUpdateManager(documentsDirectory, RESOURCE_NAME, httpTransport);
+
+        DownloadProgress firstProgress = new DownloadProgress();
+        DownloadProgress secondProgress = new DownloadProgress();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Void>> downloads = new ArrayList<>();
+            downloads.add(executor.submit(download(firstUpdateManager, "sharedHash", firstProgress)));
+            downloads.add(executor.submit(download(secondUpdateManager, "sharedHash", secondProgress)));
+            downloads.add(executor.submit(download(secondUpdateManager, "otherHash", new DownloadProgress())));
+            for (Future<Void> download : downloads) {
+                download.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, countRequests(httpTransport, getDownloadUrl("sharedHash")));
+        assertEquals(1, countRequests(httpTransport, getDownloadUrl("otherHash")));
+
+        // The download that joined reports the progress of the one in flight.
+        DownloadProgress.Snapshot firstSnapshot = new DownloadProgress.Snapshot();
+        DownloadProgress.Snapshot secondSnapshot = new DownloadProgress.Snapshot();
+        firstProgress.sample(firstSnapshot);
+        secondProgress.sample(secondSnapshot);
+        assertEquals(PACKAGE_SIZE, firstSnapshot.receivedBytes);
+        assertEquals(firstSnapshot.receivedBytes, secondSnapshot.receivedBytes);
+        assertEquals(firstSnapshot.totalBytes, secondSnapshot.totalBytes);
+
+        // Each package was staged on its own, so neither picked up the other's contents.
+        assertArrayEquals(sharedBody, readBundle(firstUpdateManager, "sharedHash"));
+        assertArrayEquals(otherBody, readBundle(firstUpdateManager, "otherHash"));
+    }
+
+    private void install(String packageHash) throws IOException {
+        download(packageHash);
+        mUpdateManager.installPackage(packageHash, /* removePendingUpdate */false);
+    }
+
+    private void download(String packageHash) throws IOException {
+        mHttpTransport.setResponse(getDownloadUrl(packageHash), createBody(packageHash.hashCode()));
+        mUpdateManager.downloadPackage(SyntheticPackage.createMetadata(packageHash, 0), BUNDLE_FILE_NAME, new DownloadProgress(), null);
+    }
+
+    private void assertCachedPackages(String... packageHashes) {
+        JSONArray cachedPackages = mUpdateManager.getCachedPackages();
+        HashSet<String> cachedPackageHashes = new HashSet<>();
+        for (int i = 0; i < cachedPackages.length(); i++) {
+            cachedPackageHashes.add(cachedPackages.optJSONObject(i).optString(CodePushConstants.PACKAGE_HASH_KEY));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(packageHashes)), cachedPackageHashes);
+    }
+
+    private static Callable<Void> download(final CodePushUpdateManager updateManager, final String packageHash,
+                                           final DownloadProgress downloadProgress) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                JSONObject updatePackage = SyntheticPackage.createMetadata(packageHash, 0);
+                updateManager.downloadPackage(updatePackage, BUNDLE_FILE_NAME, downloadProgress, null);
+                return null;
+            }
+        };
+    }
+
+    private static int countRequests(CodePushFakeHttpTransport httpTransport, String url) {
+        int count = 0;
+        for (CodePushHttpRequest request : httpTransport.getRequests()) {
+            if (request.getUrl().equals(url)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static byte[] readBundle(CodePushUpdateManager updateManager, String packageHash) throws IOException {
+        return Files.readAllBytes(new File(updateManager.getPackageFolderPath(packageHash), BUNDLE_FILE_NAME).toPath());
+    }
+
+    private static String getDownloadUrl(String packageHash) {
+        return SyntheticPackage.createMetadata(packageHash, 0).optString(CodePushConstants.DOWNLOAD_URL_KEY);
+    }
+
+    private static byte[] createStoredZip(String... entryNames) throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(zip);
+        try {
+            for (String entryName : entryNames) {
+                byte[] contents = entryName.getBytes(StandardCharsets.UTF_8);
+                CRC32 crc = new CRC32();
+                crc.update(contents);
+                ZipEntry entry = new ZipEntry(entryName);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(contents.length);
+                entry.setCompressedSize(contents.length);
+                entry.setCrc(crc.getValue());
+                out.putNextEntry(entry);
+                out.write(contents);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return zip.toByteArray();
+    }
+
+    private static byte[] createBody(int seed) {
+        byte[] body = new byte[PACKAGE_SIZE];
+        new Random(seed).nextBytes(body);
+        // Not a zip, so the body is stored as the bundle itself.
+        body[0] = 0;
+        return body;
+    }
+}
@@ -0,0 +1,45 @@
+package com.microsoft.codepush.react;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CodePushUpdateUtilsTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void keepsThePackageHashWithTheFileHashManifestNextToTheContents() throws IOException {
+        File packageFolder = mTemporaryFolder.newFolder("package");
+        writeFile(new File(packageFolder, "index.android.bundle"), "bundle");
+        // Content that happens to be named like a manifest belongs to the package.
+        writeFile(new File(packageFolder, "hashes.json"), "{}");
+        String packageHash = SyntheticPackage.computeFolderHash(packageFolder);
+
+        Map<String, String> fileHashes = CodePushUpdateUtils.verifyFolderHash(packageFolder.getAbsolutePath(), packageHash, null, null);
+        CodePushUpdateUtils.writeFileHashManifest(packageFolder.getAbsolutePath(), fileHashes);
+
+        assertEquals(fileHashes, CodePushUpdateUtils.readFileHashManifest(packageFolder.getAbsolutePath()));
+        CodePushUpdateUtils.verifyFolderHash(packageFolder.getAbsolutePath(), packageHash);
+        assertTrue(new File(packageFolder, "hashes.json").exists());
+    }
+
+    private static void writeFile(File file, String contents) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.microsoft.codepush.react;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SettingsManagerTest {
+
+    private static final String MAIN_RESOURCE_NAME = "index.android.bundle";
+    private static final String SECOND_RESOURCE_NAME = "second.android.bundle";
+
+    // Every resource has its own SettingsManager, backed by the same SharedPreferences file.
+    private final InMemoryKeyValueStore mSettings = new InMemoryKeyValueStore();
+    private final SettingsManager mMainSettingsManager = new SettingsManager(mSettings);
+    private final SettingsManager mSecondSettingsManager = new SettingsManager(mSettings);
+
+    @Test
+    public void keepsTwoResourcesPendingTogether() {
+        mMainSettingsManager.savePendingUpdate(MAIN_RESOURCE_NAME, "hashA", /* isLoading */false);
+        mSecondSettingsManager.savePendingUpdate(SECOND_RESOURCE_NAME, "hashB", /* isLoading */false);
+
+        assertTrue(mMainSettingsManager.isPendingUpdate(MAIN_RESOURCE_NAME, "hashA"));
+        assertTrue(mSecondSettingsManager.isPendingUpdate(SECOND_RESOURCE_NAME, "hashB"));
+        assertFalse(mMainSettingsManager.isPendingUpdate(MAIN_RESOURCE_NAME, "hashB"));
+    }
+
+    @Test
+    public void tracksLoadingPerResource() {
+        mMainSettingsManager.savePendingUpdate(MAIN_RESOURCE_NAME, "hashA", /* isLoading */false);
+        mSecondSettingsManager.savePendingUpdate(SECOND_RESOURCE_NAME, "hashB", /* isLoading */false);
+
+        // The main resource is loaded and confirmed, the second one is still waiting for its restart.
+        mMainSettingsManager.savePendingUpdate(MAIN_RESOURCE_NAME, "hashA", /* isLoading */true);
+        mMainSettingsManager.removePendingUpdate(MAIN_RESOURCE_NAME);
+
+        assertNull(mMainSettingsManager.getPendingUpdate(MAIN_RESOURCE_NAME));
+        assertTrue(mSecondSettingsManager.isPendingUpdate(SECOND_RESOURCE_NAME, "hashB"));
+    }
+
+    @Test
+    public void migratesTheLegacyPendingUpdateToItsResource() {
+        mSettings.putString(CodePushConstants.PENDING_UPDATE_KEY, "{\"hash\":\"hashB\",\"isLoading\":true}");
+
+        mMainSettingsManager.migrateLegacyPendingUpdate(MAIN_RESOURCE_NAME, "hashA");
+        assertNull(mMainSettingsManager.getPendingUpdate(MAIN_RESOURCE_NAME));
+
+        mSecondSettingsManager.migrateLegacyPendingUpdate(SECOND_RESOURCE_NAME, "hashB");
+        assertEquals("hashB", mSecondSettingsManager.getPendingUpdate(SECOND_RESOURCE_NAME).optString(CodePushConstants.PENDING_UPDATE_HASH_KEY));
+        assertNull(mSettings.getString(CodePushConstants.PENDING_UPDATE_KEY, null));
+    }
+}
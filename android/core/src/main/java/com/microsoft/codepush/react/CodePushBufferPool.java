@@ -0,0 +1,93 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte arrays shared by the I/O of the update pipeline (downloads, file copies, unzipping and hashing), so that
+ * an update does not allocate a new buffer for every file and every call while the app is starting.
+ *
+ * Arrays are pooled by length. A released array is only kept while the pooled arrays stay within the byte
+ * budget, so the pool never holds more than {@link #setMaxPooledBytes(long)} bytes, and a caller that finds no
+ * pooled array of the length it needs allocates one. Callers must release an array exactly once and must not
+ * use it afterwards; arrays are handed out with whatever they contained before.
+ */
+public class CodePushBufferPool {
+
+    private static final ConcurrentMap<Integer, Queue<byte[]>> sPooledBuffers = new ConcurrentHashMap<>();
+    private static final AtomicLong sPooledBytes = new AtomicLong();
+    private static volatile long sMaxPooledBytes = CodePushConstants.DEFAULT_BUFFER_POOL_SIZE;
+
+    private static final AtomicLong sAcquiredCount = new AtomicLong();
+    private static final AtomicLong sReusedCount = new AtomicLong();
+    private static final AtomicLong sReusedBytes = new AtomicLong();
+
+    /**
+     * Sets how many bytes of released arrays are kept for reuse, 0 disables pooling.
+     */
+    public static void setMaxPooledBytes(long maxPooledBytes) {
+        sMaxPooledBytes = maxPooledBytes;
+        if (sPooledBytes.get() > maxPooledBytes) {
+            for (Queue<byte[]> buffers : sPooledBuffers.values()) {
+                byte[] buffer;
+                while (sPooledBytes.get() > maxPooledBytes && (buffer = buffers.poll()) != null) {
+                    sPooledBytes.addAndGet(-buffer.length);
+                }
+            }
+        }
+    }
+
+    public static byte[] acquire(int length) {
+        sAcquiredCount.incrementAndGet();
+        Queue<byte[]> buffers = sPooledBuffers.get(length);
+        byte[] buffer = buffers != null ? buffers.poll() : null;
+        if (buffer == null) {
+            return new byte[length];
+        }
+
+        sPooledBytes.addAndGet(-length);
+        sReusedCount.incrementAndGet();
+        sReusedBytes.addAndGet(length);
+        return buffer;
+    }
+
+    public static void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+
+        if (sPooledBytes.addAndGet(buffer.length) > sMaxPooledBytes) {
+            sPooledBytes.addAndGet(-buffer.length);
+            return;
+        }
+
+        Queue<byte[]> buffers = sPooledBuffers.get(buffer.length);
+        if (buffers == null) {
+            Queue<byte[]> newBuffers = new ConcurrentLinkedQueue<>();
+            buffers = sPooledBuffers.putIfAbsent(buffer.length, newBuffers);
+            if (buffers == null) {
+                buffers = newBuffers;
+            }
+        }
+        buffers.offer(buffer);
+    }
+
+    /**
+     * Returns how many arrays were requested since the process started, how many of them and how many bytes were
+     * served from the pool instead of being allocated, and how many bytes the pool holds now.
+     */
+    public static JSONObject getStats() {
+        JSONObject stats = new JSONObject();
+        CodePushUtils.setJSONValueForKey(stats, "acquiredCount", sAcquiredCount.get());
+        CodePushUtils.setJSONValueForKey(stats, "reusedCount", sReusedCount.get());
+        CodePushUtils.setJSONValueForKey(stats, "reusedBytes", sReusedBytes.get());
+        CodePushUtils.setJSONValueForKey(stats, "pooledBytes", sPooledBytes.get());
+        CodePushUtils.setJSONValueForKey(stats, "maxPooledBytes", sMaxPooledBytes);
+        return stats;
+    }
+}
@@ -0,0 +1,14 @@
+package com.microsoft.codepush.react;
+
+public interface CodePushClock {
+
+    /**
+     * Returns the wall clock time, e.g. to timestamp persisted data.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Returns a monotonic time that is only meaningful as the difference between two calls, e.g. to measure throughput.
+     */
+    long nanoTime();
+}
@@ -8,23 +8,51 @@ public class CodePushConstants {
     public static final String CODE_PUSH_OLD_HASH_FILE_NAME = "CodePushHash.json";
     public static final String CODE_PUSH_PREFERENCES = "CodePush";
     public static final String CURRENT_PACKAGE_KEY = "currentPackage";
+    public static final String DEFAULT_MAIN_RESOURCE_NAME = "common";
+    public static final long DEFAULT_CONNECT_TIMEOUT_MS = 15 * 1000;
+    public static final long DEFAULT_BUFFER_POOL_SIZE = 1024 * 1024;
+    public static final int DEFAULT_DOWNLOAD_SEGMENT_COUNT = 4;
+    public static final int DEFAULT_PACKAGE_CACHE_MAX_COUNT = 2;
+    public static final long DEFAULT_READ_TIMEOUT_MS = 30 * 1000;
+    public static final int DEFAULT_LOG_BUFFER_SIZE = 200;
+    public static final CodePushLogLevel DEFAULT_LOG_LEVEL = CodePushLogLevel.DEBUG;
+    public static final int DEFAULT_TRACE_BUFFER_SIZE = 2048;
     public static final String DEFAULT_JS_BUNDLE_NAME = "index.android.bundle";
     public static final String DIFF_MANIFEST_FILE_NAME = "hotcodepush.json";
     public static final int DOWNLOAD_BUFFER_SIZE = 1024 * 256;
     public static final String DOWNLOAD_FILE_NAME = "download.zip";
     public static final String DOWNLOAD_PROGRESS_EVENT_NAME = "CodePushDownloadProgress";
+    public static final String UPDATE_PHASE_PROGRESS_EVENT_NAME = "CodePushUpdatePhaseProgress";
+    public static final String DOWNLOAD_MIRROR_URLS_KEY = "downloadMirrorUrls";
     public static final String DOWNLOAD_URL_KEY = "downloadUrl";
+    public static final String FILE_HASH_MANIFEST_FILE_NAME = ".codepush-hashes.json";
     public static final String FAILED_UPDATES_KEY = "CODE_PUSH_FAILED_UPDATES";
+    public static final String LAZY_ASSET_MANIFEST_FILE_NAME = "codepushassets.json";
+    public static final String MIRROR_STATS_FILE = "mirrors.json";
     public static final String PACKAGE_FILE_NAME = "app.json";
+    public static final String PACKAGE_CACHE_KEY = "packageCache";
     public static final String PACKAGE_HASH_KEY = "packageHash";
     public static final String PENDING_UPDATE_HASH_KEY = "hash";
     public static final String PENDING_UPDATE_IS_LOADING_KEY = "isLoading";
     public static final String PENDING_UPDATE_KEY = "CODE_PUSH_PENDING_UPDATE";
+    public static final String PREFETCH_CONFIG_KEY = "CODE_PUSH_PREFETCH_CONFIG";
+    public static final int PREFETCH_JOB_ID = 0x0c0de9;
+    public static final String PREFETCHED_UPDATE_KEY = "CODE_PUSH_PREFETCHED_UPDATE";
     public static final String PREVIOUS_PACKAGE_KEY = "previousPackage";
     public static final String REACT_NATIVE_LOG_TAG = "ReactNative";
     public static final String RELATIVE_BUNDLE_PATH_KEY = "bundlePath";
+    public static final String STORED_ZIP_FILE_NAME = "package.zip";
+    public static final String STORED_ZIP_INDEX_FILE_NAME = "package.index";
+    public static final String STAGING_FOLDER_NAME = "staging";
     public static final String STATUS_FILE = "codepush.json";
+    public static final long STATUS_REPORT_BASE_RETRY_DELAY_MS = 5 * 1000;
+    public static final long STATUS_REPORT_MAX_RETRY_DELAY_MS = 60 * 60 * 1000;
+    public static final String STATUS_REPORT_QUEUE_FOLDER_NAME = "CodePushStatusReports";
+    public static final int STATUS_REPORT_QUEUE_MAX_SIZE = 50;
+    public static final String TRASH_FOLDER_NAME = ".trash";
     public static final String UNZIPPED_FOLDER_NAME = "unzipped";
+    public static final long DEFAULT_UPDATE_CHECK_CACHE_TTL_MS = 30 * 1000;
+    public static final String UPDATE_CHECK_CACHE_FOLDER_NAME = "CodePushUpdateCheck";
     public static final String CODE_PUSH_APK_BUILD_TIME_KEY = "CODE_PUSH_APK_BUILD_TIME";
     public static final String BUNDLE_JWT_FILE = ".codepushrelease";
     public static final String LATEST_ROLLBACK_INFO_KEY = "LATEST_ROLLBACK_INFO";
@@ -0,0 +1,115 @@
+package com.microsoft.codepush.react;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the core update engine, configured through CodePush and CodePushBuilder on Android.
+ */
+public class CodePushCoreConfig {
+
+    private static boolean sTestConfigurationFlag = false;
+
+    // Shared by every download and update check, see CodePushHttpTransport.
+    private static CodePushHttpTransport mHttpTransport;
+    private static long mConnectTimeoutMs = CodePushConstants.DEFAULT_CONNECT_TIMEOUT_MS;
+    private static long mReadTimeoutMs = CodePushConstants.DEFAULT_READ_TIMEOUT_MS;
+    private static Map<String, String> mHttpHeaders;
+
+    // Base URLs of CDN mirrors serving the same package paths as the CodePush storage.
+    private static List<String> mDownloadMirrors = new ArrayList<>();
+
+    // Packages of at least this many bytes are fetched over several connections, 0 disables it.
+    private static long mSegmentedDownloadThreshold = 0;
+    private static int mDownloadSegmentCount = CodePushConstants.DEFAULT_DOWNLOAD_SEGMENT_COUNT;
+
+    // Packages kept on disk by CodePushUpdateManager, including the current and previous one.
+    private static int mPackageCacheMaxCount = CodePushConstants.DEFAULT_PACKAGE_CACHE_MAX_COUNT;
+    // Total size of the packages kept on disk, 0 means no budget.
+    private static long mPackageCacheMaxBytes = 0;
+
+    // Whether packages with an asset manifest are installed before their assets are fetched.
+    private static boolean mIsLazyAssetsEnabled = false;
+
+    // Whether uncompressed full updates are kept as the downloaded zip instead of being extracted.
+    private static boolean mIsZeroExtractionEnabled = false;
+
+    public static synchronized void setHttpTransport(CodePushHttpTransport httpTransport) {
+        mHttpTransport = httpTransport;
+    }
+
+    public static synchronized void setHttpTimeouts(long connectTimeoutMs, long readTimeoutMs) {
+        mConnectTimeoutMs = connectTimeoutMs;
+        mReadTimeoutMs = readTimeoutMs;
+    }
+
+    public static synchronized void setHttpHeaders(Map<String, String> httpHeaders) {
+        mHttpHeaders = httpHeaders;
+    }
+
+    public static synchronized CodePushHttpTransport getHttpTransport() {
+        if (mHttpTransport == null) {
+            mHttpTransport = new CodePushOkHttpTransport(mConnectTimeoutMs, mReadTimeoutMs, mHttpHeaders);
+        }
+        return mHttpTransport;
+    }
+
+    public static void setDownloadMirrors(List<String> downloadMirrors) {
+        mDownloadMirrors = downloadMirrors != null ? new ArrayList<>(downloadMirrors) : new ArrayList<String>();
+    }
+
+    static List<String> getDownloadMirrors() {
+        return mDownloadMirrors;
+    }
+
+    public static void setSegmentedDownload(long segmentedDownloadThreshold, int downloadSegmentCount) {
+        mSegmentedDownloadThreshold = segmentedDownloadThreshold;
+        mDownloadSegmentCount = downloadSegmentCount;
+    }
+
+    static long getSegmentedDownloadThreshold() {
+        return mSegmentedDownloadThreshold;
+    }
+
+    static int getDownloadSegmentCount() {
+        return mDownloadSegmentCount;
+    }
+
+    public static void setPackageCache(int maxPackageCount, long maxBytes) {
+        mPackageCacheMaxCount = maxPackageCount;
+        mPackageCacheMaxBytes = maxBytes;
+    }
+
+    static int getPackageCacheMaxCount() {
+        return mPackageCacheMaxCount;
+    }
+
+    static long getPackageCacheMaxBytes() {
+        return mPackageCacheMaxBytes;
+    }
+
+    public static void setLazyAssetsEnabled(boolean isLazyAssetsEnabled) {
+        mIsLazyAssetsEnabled = isLazyAssetsEnabled;
+    }
+
+    static boolean isLazyAssetsEnabled() {
+        return mIsLazyAssetsEnabled;
+    }
+
+    public static void setZeroExtractionEnabled(boolean isZeroExtractionEnabled) {
+        mIsZeroExtractionEnabled = isZeroExtractionEnabled;
+    }
+
+    static boolean isZeroExtractionEnabled() {
+        return mIsZeroExtractionEnabled;
+    }
+
+    public static boolean isUsingTestConfiguration() {
+        return sTestConfigurationFlag;
+    }
+
+    public static void setUsingTestConfiguration(boolean shouldUseTestConfiguration) {
+        sTestConfigurationFlag = shouldUseTestConfiguration;
+    }
+}
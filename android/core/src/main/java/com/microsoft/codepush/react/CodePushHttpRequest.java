@@ -0,0 +1,59 @@
+package com.microsoft.codepush.react;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CodePushHttpRequest {
+
+    private final String mMethod;
+    private final String mUrl;
+    private final Map<String, String> mHeaders = new LinkedHashMap<>();
+
+    public CodePushHttpRequest(String url) {
+        this("GET", url);
+    }
+
+    public CodePushHttpRequest(String method, String url) {
+        mMethod = method;
+        mUrl = url;
+    }
+
+    public CodePushHttpRequest setHeader(String name, String value) {
+        mHeaders.put(name, value);
+        return this;
+    }
+
+    public CodePushHttpRequest setHeaders(Map<String, String> headers) {
+        if (headers != null) {
+            mHeaders.putAll(headers);
+        }
+        return this;
+    }
+
+    public String getMethod() {
+        return mMethod;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> header : mHeaders.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(mHeaders);
+    }
+
+    @Override
+    public String toString() {
+        return mMethod + " " + mUrl;
+    }
+}
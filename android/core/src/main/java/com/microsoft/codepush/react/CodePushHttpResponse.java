@@ -0,0 +1,26 @@
+package com.microsoft.codepush.react;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A response returned by a {@link CodePushHttpTransport}. Closing it releases the underlying
+ * connection, so it must be closed even if the body is not read.
+ */
+public interface CodePushHttpResponse extends Closeable {
+
+    int getStatusCode();
+
+    /**
+     * Returns the first value of the header, matched case-insensitively, or null if it is absent.
+     */
+    String getHeader(String name);
+
+    /**
+     * Returns the length of the body in bytes, or -1 if it is not known up front.
+     */
+    long getContentLength();
+
+    InputStream getBody() throws IOException;
+}
@@ -0,0 +1,21 @@
+package com.microsoft.codepush.react;
+
+import java.io.IOException;
+
+/**
+ * Performs the HTTP requests made by the native module: package downloads and update checks.
+ *
+ * Implementations are shared by all resources and must be thread safe. The default one is
+ * {@link CodePushOkHttpTransport}; a different one can be configured with
+ * {@link CodePushBuilder#setHttpTransport(CodePushHttpTransport)}.
+ */
+public interface CodePushHttpTransport {
+
+    /**
+     * Sends the request and returns once the response headers have been received. The caller
+     * owns the returned response and must close it, which hands the connection back for reuse.
+     *
+     * @throws java.net.MalformedURLException if the request URL cannot be parsed.
+     */
+    CodePushHttpResponse execute(CodePushHttpRequest request) throws IOException;
+}
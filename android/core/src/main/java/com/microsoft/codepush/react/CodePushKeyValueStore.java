@@ -0,0 +1,12 @@
+package com.microsoft.codepush.react;
+
+/**
+ * Persistent string settings, e.g. backed by SharedPreferences on Android. Writes are applied before they return.
+ */
+public interface CodePushKeyValueStore {
+    String getString(String key, String defaultValue);
+
+    void putString(String key, String value);
+
+    void remove(String key);
+}
@@ -0,0 +1,299 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Fetches the assets that a release left out of its package and listed in an asset manifest instead, so that
+ * the package only has to contain the JS bundle and the manifest. The manifest is a file of the package, at
+ * {@link CodePushConstants#LAZY_ASSET_MANIFEST_FILE_NAME} in the CodePush folder, shaped like:
+ *
+ * <pre>
+ * {
+ *   "baseUrl": "https://cdn.example.com/releases/1.2.0/",
+ *   "assets": {
+ *     "CodePush/drawable-xxhdpi/hero.png": { "hash": "&lt;SHA-256 of the file&gt;", "size": 123456 }
+ *   }
+ * }
+ * </pre>
+ *
+ * Asset paths are relative to the package folder and must stay inside it, and an asset is fetched from its own
+ * "url" or else from the base URL followed by its path. Since the manifest is part of the package, it is covered by the package hash
+ * and code signing, and every fetched asset is checked against the hash the manifest lists for it before it is
+ * moved into the package folder.
+ */
+public class CodePushLazyAssets {
+
+    private static final String ASSETS_KEY = "assets";
+    private static final String BASE_URL_KEY = "baseUrl";
+    private static final String HASH_KEY = "hash";
+    private static final String SIZE_KEY = "size";
+    private static final String URL_KEY = "url";
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CodePushLazyAssets");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    // Package folders with a prefetch that is queued or running.
+    private static final Set<String> sPrefetchingFolderPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // Makes an asset requested by the prefetch and by a resolve at the same time be fetched once.
+    private static final ConcurrentMap<String, Object> sFetchLocks = new ConcurrentHashMap<>();
+
+    private final String mPackageFolderPath;
+    private final CodePushHttpTransport mHttpTransport;
+    private final JSONObject mAssets;
+    private final String mBaseUrl;
+
+    public CodePushLazyAssets(String packageFolderPath, CodePushHttpTransport httpTransport) throws IOException {
+        mPackageFolderPath = packageFolderPath;
+        mHttpTransport = httpTransport;
+        String manifestPath = getManifestPath(packageFolderPath);
+        if (FileUtils.fileAtPathExists(manifestPath)) {
+            JSONObject manifest = CodePushUtils.getJsonObjectFromFile(manifestPath);
+            mAssets = getNormalizedAssets(manifest.optJSONObject(ASSETS_KEY));
+            mBaseUrl = manifest.optString(BASE_URL_KEY, null);
+        } else {
+            mAssets = new JSONObject();
+            mBaseUrl = null;
+        }
+    }
+
+    // Keys the assets by their normalized path, so that no asset is written outside the package folder.
+    private static JSONObject getNormalizedAssets(JSONObject assets) {
+        JSONObject normalizedAssets = new JSONObject();
+        if (assets == null) {
+            return normalizedAssets;
+        }
+
+        Iterator<String> relativePaths = assets.keys();
+        while (relativePaths.hasNext()) {
+            String relativePath = relativePaths.next();
+            String normalizedPath = CodePushStoredZip.normalizeEntryName(relativePath);
+            if (normalizedPath == null) {
+                throw new CodePushInvalidUpdateException("The asset manifest contains an invalid file path: " + relativePath);
+            }
+            CodePushUtils.setJSONValueForKey(normalizedAssets, normalizedPath, assets.optJSONObject(relativePath));
+        }
+        return normalizedAssets;
+    }
+
+    public static String getManifestPath(String packageFolderPath) {
+        return CodePushUtils.appendPathComponent(packageFolderPath,
+                CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/" + CodePushConstants.LAZY_ASSET_MANIFEST_FILE_NAME);
+    }
+
+    public List<String> getPendingAssets() {
+        List<String> pendingAssets = new ArrayList<>();
+        Iterator<String> relativePaths = mAssets.keys();
+        while (relativePaths.hasNext()) {
+            String relativePath = relativePaths.next();
+            if (!new File(mPackageFolderPath, relativePath).exists()) {
+                pendingAssets.add(relativePath);
+            }
+        }
+        return pendingAssets;
+    }
+
+    public JSONObject getStatus() {
+        List<String> pendingAssets = getPendingAssets();
+        long pendingBytes = 0;
+        for (String relativePath : pendingAssets) {
+            pendingBytes += mAssets.optJSONObject(relativePath).optLong(SIZE_KEY);
+        }
+
+        JSONObject status = new JSONObject();
+        CodePushUtils.setJSONValueForKey(status, "assetCount", mAssets.length());
+        CodePushUtils.setJSONValueForKey(status, "pendingAssetCount", pendingAssets.size());
+        CodePushUtils.setJSONValueForKey(status, "pendingBytes", pendingBytes);
+        CodePushUtils.setJSONValueForKey(status, "isPrefetching", sPrefetchingFolderPaths.contains(mPackageFolderPath));
+        return status;
+    }
+
+    /**
+     * Returns the absolute path of an asset listed in the manifest, fetching it first if it is pending, or null
+     * for any other path.
+     */
+    public String resolve(String relativePath) throws IOException {
+        String assetPath = CodePushStoredZip.normalizeEntryName(relativePath);
+        if (assetPath == null || !mAssets.has(assetPath)) {
+            return null;
+        }
+
+        fetch(assetPath);
+        return new File(mPackageFolderPath, assetPath).getAbsolutePath();
+    }
+
+    public void fetchAll() throws IOException {
+        for (String relativePath : getPendingAssets()) {
+            fetch(relativePath);
+        }
+    }
+
+    /**
+     * Fetches the pending assets one after another on a background thread. Calls made while a prefetch of the
+     * same package is queued or running are coalesced.
+     */
+    public void prefetchInBackground() {
+        if (getPendingAssets().isEmpty() || !sPrefetchingFolderPaths.add(mPackageFolderPath)) {
+            return;
+        }
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    fetchAll();
+                } catch (Exception e) {
+                    // Whatever is still pending is fetched on first access or by the next prefetch.
+                    CodePushUtils.log(e);
+                } finally {
+                    sPrefetchingFolderPaths.remove(mPackageFolderPath);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies the assets that this package lists with the same hash as another package, and that were already
+     * fetched for that package, instead of fetching them again.
+     */
+    public void copyFetchedAssetsFrom(CodePushLazyAssets otherAssets) throws IOException {
+        for (String relativePath : getPendingAssets()) {
+            JSONObject otherAsset = otherAssets.mAssets.optJSONObject(relativePath);
+            File otherFile = new File(otherAssets.mPackageFolderPath, relativePath);
+            if (otherAsset == null || !otherFile.exists()
+                    || !otherAsset.optString(HASH_KEY).equals(mAssets.optJSONObject(relativePath).optString(HASH_KEY))) {
+                continue;
+            }
+
+            File file = new File(mPackageFolderPath, relativePath);
+            File copyFile = new File(file.getPath() + ".download");
+            file.getParentFile().mkdirs();
+            FileUtils.copyFile(otherFile, copyFile);
+            if (!copyFile.renameTo(file)) {
+                throw new IOException("Unable to move " + copyFile + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Deletes the assets of this package from a folder that the package was copied into, e.g. to merge a diff
+     * update, which must not contain them.
+     */
+    public void deleteAssetsFrom(String folderPath) {
+        Iterator<String> relativePaths = mAssets.keys();
+        while (relativePaths.hasNext()) {
+            String assetPath = CodePushUtils.appendPathComponent(folderPath, relativePaths.next());
+            FileUtils.deleteFileAtPathSilently(assetPath);
+            // Left over by a fetch that was interrupted.
+            FileUtils.deleteFileAtPathSilently(assetPath + ".download");
+        }
+    }
+
+    private void fetch(String relativePath) throws IOException {
+        File file = new File(mPackageFolderPath, relativePath);
+        Object fetchLock = new Object();
+        Object existingFetchLock = sFetchLocks.putIfAbsent(file.getAbsolutePath(), fetchLock);
+        synchronized (existingFetchLock != null ? existingFetchLock : fetchLock) {
+            if (file.exists()) {
+                return;
+            }
+
+            long startedAt = CodePushPerformanceMetrics.startTimer();
+            long traceStartedAt = CodePushTracer.beginSection("fetchLazyAsset");
+            try {
+                fetchInternal(relativePath, file);
+            } finally {
+                CodePushTracer.endSection("fetchLazyAsset", traceStartedAt);
+                CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.FETCH_LAZY_ASSET, startedAt);
+            }
+        }
+    }
+
+    private void fetchInternal(String relativePath, File file) throws IOException {
+        if (!new File(mPackageFolderPath).isDirectory()) {
+            // The package was removed in the meantime, e.g. by a rollback.
+            throw new IOException("Unable to fetch " + relativePath + ", " + mPackageFolderPath + " does not exist");
+        }
+
+        JSONObject asset = mAssets.optJSONObject(relativePath);
+        String url = asset.optString(URL_KEY, null);
+        if (url == null) {
+            if (mBaseUrl == null) {
+                throw new CodePushUnknownException("The asset manifest has neither a base URL nor a URL for " + relativePath);
+            }
+            url = mBaseUrl + relativePath;
+        }
+
+        CodePushUtils.log(CodePushLogLevel.DEBUG, "Fetching asset " + relativePath + " from " + url);
+        file.getParentFile().mkdirs();
+        File downloadFile = new File(file.getPath() + ".download");
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("Unable to compute hash of update contents.", e);
+        }
+
+        CodePushHttpResponse response = mHttpTransport.execute(new CodePushHttpRequest(url));
+        FileOutputStream fos = null;
+        byte[] data = CodePushBufferPool.acquire(CodePushConstants.DOWNLOAD_BUFFER_SIZE);
+        long receivedBytes = 0;
+        try {
+            int statusCode = response.getStatusCode();
+            if (statusCode < HttpURLConnection.HTTP_OK || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                throw new IOException("Received HTTP status " + statusCode + " for " + url);
+            }
+
+            InputStream body = response.getBody();
+            fos = new FileOutputStream(downloadFile);
+            int numBytesRead;
+            while ((numBytesRead = body.read(data)) >= 0) {
+                messageDigest.update(data, 0, numBytesRead);
+                fos.write(data, 0, numBytesRead);
+                receivedBytes += numBytesRead;
+            }
+        } finally {
+            CodePushBufferPool.release(data);
+            if (fos != null) fos.close();
+            response.close();
+        }
+
+        CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.FETCH_LAZY_ASSET_BYTES, receivedBytes);
+        String hash = String.format("%064x", new BigInteger(1, messageDigest.digest()));
+        if (!hash.equals(asset.optString(HASH_KEY))) {
+            FileUtils.deleteFileOrFolderSilently(downloadFile);
+            CodePushUtils.log(CodePushLogLevel.WARN, "Expected hash: " + asset.optString(HASH_KEY) + ", actual hash: " + hash + " for " + relativePath);
+            throw new CodePushInvalidUpdateException("The asset " + relativePath + " failed the data integrity check.");
+        }
+
+        if (!downloadFile.renameTo(file)) {
+            throw new IOException("Unable to move " + downloadFile + " to " + file);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.microsoft.codepush.react;
+
+// The values match the android.util.Log priorities.
+public enum CodePushLogLevel {
+    VERBOSE(2),
+    DEBUG(3),
+    INFO(4),
+    WARN(5),
+    ERROR(6),
+    NONE(Integer.MAX_VALUE);
+
+    private final int value;
+    CodePushLogLevel(int value) {
+        this.value = value;
+    }
+    public int getValue() {
+        return this.value;
+    }
+}
@@ -0,0 +1,8 @@
+package com.microsoft.codepush.react;
+
+/**
+ * Writes the log messages that passed the CodePush log level to the platform log, e.g. logcat on Android.
+ */
+public interface CodePushLogger {
+    void log(CodePushLogLevel level, String message);
+}
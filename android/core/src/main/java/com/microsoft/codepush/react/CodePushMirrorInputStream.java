@@ -0,0 +1,392 @@
+package com.microsoft.codepush.react;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Streams a package from whichever of several mirrors serves it best.
+ *
+ * The first {@link #RACE_COUNT} candidates are requested concurrently and the body of the one whose
+ * response arrives first is read, the others are closed but remain candidates. If reading fails, or the
+ * throughput of a window drops below {@link #COLLAPSE_RATIO} of the best window seen so far, the download
+ * continues on the most promising remaining candidate with a Range request from the current offset. A
+ * mirror that cannot resume the download is skipped. Outcomes are recorded in {@link CodePushMirrorStats}.
+ */
+class CodePushMirrorInputStream extends InputStream {
+
+    private static final int RACE_COUNT = 2;
+    private static final long THROUGHPUT_WINDOW_MS = 1000;
+    private static final double COLLAPSE_RATIO = 0.25;
+
+    // Daemon threads, so that a download racing in the background never keeps a plain JVM host alive.
+    private static final ExecutorService sExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CodePushMirror");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static class Attempt {
+        final String url;
+        final CodePushHttpResponse response;
+        final long firstByteLatencyMs;
+        // Set instead of the response if the request of a raced mirror failed.
+        final IOException error;
+
+        Attempt(String url, CodePushHttpResponse response, long firstByteLatencyMs) {
+            this.url = url;
+            this.response = response;
+            this.firstByteLatencyMs = firstByteLatencyMs;
+            this.error = null;
+        }
+
+        Attempt(String url, IOException error) {
+            this.url = url;
+            this.response = null;
+            this.firstByteLatencyMs = 0;
+            this.error = error;
+        }
+    }
+
+    private final CodePushHttpTransport mHttpTransport;
+    private final CodePushMirrorStats mMirrorStats;
+    private final Map<String, String> mHeaders;
+    private final LinkedList<String> mCandidateUrls;
+
+    private Attempt mCurrentAttempt;
+    private InputStream mCurrentBody;
+    private long mContentLength = -1;
+    private long mPosition = 0;
+    private boolean mShouldSwitchMirror = false;
+    private boolean mIsComplete = false;
+
+    // Throughput of the current mirror.
+    private long mMirrorStartedAt;
+    private long mMirrorBytes;
+    private long mWindowStartedAt;
+    private long mWindowBytes;
+    private double mPeakBytesPerMs;
+
+    public CodePushMirrorInputStream(CodePushHttpTransport httpTransport, CodePushMirrorStats mirrorStats,
+                                     List<String> urls, Map<String, String> headers) throws IOException {
+        mHttpTransport = httpTransport;
+        mMirrorStats = mirrorStats;
+        mHeaders = headers;
+        mCandidateUrls = new LinkedList<>(mirrorStats.sort(urls));
+        race();
+    }
+
+    /**
+     * Returns the total length of the package in bytes, or -1 if the mirror did not report it.
+     */
+    public long getContentLength() {
+        return mContentLength;
+    }
+
+    public String getCurrentUrl() {
+        return mCurrentAttempt.url;
+    }
+
+    /**
+     * Returns the ETag the current mirror sent for the package, or null if it did not send one.
+     */
+    public String getEntityTag() {
+        return mCurrentAttempt.response.getHeader("ETag");
+    }
+
+    /**
+     * Returns whether the current mirror advertises support for byte range requests.
+     */
+    public boolean isRangeSupported() {
+        return "bytes".equalsIgnoreCase(mCurrentAttempt.response.getHeader("Accept-Ranges"));
+    }
+
+    /**
+     * Returns the URL of the mirror at the same path as {@code url}, e.g. to derive a CDN mirror
+     * of a package URL from the mirror's base URL.
+     */
+    static String rebaseUrl(String url, String mirrorBaseUrl) throws MalformedURLException {
+        String file = new URL(url).getFile();
+        if (mirrorBaseUrl.endsWith("/")) {
+            mirrorBaseUrl = mirrorBaseUrl.substring(0, mirrorBaseUrl.length() - 1);
+        }
+        return mirrorBaseUrl + file;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buffer = new byte[1];
+        return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (mShouldSwitchMirror) {
+            mShouldSwitchMirror = false;
+            Attempt previousAttempt = mCurrentAttempt;
+            InputStream previousBody = mCurrentBody;
+            long previousMirrorBytes = mMirrorBytes;
+            long previousMirrorDurationMs = now() - mMirrorStartedAt;
+            if (openNextCandidate()) {
+                CodePushUtils.log(CodePushLogLevel.WARN, "Throughput of " + previousAttempt.url + " collapsed, continuing on " + mCurrentAttempt.url);
+                mMirrorStats.recordSuccess(previousAttempt.url, previousAttempt.firstByteLatencyMs, previousMirrorBytes, previousMirrorDurationMs);
+                closeQuietly(previousBody, previousAttempt.response);
+            }
+        }
+
+        while (true) {
+            int numBytesRead;
+            try {
+                numBytesRead = mCurrentBody.read(buffer, offset, length);
+                if (numBytesRead < 0 && mContentLength >= 0 && mPosition < mContentLength) {
+                    throw new EOFException("Connection closed after " + mPosition + " of " + mContentLength + " bytes");
+                }
+            } catch (IOException e) {
+                CodePushUtils.log(CodePushLogLevel.WARN, "Download from " + mCurrentAttempt.url + " failed: " + e.getMessage());
+                mMirrorStats.recordFailure(mCurrentAttempt.url);
+                closeQuietly(mCurrentBody, mCurrentAttempt.response);
+                if (!openNextCandidate()) {
+                    throw e;
+                }
+                continue;
+            }
+
+            if (numBytesRead > 0) {
+                onBytesRead(numBytesRead);
+            } else if (numBytesRead < 0) {
+                mIsComplete = true;
+            }
+            return numBytesRead;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mCurrentAttempt == null) {
+            return;
+        }
+
+        if (mIsComplete) {
+            mMirrorStats.recordSuccess(mCurrentAttempt.url, mCurrentAttempt.firstByteLatencyMs, mMirrorBytes, now() - mMirrorStartedAt);
+        }
+        try {
+            mCurrentBody.close();
+        } finally {
+            mCurrentAttempt.response.close();
+            mCurrentAttempt = null;
+        }
+    }
+
+    private void onBytesRead(int numBytesRead) {
+        mPosition += numBytesRead;
+        mMirrorBytes += numBytesRead;
+        mWindowBytes += numBytesRead;
+
+        long now = now();
+        long windowDurationMs = now - mWindowStartedAt;
+        if (windowDurationMs < THROUGHPUT_WINDOW_MS) {
+            return;
+        }
+
+        double bytesPerMs = (double) mWindowBytes / windowDurationMs;
+        if (bytesPerMs < mPeakBytesPerMs * COLLAPSE_RATIO && !mCandidateUrls.isEmpty()) {
+            mShouldSwitchMirror = true;
+        }
+        mPeakBytesPerMs = Math.max(mPeakBytesPerMs, bytesPerMs);
+        mWindowStartedAt = now;
+        mWindowBytes = 0;
+    }
+
+    private void race() throws IOException {
+        if (mCandidateUrls.size() == 1) {
+            use(execute(mCandidateUrls.removeFirst(), 0));
+            return;
+        }
+
+        CompletionService<Attempt> completionService = new ExecutorCompletionService<>(sExecutor);
+        final List<String> racedUrls = new ArrayList<>();
+        while (racedUrls.size() < RACE_COUNT && !mCandidateUrls.isEmpty()) {
+            final String url = mCandidateUrls.removeFirst();
+            racedUrls.add(url);
+            completionService.submit(new Callable<Attempt>() {
+                @Override
+                public Attempt call() {
+                    try {
+                        return execute(url, 0);
+                    } catch (IOException e) {
+                        return new Attempt(url, e);
+                    }
+                }
+            });
+        }
+
+        IOException lastError = null;
+        for (int i = 0; i < racedUrls.size(); i++) {
+            Attempt attempt = takeAttempt(completionService);
+            if (attempt != null) {
+                use(attempt);
+                // The mirrors that lost the race can still take over the rest of the download.
+                racedUrls.remove(attempt.url);
+                mCandidateUrls.addAll(0, racedUrls);
+                closeLosers(completionService, racedUrls.size() - i);
+                return;
+            }
+        }
+
+        if (!openNextCandidate()) {
+            throw new IOException("Unable to download package from any of " + racedUrls);
+        }
+    }
+
+    private Attempt takeAttempt(CompletionService<Attempt> completionService) throws IOException {
+        Future<Attempt> future;
+        try {
+            future = completionService.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        Attempt attempt;
+        try {
+            attempt = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            CodePushUtils.log(CodePushLogLevel.WARN, "Mirror request failed: " + e.getCause().getMessage());
+            return null;
+        }
+
+        if (attempt.error != null) {
+            CodePushUtils.log(CodePushLogLevel.WARN, "Mirror request to " + attempt.url + " failed: " + attempt.error.getMessage());
+            mMirrorStats.recordFailure(attempt.url);
+            return null;
+        }
+        return attempt;
+    }
+
+    // Closes the responses of the mirrors that lost the race as they arrive, recording their latency.
+    private void closeLosers(final CompletionService<Attempt> completionService, final int loserCount) {
+        if (loserCount == 0) {
+            return;
+        }
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < loserCount; i++) {
+                    try {
+                        Attempt attempt = takeAttempt(completionService);
+                        if (attempt != null) {
+                            mMirrorStats.recordSuccess(attempt.url, attempt.firstByteLatencyMs, 0, 0);
+                            attempt.response.close();
+                        }
+                    } catch (IOException e) {
+                        // Nothing left to clean up.
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean openNextCandidate() {
+        // Order by what is known by now, e.g. the latency of the mirrors that lost the race.
+        List<String> sortedCandidateUrls = mMirrorStats.sort(mCandidateUrls);
+        mCandidateUrls.clear();
+        mCandidateUrls.addAll(sortedCandidateUrls);
+        while (!mCandidateUrls.isEmpty()) {
+            String url = mCandidateUrls.removeFirst();
+            try {
+                use(execute(url, mPosition));
+                return true;
+            } catch (IOException e) {
+                CodePushUtils.log(CodePushLogLevel.WARN, "Unable to continue download from " + url + ": " + e.getMessage());
+                mMirrorStats.recordFailure(url);
+            }
+        }
+
+        return false;
+    }
+
+    private void use(Attempt attempt) throws IOException {
+        long remainingBytes = attempt.response.getContentLength();
+        if (mPosition == 0) {
+            mContentLength = remainingBytes;
+        } else if (mContentLength >= 0 && remainingBytes >= 0 && mPosition + remainingBytes != mContentLength) {
+            attempt.response.close();
+            mMirrorStats.recordFailure(attempt.url);
+            throw new IOException("Mirror " + attempt.url + " serves a package of a different size");
+        }
+
+        mCurrentAttempt = attempt;
+        mCurrentBody = attempt.response.getBody();
+        mMirrorStartedAt = now();
+        mMirrorBytes = 0;
+        mWindowStartedAt = mMirrorStartedAt;
+        mWindowBytes = 0;
+        mPeakBytesPerMs = 0;
+    }
+
+    private Attempt execute(String url, long offset) throws IOException {
+        CodePushHttpRequest request = new CodePushHttpRequest(url).setHeaders(mHeaders);
+        if (offset > 0) {
+            request.setHeader("Range", "bytes=" + offset + "-");
+        }
+
+        long startedAt = now();
+        CodePushHttpResponse response = mHttpTransport.execute(request);
+        long firstByteLatencyMs = now() - startedAt;
+        CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.FIRST_BYTE, firstByteLatencyMs * 1000);
+        int statusCode = response.getStatusCode();
+        boolean isExpectedStatus = offset > 0
+                ? statusCode == HttpURLConnection.HTTP_PARTIAL && isContentRangeStartingAt(response.getHeader("Content-Range"), offset)
+                : statusCode >= HttpURLConnection.HTTP_OK && statusCode < HttpURLConnection.HTTP_MULT_CHOICE;
+        if (!isExpectedStatus) {
+            response.close();
+            throw new IOException("Received HTTP status " + statusCode + " for " + request);
+        }
+
+        return new Attempt(url, response, firstByteLatencyMs);
+    }
+
+    private static boolean isContentRangeStartingAt(String contentRange, long offset) {
+        return contentRange != null && contentRange.startsWith("bytes " + offset + "-");
+    }
+
+    private static void closeQuietly(InputStream body, CodePushHttpResponse response) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // The mirror is abandoned anyway.
+        }
+        try {
+            response.close();
+        } catch (IOException e) {
+            // The mirror is abandoned anyway.
+        }
+    }
+
+    private static long now() {
+        return CodePushPlatform.getClock().nanoTime() / 1000000;
+    }
+}
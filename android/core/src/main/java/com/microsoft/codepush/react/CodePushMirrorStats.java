@@ -0,0 +1,153 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Persists how each download mirror performed, keyed by scheme and authority, so that later downloads
+ * start on the historically fastest one.
+ *
+ * Latency and throughput are exponentially smoothed. Mirrors are ordered by the estimated time to fetch
+ * a reference sized package; mirrors without history come next in their configured order, and mirrors
+ * that failed their last attempts come last.
+ */
+class CodePushMirrorStats {
+
+    private static final String LATENCY_KEY = "latencyMs";
+    private static final String BYTES_PER_SECOND_KEY = "bytesPerSecond";
+    private static final String FAILURE_COUNT_KEY = "failureCount";
+
+    private static final double SMOOTHING_FACTOR = 0.3;
+    private static final long REFERENCE_PACKAGE_SIZE = 1024 * 1024;
+
+    // Update managers of all resources share one stats file.
+    private static final Object sLock = new Object();
+
+    private final String mFilePath;
+
+    public CodePushMirrorStats(String filePath) {
+        mFilePath = filePath;
+    }
+
+    /**
+     * Returns the given URLs ordered from the most to the least promising mirror.
+     */
+    public List<String> sort(List<String> urls) {
+        final JSONObject stats;
+        synchronized (sLock) {
+            stats = read();
+        }
+
+        List<String> sortedUrls = new ArrayList<>(urls);
+        // The sort is stable, so mirrors that compare equal keep their configured order.
+        Collections.sort(sortedUrls, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                JSONObject firstStats = stats.optJSONObject(getMirrorKey(first));
+                JSONObject secondStats = stats.optJSONObject(getMirrorKey(second));
+                int failureOrder = compareLongs(getFailureCount(firstStats), getFailureCount(secondStats));
+                if (failureOrder != 0) {
+                    return failureOrder;
+                }
+
+                return Double.compare(getEstimatedCost(firstStats), getEstimatedCost(secondStats));
+            }
+        });
+        return sortedUrls;
+    }
+
+    public void recordSuccess(String url, long firstByteLatencyMs, long bytes, long durationMs) {
+        synchronized (sLock) {
+            JSONObject stats = read();
+            JSONObject mirrorStats = getOrCreateMirrorStats(stats, url);
+            CodePushUtils.setJSONValueForKey(mirrorStats, LATENCY_KEY,
+                    smooth(mirrorStats.optDouble(LATENCY_KEY, Double.NaN), firstByteLatencyMs));
+            // Short transfers are dominated by latency and say little about throughput.
+            if (bytes > 0 && durationMs > 0) {
+                CodePushUtils.setJSONValueForKey(mirrorStats, BYTES_PER_SECOND_KEY,
+                        smooth(mirrorStats.optDouble(BYTES_PER_SECOND_KEY, Double.NaN), bytes * 1000.0 / durationMs));
+            }
+            CodePushUtils.setJSONValueForKey(mirrorStats, FAILURE_COUNT_KEY, 0);
+            write(stats);
+        }
+    }
+
+    public void recordFailure(String url) {
+        synchronized (sLock) {
+            JSONObject stats = read();
+            JSONObject mirrorStats = getOrCreateMirrorStats(stats, url);
+            CodePushUtils.setJSONValueForKey(mirrorStats, FAILURE_COUNT_KEY, mirrorStats.optLong(FAILURE_COUNT_KEY, 0) + 1);
+            write(stats);
+        }
+    }
+
+    static String getMirrorKey(String url) {
+        try {
+            URL parsedUrl = new URL(url);
+            return parsedUrl.getProtocol() + "://" + parsedUrl.getAuthority();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    private static long getFailureCount(JSONObject mirrorStats) {
+        return mirrorStats == null ? 0 : mirrorStats.optLong(FAILURE_COUNT_KEY, 0);
+    }
+
+    private static double getEstimatedCost(JSONObject mirrorStats) {
+        if (mirrorStats == null || !mirrorStats.has(BYTES_PER_SECOND_KEY)) {
+            return Double.MAX_VALUE;
+        }
+
+        return mirrorStats.optDouble(LATENCY_KEY, 0)
+                + REFERENCE_PACKAGE_SIZE * 1000.0 / mirrorStats.optDouble(BYTES_PER_SECOND_KEY, 1);
+    }
+
+    private static double smooth(double previousValue, double sample) {
+        return Double.isNaN(previousValue) ? sample : previousValue + SMOOTHING_FACTOR * (sample - previousValue);
+    }
+
+    private static int compareLongs(long first, long second) {
+        return first < second ? -1 : (first == second ? 0 : 1);
+    }
+
+    private JSONObject getOrCreateMirrorStats(JSONObject stats, String url) {
+        String mirrorKey = getMirrorKey(url);
+        JSONObject mirrorStats = stats.optJSONObject(mirrorKey);
+        if (mirrorStats == null) {
+            mirrorStats = new JSONObject();
+            CodePushUtils.setJSONValueForKey(stats, mirrorKey, mirrorStats);
+        }
+        return mirrorStats;
+    }
+
+    private JSONObject read() {
+        if (!FileUtils.fileAtPathExists(mFilePath)) {
+            return new JSONObject();
+        }
+
+        try {
+            return CodePushUtils.getJsonObjectFromFile(mFilePath);
+        } catch (IOException | CodePushMalformedDataException e) {
+            // The stats only affect the order in which mirrors are tried.
+            return new JSONObject();
+        }
+    }
+
+    private void write(JSONObject stats) {
+        try {
+            new File(mFilePath).getParentFile().mkdirs();
+            CodePushUtils.writeJsonToFile(stats, mFilePath);
+        } catch (IOException e) {
+            CodePushUtils.log(CodePushLogLevel.WARN, "Unable to save download mirror statistics: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.microsoft.codepush.react;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * The default {@link CodePushHttpTransport}, backed by the OkHttp client that React Native already ships.
+ *
+ * Connections are kept alive in a pool and reused by later downloads and update checks to the same host,
+ * and HTTP/2 is negotiated over TLS when the server supports it, so several requests can share one
+ * connection. Unlike a raw HttpURLConnection every request gets connect and read timeouts.
+ */
+public class CodePushOkHttpTransport implements CodePushHttpTransport {
+
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_DURATION_MS = 5 * 60 * 1000;
+
+    private final OkHttpClient mClient;
+    private final Map<String, String> mDefaultHeaders;
+
+    /**
+     * @param defaultHeaders headers added to every request unless the request sets them itself, may be null.
+     */
+    public CodePushOkHttpTransport(long connectTimeoutMs, long readTimeoutMs, Map<String, String> defaultHeaders) {
+        mClient = new OkHttpClient.Builder()
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION_MS, TimeUnit.MILLISECONDS))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .eventListenerFactory(new EventListener.Factory() {
+                    @Override
+                    public EventListener create(Call call) {
+                        return new ConnectTimingListener();
+                    }
+                })
+                .build();
+        mDefaultHeaders = defaultHeaders != null
+                ? new LinkedHashMap<>(defaultHeaders)
+                : new LinkedHashMap<String, String>();
+    }
+
+    @Override
+    public CodePushHttpResponse execute(CodePushHttpRequest request) throws IOException {
+        HttpUrl url = HttpUrl.parse(request.getUrl());
+        if (url == null) {
+            throw new MalformedURLException("Unable to parse URL " + request.getUrl());
+        }
+
+        Request.Builder builder = new Request.Builder().url(url).method(request.getMethod(), null);
+        for (Map.Entry<String, String> header : mDefaultHeaders.entrySet()) {
+            if (request.getHeader(header.getKey()) == null) {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+
+        return new OkHttpResponse(mClient.newCall(builder.build()).execute());
+    }
+
+    // Only sees new connections, a request served from the pool records no connect time.
+    private static class ConnectTimingListener extends EventListener {
+
+        private long mConnectStartedAt;
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            mConnectStartedAt = CodePushPerformanceMetrics.startTimer();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.CONNECT, mConnectStartedAt);
+        }
+    }
+
+    private static class OkHttpResponse implements CodePushHttpResponse {
+
+        private final Response mResponse;
+
+        OkHttpResponse(Response response) {
+            mResponse = response;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return mResponse.code();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mResponse.header(name);
+        }
+
+        @Override
+        public long getContentLength() {
+            ResponseBody body = mResponse.body();
+            return body != null ? body.contentLength() : -1;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return mResponse.body().byteStream();
+        }
+
+        @Override
+        public void close() {
+            // Closing the response (rather than disconnecting) returns the connection to the pool.
+            mResponse.close();
+        }
+    }
+}
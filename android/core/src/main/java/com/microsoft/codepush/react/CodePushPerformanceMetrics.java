@@ -0,0 +1,187 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory timers and counters for the steps of the update pipeline, shared by all resources.
+ *
+ * Every metric is a histogram with power-of-two buckets held in primitive atomic arrays, so recording a
+ * value allocates nothing and takes no lock. Durations are recorded in microseconds. The aggregated
+ * values are returned by {@link #getSnapshot()}, and every recorded value can additionally be forwarded
+ * to the host app's own monitoring through a {@link Listener}.
+ */
+public class CodePushPerformanceMetrics {
+
+    public enum Unit {
+        MICROSECONDS,
+        BYTES,
+        BYTES_PER_SECOND
+    }
+
+    public enum Metric {
+        CONNECT("connect", Unit.MICROSECONDS),
+        FIRST_BYTE("firstByte", Unit.MICROSECONDS),
+        DOWNLOAD("download", Unit.MICROSECONDS),
+        DOWNLOAD_BYTES("downloadBytes", Unit.BYTES),
+        DOWNLOAD_THROUGHPUT("downloadThroughput", Unit.BYTES_PER_SECOND),
+        UNZIP("unzip", Unit.MICROSECONDS),
+        UNZIP_BYTES("unzipBytes", Unit.BYTES),
+        DIFF_MERGE("diffMerge", Unit.MICROSECONDS),
+        VERIFY_FOLDER_HASH("verifyFolderHash", Unit.MICROSECONDS),
+        VERIFY_FOLDER_HASH_BYTES("verifyFolderHashBytes", Unit.BYTES),
+        VERIFY_SIGNATURE("verifyUpdateSignature", Unit.MICROSECONDS),
+        FETCH_LAZY_ASSET("fetchLazyAsset", Unit.MICROSECONDS),
+        FETCH_LAZY_ASSET_BYTES("fetchLazyAssetBytes", Unit.BYTES),
+        INSTALL_PACKAGE("installPackage", Unit.MICROSECONDS),
+        LOAD_BUNDLE("loadBundle", Unit.MICROSECONDS),
+        GET_JS_BUNDLE_FILE("getJSBundleFile", Unit.MICROSECONDS),
+        FILE_COPY_BYTES("fileCopyBytes", Unit.BYTES),
+        FILE_READ_BYTES("fileReadBytes", Unit.BYTES),
+        FILE_WRITE_BYTES("fileWriteBytes", Unit.BYTES);
+
+        private final String mName;
+        private final Unit mUnit;
+
+        Metric(String name, Unit unit) {
+            mName = name;
+            mUnit = unit;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public Unit getUnit() {
+            return mUnit;
+        }
+    }
+
+    /**
+     * Receives every recorded value, on the thread that recorded it. Implementations must be fast and thread safe.
+     */
+    public interface Listener {
+        void onMetricRecorded(Metric metric, long value);
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+    private static final Histogram[] sHistograms = new Histogram[METRICS.length];
+    static {
+        for (int i = 0; i < sHistograms.length; i++) {
+            sHistograms[i] = new Histogram();
+        }
+    }
+
+    private static volatile Listener sListener;
+
+    public static void setListener(Listener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * Returns a start timestamp to be passed to {@link #stopTimer}.
+     */
+    public static long startTimer() {
+        return CodePushPlatform.getClock().nanoTime();
+    }
+
+    public static void stopTimer(Metric metric, long startedAtNanos) {
+        record(metric, (CodePushPlatform.getClock().nanoTime() - startedAtNanos) / 1000);
+    }
+
+    public static void record(Metric metric, long value) {
+        sHistograms[metric.ordinal()].record(value);
+        Listener listener = sListener;
+        if (listener != null) {
+            listener.onMetricRecorded(metric, value);
+        }
+    }
+
+    /**
+     * Returns, per metric that has been recorded, its count, sum, min, max, mean and estimated
+     * p50, p90 and p99. Durations are reported in milliseconds.
+     */
+    public static JSONObject getSnapshot() {
+        JSONObject snapshot = new JSONObject();
+        for (Metric metric : METRICS) {
+            Histogram histogram = sHistograms[metric.ordinal()];
+            long count = histogram.mCount.get();
+            if (count == 0) {
+                continue;
+            }
+
+            double scale = metric.getUnit() == Unit.MICROSECONDS ? 0.001 : 1;
+            JSONObject metricSnapshot = new JSONObject();
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "unit", metric.getUnit() == Unit.MICROSECONDS ? "ms" : metric.getUnit().name().toLowerCase());
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "count", count);
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "sum", histogram.mSum.get() * scale);
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "min", histogram.mMin.get() * scale);
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "max", histogram.mMax.get() * scale);
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "mean", (double) histogram.mSum.get() / count * scale);
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "p50", histogram.getPercentile(0.5) * scale);
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "p90", histogram.getPercentile(0.9) * scale);
+            CodePushUtils.setJSONValueForKey(metricSnapshot, "p99", histogram.getPercentile(0.99) * scale);
+            CodePushUtils.setJSONValueForKey(snapshot, metric.getName(), metricSnapshot);
+        }
+
+        return snapshot;
+    }
+
+    public static void reset() {
+        for (Histogram histogram : sHistograms) {
+            histogram.reset();
+        }
+    }
+
+    // Bucket i counts the values in [2^i, 2^(i+1)), bucket 0 also counts 0.
+    private static class Histogram {
+        private final AtomicLongArray mBuckets = new AtomicLongArray(64);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSum = new AtomicLong();
+        private final AtomicLong mMin = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong mMax = new AtomicLong(Long.MIN_VALUE);
+
+        void record(long value) {
+            value = Math.max(0, value);
+            mBuckets.incrementAndGet(63 - Long.numberOfLeadingZeros(value | 1));
+            mCount.incrementAndGet();
+            mSum.addAndGet(value);
+
+            long min;
+            while (value < (min = mMin.get()) && !mMin.compareAndSet(min, value)) {
+                // Retry until the minimum is published.
+            }
+            long max;
+            while (value > (max = mMax.get()) && !mMax.compareAndSet(max, value)) {
+                // Retry until the maximum is published.
+            }
+        }
+
+        // Upper bound of the bucket containing the percentile, clamped to the observed maximum.
+        long getPercentile(double percentile) {
+            long count = mCount.get();
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length(); i++) {
+                seen += mBuckets.get(i);
+                if (seen >= rank) {
+                    long upperBound = i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                    return Math.min(upperBound, mMax.get());
+                }
+            }
+            return mMax.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < mBuckets.length(); i++) {
+                mBuckets.set(i, 0);
+            }
+            mCount.set(0);
+            mSum.set(0);
+            mMin.set(Long.MAX_VALUE);
+            mMax.set(Long.MIN_VALUE);
+        }
+    }
+}
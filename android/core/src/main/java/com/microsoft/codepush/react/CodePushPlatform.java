@@ -0,0 +1,62 @@
+package com.microsoft.codepush.react;
+
+import java.util.Base64;
+
+/**
+ * The services the core update engine needs from the platform it runs on.
+ *
+ * The defaults only rely on the JVM, so the engine can run on a desktop JVM, e.g. in benchmarks. The Android
+ * module replaces them with logcat and android.util.Base64 based implementations, see CodePushAndroidPlatform.
+ */
+public class CodePushPlatform {
+
+    private static volatile CodePushLogger sLogger = new CodePushLogger() {
+        @Override
+        public void log(CodePushLogLevel level, String message) {
+            System.err.println(level.name().charAt(0) + "/" + CodePushConstants.REACT_NATIVE_LOG_TAG + ": " + message);
+        }
+    };
+
+    private static volatile CodePushBase64 sBase64 = new CodePushBase64() {
+        @Override
+        public byte[] decode(String encoded) {
+            return Base64.getMimeDecoder().decode(encoded);
+        }
+    };
+
+    private static volatile CodePushClock sClock = new CodePushClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    public static CodePushLogger getLogger() {
+        return sLogger;
+    }
+
+    public static void setLogger(CodePushLogger logger) {
+        sLogger = logger;
+    }
+
+    public static CodePushBase64 getBase64() {
+        return sBase64;
+    }
+
+    public static void setBase64(CodePushBase64 base64) {
+        sBase64 = base64;
+    }
+
+    public static CodePushClock getClock() {
+        return sClock;
+    }
+
+    public static void setClock(CodePushClock clock) {
+        sClock = clock;
+    }
+}
@@ -0,0 +1,65 @@
+package com.microsoft.codepush.react;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recently added items, overwriting the oldest one once full.
+ *
+ * Writers claim a slot with a single atomic increment and never block each other or the reader. An item that is
+ * overwritten while a snapshot is being taken is skipped rather than returned out of order.
+ */
+class CodePushRingBuffer<T> {
+
+    private static class Slot<T> {
+        final long sequence;
+        final T item;
+
+        Slot(long sequence, T item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+
+    private final AtomicReferenceArray<Slot<T>> mSlots;
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    public CodePushRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ring buffer capacity must be positive");
+        }
+
+        mSlots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(T item) {
+        long sequence = mNextSequence.getAndIncrement();
+        mSlots.set((int) (sequence % mSlots.length()), new Slot<>(sequence, item));
+    }
+
+    /**
+     * Returns the buffered items, oldest first.
+     */
+    public List<T> snapshot() {
+        long nextSequence = mNextSequence.get();
+        long firstSequence = Math.max(0, nextSequence - mSlots.length());
+        List<T> items = new ArrayList<>((int) (nextSequence - firstSequence));
+        for (long sequence = firstSequence; sequence < nextSequence; sequence++) {
+            Slot<T> slot = mSlots.get((int) (sequence % mSlots.length()));
+            // The slot is still being written, or has already been reused by a newer item.
+            if (slot != null && slot.sequence == sequence) {
+                items.add(slot.item);
+            }
+        }
+
+        return items;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSlots.length(); i++) {
+            mSlots.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.microsoft.codepush.react;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads a large package over several connections at once, each fetching its own byte range into a
+ * preallocated file, which keeps high bandwidth, high latency links busy where a single stream cannot.
+ *
+ * The connection that discovered the package size is reused for the first segment. A segment whose
+ * connection failed is fetched again from where it stopped. Every range must report the size of the whole
+ * package and, if the mirror sent an ETag, come from that same version of it (If-Range), so that a package
+ * republished mid-download fails fast rather than being stitched together from two versions. The bytes
+ * themselves are verified by the package hash once the download completes.
+ */
+class CodePushSegmentedDownload {
+
+    private static final int MAX_SEGMENT_ATTEMPTS = 3;
+
+    // Another version of the package is being served; fetching the range again cannot help.
+    private static class PackageChangedException extends IOException {
+        PackageChangedException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Segment {
+        final int index;
+        final long start;
+        final long length;
+        long receivedBytes = 0;
+
+        Segment(int index, long start, long length) {
+            this.index = index;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    private final CodePushHttpTransport mHttpTransport;
+    private final String mUrl;
+    private final String mEntityTag;
+    private final long mTotalBytes;
+    private final DownloadProgress mDownloadProgress;
+    private final List<Segment> mSegments = new ArrayList<>();
+
+    /**
+     * @param entityTag the ETag of the response that discovered the package size, or null if the mirror
+     *                  did not send one.
+     */
+    public CodePushSegmentedDownload(CodePushHttpTransport httpTransport, String url, String entityTag, long totalBytes,
+                                     int segmentCount, DownloadProgress downloadProgress) {
+        mHttpTransport = httpTransport;
+        mUrl = url;
+        mEntityTag = entityTag;
+        mTotalBytes = totalBytes;
+        mDownloadProgress = downloadProgress;
+
+        long segmentLength = (totalBytes + segmentCount - 1) / segmentCount;
+        for (long start = 0; start < totalBytes; start += segmentLength) {
+            mSegments.add(new Segment(mSegments.size(), start, Math.min(segmentLength, totalBytes - start)));
+        }
+    }
+
+    /**
+     * Writes the whole package to {@code destination}, reading the first segment from
+     * {@code firstSegmentStream}, which must be positioned at the start of the package.
+     */
+    public void download(final InputStream firstSegmentStream, File destination) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(destination, "rw");
+        ExecutorService executor = Executors.newFixedThreadPool(mSegments.size());
+        try {
+            file.setLength(mTotalBytes);
+            final FileChannel channel = file.getChannel();
+
+            List<Future<Void>> futures = new ArrayList<>();
+            for (final Segment segment : mSegments) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        fetch(segment, segment.index == 0 ? firstSegmentStream : null, channel);
+                        return null;
+                    }
+                }));
+            }
+            awaitAll(futures);
+        } finally {
+            executor.shutdownNow();
+            file.close();
+        }
+    }
+
+    private void fetch(Segment segment, InputStream body, FileChannel channel) throws IOException {
+        byte[] data = CodePushBufferPool.acquire(CodePushConstants.DOWNLOAD_BUFFER_SIZE);
+        try {
+            fetch(segment, body, channel, data);
+        } finally {
+            CodePushBufferPool.release(data);
+        }
+    }
+
+    private void fetch(Segment segment, InputStream body, FileChannel channel, byte[] data) throws IOException {
+        for (int attempt = 1; segment.receivedBytes < segment.length; attempt++) {
+            CodePushHttpResponse response = null;
+            try {
+                if (body == null) {
+                    response = openRange(segment.start + segment.receivedBytes, segment.start + segment.length - 1);
+                    body = response.getBody();
+                }
+
+                while (segment.receivedBytes < segment.length) {
+                    int numBytesRead = body.read(data, 0, (int) Math.min(data.length, segment.length - segment.receivedBytes));
+                    if (numBytesRead < 0) {
+                        throw new IOException("Connection closed after " + segment.receivedBytes + " of " + segment.length + " bytes");
+                    }
+
+                    ByteBuffer buffer = ByteBuffer.wrap(data, 0, numBytesRead);
+                    long position = segment.start + segment.receivedBytes;
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    segment.receivedBytes += numBytesRead;
+                    mDownloadProgress.addReceivedBytes(numBytesRead);
+                }
+            } catch (IOException e) {
+                if (attempt >= MAX_SEGMENT_ATTEMPTS || e instanceof PackageChangedException) {
+                    throw e;
+                }
+                CodePushUtils.log(CodePushLogLevel.WARN, "Segment " + segment.index + " of " + mUrl + " failed, retrying: " + e.getMessage());
+            } finally {
+                if (body != null) body.close();
+                if (response != null) response.close();
+                body = null;
+            }
+        }
+    }
+
+    private CodePushHttpResponse openRange(long start, long end) throws IOException {
+        CodePushHttpRequest request = new CodePushHttpRequest(mUrl)
+                .setHeader("Accept-Encoding", "identity")
+                .setHeader("Range", "bytes=" + start + "-" + end);
+        if (isStrongEntityTag(mEntityTag)) {
+            // The server answers with the whole package instead of the range if it has changed since.
+            request.setHeader("If-Range", mEntityTag);
+        }
+
+        CodePushHttpResponse response = mHttpTransport.execute(request);
+        if (response.getStatusCode() == HttpURLConnection.HTTP_OK && request.getHeader("If-Range") != null) {
+            response.close();
+            throw new PackageChangedException("Package " + mUrl + " changed during the download");
+        }
+
+        if (response.getStatusCode() != HttpURLConnection.HTTP_PARTIAL) {
+            response.close();
+            throw new IOException("Received HTTP status " + response.getStatusCode() + " for range " + start + "-" + end + " of " + mUrl);
+        }
+
+        String contentRange = response.getHeader("Content-Range");
+        if (contentRange == null || !contentRange.equals("bytes " + start + "-" + end + "/" + mTotalBytes)) {
+            response.close();
+            throw new IOException("Received range " + contentRange + " instead of " + start + "-" + end + "/" + mTotalBytes + " of " + mUrl);
+        }
+
+        String entityTag = response.getHeader("ETag");
+        if (mEntityTag != null && !mEntityTag.equals(entityTag)) {
+            response.close();
+            throw new PackageChangedException("Package " + mUrl + " changed during the download, from ETag " + mEntityTag + " to " + entityTag);
+        }
+
+        return response;
+    }
+
+    private static boolean isStrongEntityTag(String entityTag) {
+        return entityTag != null && !entityTag.startsWith("W/");
+    }
+
+    private static void awaitAll(List<Future<Void>> futures) throws IOException {
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new CodePushUnknownException("Segmented download failed", e.getCause());
+        }
+    }
+}
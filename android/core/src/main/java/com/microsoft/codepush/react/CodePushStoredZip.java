@@ -0,0 +1,445 @@
+package com.microsoft.codepush.react;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A package kept as the zip it was downloaded as, rather than extracted into thousands of files. This only works
+ * for zips whose entries are all stored uncompressed: the central directory is read once into an offset table
+ * sorted by path, which is saved next to the zip, and every file is then a slice of a read-only memory mapping
+ * of the zip.
+ *
+ * Zip64 archives, encrypted entries and entries that are compressed are not supported, {@link #index(File)}
+ * returns null for them and the package is extracted as usual.
+ */
+public class CodePushStoredZip {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final int INDEX_VERSION = 1;
+
+    // The most recently opened package, which is the current one while the app serves its files.
+    private static volatile CodePushStoredZip sLastOpened;
+
+    private final String mPackageFolderPath;
+    private final long mArchiveLength;
+    private final String[] mPaths;
+    private final long[] mOffsets;
+    private final long[] mSizes;
+    private MappedByteBuffer mMapping;
+
+    private CodePushStoredZip(String packageFolderPath, long archiveLength, String[] paths, long[] offsets, long[] sizes) {
+        mPackageFolderPath = packageFolderPath;
+        mArchiveLength = archiveLength;
+        mPaths = paths;
+        mOffsets = offsets;
+        mSizes = sizes;
+    }
+
+    public static boolean isStoredZipPackage(String packageFolderPath) {
+        return FileUtils.fileAtPathExists(getIndexPath(packageFolderPath));
+    }
+
+    private static String getArchivePath(String packageFolderPath) {
+        return CodePushUtils.appendPathComponent(packageFolderPath, CodePushConstants.STORED_ZIP_FILE_NAME);
+    }
+
+    private static String getIndexPath(String packageFolderPath) {
+        return CodePushUtils.appendPathComponent(packageFolderPath, CodePushConstants.STORED_ZIP_INDEX_FILE_NAME);
+    }
+
+    /**
+     * Reads the central directory of a downloaded zip into an offset table, or returns null if the zip cannot be
+     * served without extracting it. The result is not usable until {@link #moveTo(File, String)} is called.
+     */
+    public static CodePushStoredZip index(File zipFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(zipFile, "r");
+        try {
+            long length = file.length();
+            int tailLength = (int) Math.min(length, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+            ByteBuffer tail = readFully(file, length - tailLength, tailLength);
+            int endOfCentralDirectory = -1;
+            for (int position = tailLength - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+                if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    endOfCentralDirectory = position;
+                    break;
+                }
+            }
+            if (endOfCentralDirectory < 0) {
+                throw new CodePushInvalidUpdateException("The update is not a valid zip file.");
+            }
+
+            int entryCount = tail.getShort(endOfCentralDirectory + 10) & 0xffff;
+            long centralDirectorySize = tail.getInt(endOfCentralDirectory + 12) & 0xffffffffL;
+            long centralDirectoryOffset = tail.getInt(endOfCentralDirectory + 16) & 0xffffffffL;
+            if (entryCount == 0xffff || centralDirectoryOffset == 0xffffffffL) {
+                // Zip64
+                return null;
+            }
+
+            ByteBuffer centralDirectory = readFully(file, centralDirectoryOffset, (int) centralDirectorySize);
+            List<String> paths = new ArrayList<>(entryCount);
+            List<long[]> locations = new ArrayList<>(entryCount);
+            int position = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (centralDirectory.getInt(position) != CENTRAL_DIRECTORY_ENTRY_SIGNATURE) {
+                    throw new CodePushInvalidUpdateException("The update is not a valid zip file.");
+                }
+
+                int flags = centralDirectory.getShort(position + 8) & 0xffff;
+                int method = centralDirectory.getShort(position + 10) & 0xffff;
+                long compressedSize = centralDirectory.getInt(position + 20) & 0xffffffffL;
+                long size = centralDirectory.getInt(position + 24) & 0xffffffffL;
+                int nameLength = centralDirectory.getShort(position + 28) & 0xffff;
+                int extraLength = centralDirectory.getShort(position + 30) & 0xffff;
+                int commentLength = centralDirectory.getShort(position + 32) & 0xffff;
+                long localHeaderOffset = centralDirectory.getInt(position + 42) & 0xffffffffL;
+                byte[] name = new byte[nameLength];
+                centralDirectory.position(position + 46);
+                centralDirectory.get(name);
+                position += 46 + nameLength + extraLength + commentLength;
+
+                String entryName = new String(name, "UTF-8");
+                if (entryName.endsWith("/")) {
+                    continue;
+                }
+
+                if ((flags & 1) != 0 || method != 0 || compressedSize != size) {
+                    return null;
+                }
+
+                String path = normalizeEntryName(entryName);
+                if (path == null) {
+                    throw new CodePushInvalidUpdateException("The update contains an invalid file path: " + entryName);
+                }
+
+                ByteBuffer localHeader = readFully(file, localHeaderOffset, 30);
+                if (localHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+                    throw new CodePushInvalidUpdateException("The update is not a valid zip file.");
+                }
+                long offset = localHeaderOffset + 30 + (localHeader.getShort(26) & 0xffff) + (localHeader.getShort(28) & 0xffff);
+                if (offset + size > length) {
+                    throw new CodePushInvalidUpdateException("The update is not a valid zip file.");
+                }
+
+                paths.add(path);
+                locations.add(new long[] { offset, size });
+            }
+
+            return create(null, length, paths, locations);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Resolves the "." and ".." components of an entry name, or returns null unless it names a file inside the
+     * package folder, e.g. for "/a", "../a" or "a/..".
+     */
+    static String normalizeEntryName(String entryName) {
+        if (entryName.startsWith("/")) {
+            return null;
+        }
+
+        List<String> components = new ArrayList<>();
+        for (String component : entryName.split("/")) {
+            if (component.equals("..")) {
+                if (components.isEmpty()) {
+                    return null;
+                }
+                components.remove(components.size() - 1);
+            } else if (!component.isEmpty() && !component.equals(".")) {
+                components.add(component);
+            }
+        }
+
+        if (components.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder path = new StringBuilder(components.get(0));
+        for (int i = 1; i < components.size(); i++) {
+            path.append('/').append(components.get(i));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Opens a package that was kept as a zip, reading its offset table and mapping the zip.
+     */
+    public static CodePushStoredZip open(String packageFolderPath) throws IOException {
+        CodePushStoredZip lastOpened = sLastOpened;
+        if (lastOpened != null && lastOpened.mPackageFolderPath.equals(packageFolderPath)
+                && lastOpened.mArchiveLength == new File(getArchivePath(packageFolderPath)).length()) {
+            return lastOpened;
+        }
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(getIndexPath(packageFolderPath))));
+        CodePushStoredZip storedZip;
+        try {
+            if (in.readInt() != INDEX_VERSION) {
+                throw new CodePushMalformedDataException(getIndexPath(packageFolderPath), new IOException("Unknown index version"));
+            }
+
+            long archiveLength = in.readLong();
+            int entryCount = in.readInt();
+            String[] paths = new String[entryCount];
+            long[] offsets = new long[entryCount];
+            long[] sizes = new long[entryCount];
+            for (int i = 0; i < entryCount; i++) {
+                paths[i] = in.readUTF();
+                offsets[i] = in.readLong();
+                sizes[i] = in.readLong();
+            }
+            storedZip = new CodePushStoredZip(packageFolderPath, archiveLength, paths, offsets, sizes);
+        } finally {
+            in.close();
+        }
+
+        storedZip.map();
+        sLastOpened = storedZip;
+        return storedZip;
+    }
+
+    private static CodePushStoredZip create(String packageFolderPath, long archiveLength, List<String> paths, List<long[]> locations) {
+        Integer[] order = new Integer[paths.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final List<String> unsortedPaths = paths;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return unsortedPaths.get(first).compareTo(unsortedPaths.get(second));
+            }
+        });
+
+        String[] sortedPaths = new String[order.length];
+        long[] offsets = new long[order.length];
+        long[] sizes = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedPaths[i] = paths.get(order[i]);
+            offsets[i] = locations.get(order[i])[0];
+            sizes[i] = locations.get(order[i])[1];
+        }
+        return new CodePushStoredZip(packageFolderPath, archiveLength, sortedPaths, offsets, sizes);
+    }
+
+    /**
+     * Moves the indexed zip into the package folder and saves the offset table next to it.
+     */
+    public CodePushStoredZip moveTo(File zipFile, String packageFolderPath) throws IOException {
+        new File(packageFolderPath).mkdirs();
+        File archive = new File(getArchivePath(packageFolderPath));
+        if (!zipFile.renameTo(archive)) {
+            throw new IOException("Unable to move " + zipFile + " to " + archive);
+        }
+
+        String indexPath = getIndexPath(packageFolderPath);
+        File indexDownloadFile = new File(indexPath + ".download");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexDownloadFile)));
+        try {
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(mArchiveLength);
+            out.writeInt(mPaths.length);
+            for (int i = 0; i < mPaths.length; i++) {
+                out.writeUTF(mPaths[i]);
+                out.writeLong(mOffsets[i]);
+                out.writeLong(mSizes[i]);
+            }
+        } finally {
+            out.close();
+        }
+        if (!indexDownloadFile.renameTo(new File(indexPath))) {
+            throw new IOException("Unable to move " + indexDownloadFile + " to " + indexPath);
+        }
+
+        CodePushStoredZip storedZip = new CodePushStoredZip(packageFolderPath, mArchiveLength, mPaths, mOffsets, mSizes);
+        storedZip.map();
+        return storedZip;
+    }
+
+    private void map() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(getArchivePath(mPackageFolderPath), "r");
+        try {
+            // The mapping stays valid after the file is closed.
+            mMapping = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        } finally {
+            file.close();
+        }
+    }
+
+    public boolean contains(String relativePath) {
+        return Arrays.binarySearch(mPaths, relativePath) >= 0;
+    }
+
+    public List<String> getPaths() {
+        return Arrays.asList(mPaths);
+    }
+
+    public long getSize(String relativePath) {
+        return mSizes[indexOf(relativePath)];
+    }
+
+    /**
+     * Returns the relative path of the first file with the given name, in path order, or null if there is none.
+     */
+    public String findFile(String fileName) {
+        for (String path : mPaths) {
+            if (path.equals(fileName) || path.endsWith("/" + fileName)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the contents of a file as a read-only view of the mapping, without copying them.
+     */
+    public ByteBuffer getContents(String relativePath) {
+        int index = indexOf(relativePath);
+        ByteBuffer contents = mMapping.duplicate();
+        contents.position((int) mOffsets[index]);
+        contents.limit((int) (mOffsets[index] + mSizes[index]));
+        return contents.slice();
+    }
+
+    public InputStream openFile(String relativePath) {
+        final ByteBuffer contents = getContents(relativePath);
+        return new InputStream() {
+            @Override
+            public int read() {
+                return contents.hasRemaining() ? contents.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) {
+                if (!contents.hasRemaining()) {
+                    return -1;
+                }
+
+                count = Math.min(count, contents.remaining());
+                contents.get(buffer, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return contents.remaining();
+            }
+        };
+    }
+
+    // Same result as CodePushUpdateUtils.computeHash(), digesting straight from the mapping.
+    public String computeHash(String relativePath) {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("Unable to compute hash of update contents.", e);
+        }
+
+        messageDigest.update(getContents(relativePath));
+        return String.format("%064x", new BigInteger(1, messageDigest.digest()));
+    }
+
+    /**
+     * Writes a file of the zip to its path in the package folder, unless it is there already, and returns that
+     * path. Used for the files that must be real files, such as the JS bundle.
+     */
+    public String materialize(String relativePath) throws IOException {
+        File file = new File(mPackageFolderPath, relativePath);
+        if (file.exists()) {
+            return file.getAbsolutePath();
+        }
+
+        file.getParentFile().mkdirs();
+        File downloadFile = new File(file.getPath() + ".download");
+        FileChannel channel = new FileOutputStream(downloadFile).getChannel();
+        try {
+            ByteBuffer contents = getContents(relativePath);
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+        } finally {
+            channel.close();
+        }
+        CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.FILE_WRITE_BYTES, file.length());
+
+        if (!downloadFile.renameTo(file)) {
+            throw new IOException("Unable to move " + downloadFile + " to " + file);
+        }
+        return file.getAbsolutePath();
+    }
+
+    /**
+     * Writes the files of the zip into a folder, e.g. to merge a diff update with this package, except for the
+     * given ones, such as those the diff replaces or deletes.
+     */
+    public void extractTo(String folderPath, Set<String> excludedPaths) throws IOException {
+        for (String path : mPaths) {
+            if (excludedPaths.contains(path)) {
+                continue;
+            }
+
+            File file = new File(folderPath, path);
+            file.getParentFile().mkdirs();
+            FileChannel channel = new FileOutputStream(file).getChannel();
+            try {
+                ByteBuffer contents = getContents(path);
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Removes the zip and its offset table from a folder that this package was copied into.
+     */
+    public static void deleteFrom(String folderPath) {
+        FileUtils.deleteFileAtPathSilently(getArchivePath(folderPath));
+        FileUtils.deleteFileAtPathSilently(getIndexPath(folderPath));
+    }
+
+    private int indexOf(String relativePath) {
+        int index = Arrays.binarySearch(mPaths, relativePath);
+        if (index < 0) {
+            throw new CodePushUnknownException("The package has no file " + relativePath);
+        }
+        return index;
+    }
+
+    private static ByteBuffer readFully(RandomAccessFile file, long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        file.seek(position);
+        file.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
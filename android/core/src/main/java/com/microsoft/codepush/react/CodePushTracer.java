@@ -0,0 +1,161 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Opt-in recorder of the spans of CodePush operations, such as the phases of downloadUpdate, installUpdate,
+ * loadBundle and initializeUpdateAfterRestart, tagged with the thread that ran them.
+ *
+ * Finished spans go into a lock-free {@link CodePushRingBuffer}, so recording takes no lock and the oldest
+ * spans are overwritten once it is full. The buffer can be exported in the Chrome trace event format through
+ * {@link #getChromeTrace()} and opened in chrome://tracing or Perfetto.
+ * Every span is also mirrored to the {@link SystemTrace}, which on Android turns it into an android.os.Trace section
+ * so it shows up in systrace captures.
+ *
+ * While tracing is disabled {@link #beginSection} and {@link #endSection} only read a volatile flag.
+ */
+public class CodePushTracer {
+
+    private static final String CATEGORY = "codepush";
+    private static final int NOT_TRACED = -1;
+
+    /**
+     * The platform tracing facility spans are mirrored to, and the identifiers of the threads that ran them.
+     */
+    public interface SystemTrace {
+        void beginSection(String name);
+
+        void endSection();
+
+        int getProcessId();
+
+        int getThreadId();
+    }
+
+    private static volatile SystemTrace sSystemTrace = new SystemTrace() {
+        @Override
+        public void beginSection(String name) {
+        }
+
+        @Override
+        public void endSection() {
+        }
+
+        @Override
+        public int getProcessId() {
+            return 0;
+        }
+
+        @Override
+        public int getThreadId() {
+            return (int) Thread.currentThread().getId();
+        }
+    };
+
+    private static volatile boolean sIsEnabled = false;
+    private static volatile CodePushRingBuffer<Span> sSpans = new CodePushRingBuffer<>(CodePushConstants.DEFAULT_TRACE_BUFFER_SIZE);
+
+    public static void setEnabled(boolean isEnabled) {
+        sIsEnabled = isEnabled;
+    }
+
+    public static boolean isEnabled() {
+        return sIsEnabled;
+    }
+
+    public static void setSystemTrace(SystemTrace systemTrace) {
+        sSystemTrace = systemTrace;
+    }
+
+    /**
+     * Sets the number of most recent spans that are kept, discarding the ones recorded so far.
+     */
+    public static void setBufferSize(int bufferSize) {
+        sSpans = new CodePushRingBuffer<>(bufferSize);
+    }
+
+    /**
+     * Starts a span on the current thread and returns the token to pass to {@link #endSection}.
+     * Spans started on the same thread must be ended in reverse order, so callers end them in a finally block.
+     */
+    public static long beginSection(String name) {
+        if (!sIsEnabled) {
+            return NOT_TRACED;
+        }
+
+        sSystemTrace.beginSection(name);
+        return CodePushPlatform.getClock().nanoTime();
+    }
+
+    public static void endSection(String name, long startedAtNanos) {
+        if (startedAtNanos == NOT_TRACED) {
+            return;
+        }
+
+        long endedAtNanos = CodePushPlatform.getClock().nanoTime();
+        sSystemTrace.endSection();
+
+        sSpans.add(new Span(name, startedAtNanos, endedAtNanos - startedAtNanos, sSystemTrace.getThreadId(), Thread.currentThread().getName()));
+    }
+
+    /**
+     * Returns the buffered spans as a Chrome trace event format object, oldest first.
+     */
+    public static JSONObject getChromeTrace() {
+        int pid = sSystemTrace.getProcessId();
+        JSONArray traceEvents = new JSONArray();
+        Set<Integer> namedThreadIds = new HashSet<>();
+        for (Span span : sSpans.snapshot()) {
+            if (namedThreadIds.add(span.threadId)) {
+                JSONObject threadName = new JSONObject();
+                CodePushUtils.setJSONValueForKey(threadName, "name", span.threadName);
+                JSONObject metadataEvent = new JSONObject();
+                CodePushUtils.setJSONValueForKey(metadataEvent, "name", "thread_name");
+                CodePushUtils.setJSONValueForKey(metadataEvent, "ph", "M");
+                CodePushUtils.setJSONValueForKey(metadataEvent, "pid", pid);
+                CodePushUtils.setJSONValueForKey(metadataEvent, "tid", span.threadId);
+                CodePushUtils.setJSONValueForKey(metadataEvent, "args", threadName);
+                traceEvents.put(metadataEvent);
+            }
+
+            JSONObject traceEvent = new JSONObject();
+            CodePushUtils.setJSONValueForKey(traceEvent, "name", span.name);
+            CodePushUtils.setJSONValueForKey(traceEvent, "cat", CATEGORY);
+            CodePushUtils.setJSONValueForKey(traceEvent, "ph", "X");
+            CodePushUtils.setJSONValueForKey(traceEvent, "ts", span.startedAtNanos / 1000.0);
+            CodePushUtils.setJSONValueForKey(traceEvent, "dur", span.durationNanos / 1000.0);
+            CodePushUtils.setJSONValueForKey(traceEvent, "pid", pid);
+            CodePushUtils.setJSONValueForKey(traceEvent, "tid", span.threadId);
+            traceEvents.put(traceEvent);
+        }
+
+        JSONObject trace = new JSONObject();
+        CodePushUtils.setJSONValueForKey(trace, "traceEvents", traceEvents);
+        CodePushUtils.setJSONValueForKey(trace, "displayTimeUnit", "ns");
+        return trace;
+    }
+
+    public static void clear() {
+        sSpans.clear();
+    }
+
+    private static class Span {
+        final String name;
+        final long startedAtNanos;
+        final long durationNanos;
+        final int threadId;
+        final String threadName;
+
+        Span(String name, long startedAtNanos, long durationNanos, int threadId, String threadName) {
+            this.name = name;
+            this.startedAtNanos = startedAtNanos;
+            this.durationNanos = durationNanos;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes package folders without blocking the caller: a folder is renamed into the trash folder, which takes
+ * constant time regardless of its size, and the trash is emptied later by a reaper on a low priority background
+ * thread.
+ *
+ * The reaper pauses for {@link #PAUSE_MS} after every {@link #BATCH_SIZE} deleted files, so that it does not
+ * saturate slow flash storage while the app is loading. Whatever is left in the trash when the process dies is
+ * deleted the next time {@link #emptyInBackground()} is called.
+ *
+ * The trash folder must be on the same file system as the folders moved into it, so that moving is a rename.
+ */
+class CodePushTrash {
+
+    private static final int BATCH_SIZE = 64;
+    private static final long PAUSE_MS = 20;
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CodePushTrash");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    // Whether a reaper run is queued that has not started listing the trash yet.
+    private static final AtomicBoolean sIsScheduled = new AtomicBoolean(false);
+    private static final AtomicLong sDeletedFileCount = new AtomicLong();
+    private static final AtomicLong sDeletedBytes = new AtomicLong();
+
+    private final String mTrashPath;
+
+    public CodePushTrash(String trashPath) {
+        mTrashPath = trashPath;
+    }
+
+    /**
+     * Moves a file or folder into the trash. If it cannot be renamed, e.g. because the trash is on another file
+     * system, it is deleted right away instead.
+     */
+    public void moveToTrash(String path) {
+        File file = new File(path);
+        if (!file.exists()) {
+            return;
+        }
+
+        File trashFolder = new File(mTrashPath);
+        trashFolder.mkdirs();
+        if (!file.renameTo(new File(trashFolder, UUID.randomUUID().toString()))) {
+            CodePushUtils.log(CodePushLogLevel.WARN, "Unable to move " + path + " to the trash, deleting it in place");
+            FileUtils.deleteDirectoryAtPath(path);
+        }
+    }
+
+    /**
+     * Deletes everything in the trash on the background thread. Calls made while a run is queued are coalesced.
+     */
+    public void emptyInBackground() {
+        if (!sIsScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sIsScheduled.set(false);
+                try {
+                    reap();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns what is left in the trash and how much the reaper deleted since the process started.
+     * Walks the trash, so it should not be called on the UI thread.
+     */
+    public JSONObject getStatus() {
+        long[] pending = new long[2];
+        File[] trashedFiles = new File(mTrashPath).listFiles();
+        if (trashedFiles != null) {
+            for (File trashedFile : trashedFiles) {
+                measure(trashedFile, pending);
+            }
+        }
+
+        JSONObject status = new JSONObject();
+        CodePushUtils.setJSONValueForKey(status, "pendingFileCount", pending[0]);
+        CodePushUtils.setJSONValueForKey(status, "pendingBytes", pending[1]);
+        CodePushUtils.setJSONValueForKey(status, "deletedFileCount", sDeletedFileCount.get());
+        CodePushUtils.setJSONValueForKey(status, "deletedBytes", sDeletedBytes.get());
+        return status;
+    }
+
+    private void reap() throws InterruptedException {
+        File[] trashedFiles;
+        while ((trashedFiles = new File(mTrashPath).listFiles()) != null && trashedFiles.length > 0) {
+            long deletedFileCountBefore = sDeletedFileCount.get();
+            for (File trashedFile : trashedFiles) {
+                delete(trashedFile);
+            }
+
+            long deletedFileCount = sDeletedFileCount.get() - deletedFileCountBefore;
+            CodePushUtils.log(CodePushLogLevel.DEBUG, "Emptied the trash, " + deletedFileCount + " files deleted");
+            if (deletedFileCount == 0) {
+                // Whatever is left cannot be deleted, retry on the next run.
+                return;
+            }
+        }
+    }
+
+    // Deletes depth first, so that an interrupted run leaves a consistent, smaller tree behind.
+    private static void delete(File file) throws InterruptedException {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    delete(child);
+                }
+            }
+        }
+
+        long length = file.isDirectory() ? 0 : file.length();
+        if (!file.delete()) {
+            CodePushUtils.log(CodePushLogLevel.WARN, "Error deleting file " + file.getName());
+            return;
+        }
+
+        sDeletedBytes.addAndGet(length);
+        if (sDeletedFileCount.incrementAndGet() % BATCH_SIZE == 0) {
+            Thread.sleep(PAUSE_MS);
+        }
+    }
+
+    private static void measure(File file, long[] pending) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    measure(child, pending);
+                }
+            }
+        } else {
+            pending[0]++;
+            pending[1] += file.length();
+        }
+    }
+}
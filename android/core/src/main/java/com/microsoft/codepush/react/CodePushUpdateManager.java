@@ -0,0 +1,972 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+public class CodePushUpdateManager {
+
+    // Downloads in progress in this process, by package folder path, see downloadPackage().
+    private static final ConcurrentMap<String, PendingDownload> sPendingDownloads = new ConcurrentHashMap<>();
+
+    private static class PendingDownload {
+        final JSONObject updatePackage;
+        final String publicKey;
+        final DownloadProgress downloadProgress;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean isSuccessful = false;
+        volatile Exception error;
+
+        PendingDownload(JSONObject updatePackage, String publicKey, DownloadProgress downloadProgress) {
+            this.updatePackage = updatePackage;
+            this.publicKey = publicKey;
+            this.downloadProgress = downloadProgress;
+        }
+
+        boolean isSharableWith(String publicKey) {
+            return this.publicKey == null ? publicKey == null : this.publicKey.equals(publicKey);
+        }
+
+        // Waits for the download and rethrows its failure.
+        void await() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+
+            if (isSuccessful) {
+                return;
+            } else if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error != null) {
+                throw (RuntimeException) error;
+            }
+            throw new IOException("Download of " + updatePackage.optString(CodePushConstants.PACKAGE_HASH_KEY, null) + " failed");
+        }
+
+        void awaitQuietly() throws InterruptedIOException {
+            try {
+                await();
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                // Reported to the caller that started the download.
+            }
+        }
+    }
+
+    // Keys of the entries of CodePushConstants.PACKAGE_CACHE_KEY in the status file.
+    private static final String CACHE_DEPLOYMENT_KEY_KEY = "deploymentKey";
+    private static final String CACHE_LABEL_KEY = "label";
+    private static final String CACHE_LAST_USED_AT_KEY = "lastUsedAt";
+    private static final String CACHE_SIZE_KEY = "size";
+
+    // Guards read-modify-write cycles of the status file.
+    private static final Object sStatusFileLock = new Object();
+
+    private String mDocumentsDirectory;
+    private String mResourceName;
+    private CodePushHttpTransport mHttpTransport;
+
+    public CodePushUpdateManager(String documentsDirectory, String resourceName) {
+        this(documentsDirectory, resourceName, CodePushCoreConfig.getHttpTransport());
+    }
+
+    public CodePushUpdateManager(String documentsDirectory, String resourceName, CodePushHttpTransport httpTransport) {
+        mDocumentsDirectory = documentsDirectory;
+        mResourceName = resourceName;
+        mHttpTransport = httpTransport;
+    }
+
+    // Every package is downloaded and extracted in a folder of its own, so downloads of different packages
+    // cannot overwrite each other's files.
+    private String getStagingFolderPath(String packageHash) {
+        return CodePushUtils.appendPathComponent(getCodePushPath(), CodePushConstants.STAGING_FOLDER_NAME + "/" + packageHash);
+    }
+
+    private String getUnzippedFolderPath(String packageHash) {
+        return CodePushUtils.appendPathComponent(getStagingFolderPath(packageHash), CodePushConstants.UNZIPPED_FOLDER_NAME);
+    }
+
+    private String getDocumentsDirectory() {
+        return mDocumentsDirectory;
+    }
+
+    private String getCodePushPath() {
+        String codePushPath = CodePushUtils.appendPathComponent(getDocumentsDirectory(), 
+            CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/" + mResourceName);
+        if (CodePushCoreConfig.isUsingTestConfiguration()) {
+            codePushPath = CodePushUtils.appendPathComponent(codePushPath, "TestPackages");
+        }
+
+        return codePushPath;
+    }
+
+    private String getStatusFilePath() {
+        return CodePushUtils.appendPathComponent(getCodePushPath(), CodePushConstants.STATUS_FILE);
+    }
+
+    public JSONObject getCurrentPackageInfo() {
+        String statusFilePath = getStatusFilePath();
+        if (!FileUtils.fileAtPathExists(statusFilePath)) {
+            return new JSONObject();
+        }
+
+        try {
+            return CodePushUtils.getJsonObjectFromFile(statusFilePath);
+        } catch (IOException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("Error getting current package info", e);
+        }
+    }
+
+    public void updateCurrentPackageInfo(JSONObject packageInfo) {
+        try {
+            CodePushUtils.writeJsonToFile(packageInfo, getStatusFilePath());
+        } catch (IOException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("Error updating current package info", e);
+        }
+    }
+
+    public String getCurrentPackageFolderPath() {
+        JSONObject info = getCurrentPackageInfo();
+        String packageHash = info.optString(CodePushConstants.CURRENT_PACKAGE_KEY, null);
+        if (packageHash == null) {
+            return null;
+        }
+
+        return getPackageFolderPath(packageHash);
+    }
+
+    public String getCurrentPackageBundlePath(String bundleFileName) {
+        String packageFolder = getCurrentPackageFolderPath();
+        if (packageFolder == null) {
+            return null;
+        }
+
+        JSONObject currentPackage = getCurrentPackage();
+        if (currentPackage == null) {
+            return null;
+        }
+
+        String relativeBundlePath = currentPackage.optString(CodePushConstants.RELATIVE_BUNDLE_PATH_KEY, null);
+        if (relativeBundlePath == null) {
+            return CodePushUtils.appendPathComponent(packageFolder, bundleFileName);
+        } else {
+            return CodePushUtils.appendPathComponent(packageFolder, relativeBundlePath);
+        }
+    }
+
+    public String getPackageFolderPath(String packageHash) {
+        return CodePushUtils.appendPathComponent(getCodePushPath(), packageHash);
+    }
+
+    public String getCurrentPackageHash() {
+        JSONObject info = getCurrentPackageInfo();
+        return info.optString(CodePushConstants.CURRENT_PACKAGE_KEY, null);
+    }
+
+    public String getPreviousPackageHash() {
+        JSONObject info = getCurrentPackageInfo();
+        return info.optString(CodePushConstants.PREVIOUS_PACKAGE_KEY, null);
+    }
+
+    public JSONObject getCurrentPackage() {
+        String packageHash = getCurrentPackageHash();
+        if (packageHash == null) {
+            return null;
+        }
+
+        return getPackage(packageHash);
+    }
+
+    public JSONObject getPreviousPackage() {
+        String packageHash = getPreviousPackageHash();
+        if (packageHash == null) {
+            return null;
+        }
+
+        return getPackage(packageHash);
+    }
+
+    public String getPackageMetadataPath(String packageHash) {
+        return CodePushUtils.appendPathComponent(getPackageFolderPath(packageHash), CodePushConstants.PACKAGE_FILE_NAME);
+    }
+
+    public JSONObject getPackage(String packageHash) {
+        String packageFilePath = getPackageMetadataPath(packageHash);
+        try {
+            return CodePushUtils.getJsonObjectFromFile(packageFilePath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Downloads, extracts and verifies a package into its package folder.
+     *
+     * Only one download per package runs at a time: a call for a package that is already being downloaded with
+     * the same public key, e.g. by the background prefetch, waits for that download, reports its progress and
+     * shares its outcome instead of downloading the package again.
+     */
+    public void downloadPackage(JSONObject updatePackage, String expectedBundleFileName,
+                                DownloadProgress downloadProgress,
+                                String stringPublicKey) throws IOException {
+        String newUpdateHash = updatePackage.optString(CodePushConstants.PACKAGE_HASH_KEY, null);
+        String newUpdateFolderPath = getPackageFolderPath(newUpdateHash);
+        PendingDownload pendingDownload = new PendingDownload(updatePackage, stringPublicKey, downloadProgress);
+        while (true) {
+            PendingDownload inFlightDownload = sPendingDownloads.putIfAbsent(newUpdateFolderPath, pendingDownload);
+            if (inFlightDownload == null) {
+                break;
+            }
+
+            if (!inFlightDownload.isSharableWith(stringPublicKey)) {
+                // Verified differently, so wait for it to finish and download the package again.
+                inFlightDownload.awaitQuietly();
+                continue;
+            }
+
+            CodePushUtils.log("Joining the download of " + newUpdateHash + " that is already in progress.", mResourceName);
+            downloadProgress.follow(inFlightDownload.downloadProgress);
+            inFlightDownload.await();
+            String relativeBundlePath = inFlightDownload.updatePackage.optString(CodePushConstants.RELATIVE_BUNDLE_PATH_KEY, null);
+            if (relativeBundlePath != null) {
+                CodePushUtils.setJSONValueForKey(updatePackage, CodePushConstants.RELATIVE_BUNDLE_PATH_KEY, relativeBundlePath);
+            }
+            return;
+        }
+
+        try {
+            downloadPackageInternal(updatePackage, expectedBundleFileName, downloadProgress, stringPublicKey);
+            pendingDownload.isSuccessful = true;
+        } catch (IOException | RuntimeException e) {
+            pendingDownload.error = e;
+            throw e;
+        } finally {
+            sPendingDownloads.remove(newUpdateFolderPath, pendingDownload);
+            pendingDownload.done.countDown();
+        }
+    }
+
+    private void downloadPackageInternal(JSONObject updatePackage, String expectedBundleFileName,
+                                         DownloadProgress downloadProgress,
+                                         String stringPublicKey) throws IOException {
+        String newUpdateHash = updatePackage.optString(CodePushConstants.PACKAGE_HASH_KEY, null);
+        String newUpdateFolderPath = getPackageFolderPath(newUpdateHash);
+        String newUpdateMetadataPath = CodePushUtils.appendPathComponent(newUpdateFolderPath, CodePushConstants.PACKAGE_FILE_NAME);
+        JSONObject cachedPackage = getCachedPackage(newUpdateHash);
+        if (cachedPackage != null) {
+            // Downloaded and verified before, e.g. while another deployment was in use. Only its metadata,
+            // which may differ between deployments, is replaced.
+            CodePushUtils.log("Using cached package " + newUpdateHash, mResourceName);
+            String relativeBundlePath = cachedPackage.optString(CodePushConstants.RELATIVE_BUNDLE_PATH_KEY, null);
+            if (relativeBundlePath != null) {
+                CodePushUtils.setJSONValueForKey(updatePackage, CodePushConstants.RELATIVE_BUNDLE_PATH_KEY, relativeBundlePath);
+            }
+            CodePushUtils.writeJsonToFile(updatePackage, newUpdateMetadataPath);
+            addToPackageCache(updatePackage);
+            return;
+        }
+
+        if (FileUtils.fileAtPathExists(newUpdateFolderPath)) {
+            // This removes any stale data in newPackageFolderPath that could have been left
+            // uncleared due to a crash or error during the download or install process.
+            moveToTrash(newUpdateFolderPath);
+        }
+
+        String downloadUrlString = updatePackage.optString(CodePushConstants.DOWNLOAD_URL_KEY, null);
+        BufferedInputStream bin = null;
+        FileOutputStream fos = null;
+        BufferedOutputStream bout = null;
+        byte[] data = null;
+        File downloadFile = null;
+        boolean isZip = false;
+
+        // Download the file while checking if it is a zip and notifying client of progress.
+        long downloadStartedAt = CodePushPerformanceMetrics.startTimer();
+        long downloadTraceStartedAt = CodePushTracer.beginSection("download");
+        try {
+            CodePushMirrorInputStream mirrorInputStream = new CodePushMirrorInputStream(mHttpTransport, getMirrorStats(),
+                    getDownloadUrls(updatePackage, downloadUrlString), Collections.singletonMap("Accept-Encoding", "identity"));
+            bin = new BufferedInputStream(mirrorInputStream);
+
+            long totalBytes = mirrorInputStream.getContentLength();
+            long receivedBytes = 0;
+            downloadProgress.startDownload(totalBytes);
+
+            File downloadFolder = new File(getStagingFolderPath(newUpdateHash));
+            downloadFolder.mkdirs();
+            downloadFile = new File(downloadFolder, CodePushConstants.DOWNLOAD_FILE_NAME);
+            byte[] header = new byte[4];
+
+            if (isSegmentedDownload(mirrorInputStream)) {
+                new CodePushSegmentedDownload(mHttpTransport, mirrorInputStream.getCurrentUrl(), mirrorInputStream.getEntityTag(),
+                        totalBytes, CodePushCoreConfig.getDownloadSegmentCount(), downloadProgress).download(mirrorInputStream, downloadFile);
+                receivedBytes = totalBytes;
+
+                RandomAccessFile segmentedFile = new RandomAccessFile(downloadFile, "r");
+                try {
+                    segmentedFile.readFully(header);
+                } finally {
+                    segmentedFile.close();
+                }
+            } else {
+                fos = new FileOutputStream(downloadFile);
+                bout = new BufferedOutputStream(fos, CodePushConstants.DOWNLOAD_BUFFER_SIZE);
+                data = CodePushBufferPool.acquire(CodePushConstants.DOWNLOAD_BUFFER_SIZE);
+
+                int numBytesRead = 0;
+                while ((numBytesRead = bin.read(data, 0, CodePushConstants.DOWNLOAD_BUFFER_SIZE)) >= 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        // E.g. the background prefetch job was stopped by the system.
+                        throw new InterruptedIOException("Download of " + newUpdateHash + " was interrupted");
+                    }
+
+                    if (receivedBytes < 4) {
+                        for (int i = 0; i < numBytesRead; i++) {
+                            int headerOffset = (int) (receivedBytes) + i;
+                            if (headerOffset >= 4) {
+                                break;
+                            }
+
+                            header[headerOffset] = data[i];
+                        }
+                    }
+
+                    receivedBytes += numBytesRead;
+                    bout.write(data, 0, numBytesRead);
+                    downloadProgress.addReceivedBytes(numBytesRead);
+                }
+            }
+
+            // A chunked response has no content length to check against.
+            if (totalBytes >= 0 && totalBytes != receivedBytes) {
+                throw new CodePushUnknownException("Received " + receivedBytes + " bytes, expected " + totalBytes);
+            }
+
+            isZip = ByteBuffer.wrap(header).getInt() == 0x504b0304;
+
+            long downloadDurationNanos = CodePushPlatform.getClock().nanoTime() - downloadStartedAt;
+            CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.DOWNLOAD, downloadDurationNanos / 1000);
+            CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.DOWNLOAD_BYTES, receivedBytes);
+            if (downloadDurationNanos > 0) {
+                CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.DOWNLOAD_THROUGHPUT, receivedBytes * 1000000000L / downloadDurationNanos);
+            }
+        } catch (MalformedURLException e) {
+            throw new CodePushMalformedDataException(downloadUrlString, e);
+        } finally {
+            CodePushTracer.endSection("download", downloadTraceStartedAt);
+            try {
+                if (bout != null) bout.close();
+                if (fos != null) fos.close();
+                if (bin != null) bin.close();
+            } catch (IOException e) {
+                throw new CodePushUnknownException("Error closing IO resources.", e);
+            } finally {
+                CodePushBufferPool.release(data);
+            }
+        }
+
+        if (isZip) {
+            // Uncompressed full updates can be kept as the downloaded zip, which saves extracting every file.
+            CodePushStoredZip storedZip = CodePushCoreConfig.isZeroExtractionEnabled() ? CodePushStoredZip.index(downloadFile) : null;
+            if (storedZip != null && storedZip.contains(CodePushConstants.DIFF_MANIFEST_FILE_NAME)) {
+                storedZip = null;
+            }
+
+            boolean isDiffUpdate = false;
+            // For diff updates, the stored hashes of the files carried over unchanged from the current package.
+            Map<String, String> knownFileHashes = null;
+            if (storedZip != null) {
+                storedZip = storedZip.moveTo(downloadFile, newUpdateFolderPath);
+                moveToTrash(getStagingFolderPath(newUpdateHash));
+            } else {
+                // Unzip the downloaded file and then delete the zip
+                String unzippedFolderPath = getUnzippedFolderPath(newUpdateHash);
+                // Left over by an interrupted install, unzipFile would otherwise delete it inline.
+                moveToTrash(unzippedFolderPath);
+                downloadProgress.startPhase(DownloadProgress.Phase.EXTRACT, downloadFile.length());
+                long unzipStartedAt = CodePushPerformanceMetrics.startTimer();
+                long unzipTraceStartedAt = CodePushTracer.beginSection("unzip");
+                try {
+                    FileUtils.unzipFile(downloadFile, unzippedFolderPath, downloadProgress);
+                } finally {
+                    CodePushTracer.endSection("unzip", unzipTraceStartedAt);
+                }
+                CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.UNZIP, unzipStartedAt);
+                FileUtils.deleteFileOrFolderSilently(downloadFile);
+
+                // Merge contents with current update based on the manifest
+                String diffManifestFilePath = CodePushUtils.appendPathComponent(unzippedFolderPath,
+                        CodePushConstants.DIFF_MANIFEST_FILE_NAME);
+                isDiffUpdate = FileUtils.fileAtPathExists(diffManifestFilePath);
+                if (isDiffUpdate) {
+                    String currentPackageFolderPath = getCurrentPackageFolderPath();
+                    long diffMergeStartedAt = CodePushPerformanceMetrics.startTimer();
+                    long diffMergeTraceStartedAt = CodePushTracer.beginSection("diffMerge");
+                    try {
+                        CodePushUpdateUtils.copyNecessaryFilesFromCurrentPackage(diffManifestFilePath, currentPackageFolderPath, newUpdateFolderPath);
+                    } finally {
+                        CodePushTracer.endSection("diffMerge", diffMergeTraceStartedAt);
+                    }
+                    CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.DIFF_MERGE, diffMergeStartedAt);
+                    // Assets fetched for the current package are not part of it, so they must not end up in the hashed contents.
+                    new CodePushLazyAssets(currentPackageFolderPath, mHttpTransport).deleteAssetsFrom(newUpdateFolderPath);
+                    File diffManifestFile = new File(diffManifestFilePath);
+                    diffManifestFile.delete();
+
+                    knownFileHashes = CodePushUpdateUtils.readFileHashManifest(currentPackageFolderPath);
+                    if (knownFileHashes != null) {
+                        knownFileHashes.keySet().removeAll(CodePushUpdateUtils.getRelativeFilePaths(unzippedFolderPath));
+                    }
+                }
+
+                FileUtils.copyDirectoryContents(unzippedFolderPath, newUpdateFolderPath);
+                moveToTrash(getStagingFolderPath(newUpdateHash));
+            }
+
+            // For zip updates, we need to find the relative path to the jsBundle and save it in the
+            // metadata so that we can find and run it easily the next time.
+            String relativeBundlePath = storedZip != null
+                    ? storedZip.findFile(expectedBundleFileName)
+                    : CodePushUpdateUtils.findJSBundleInUpdateContents(newUpdateFolderPath, expectedBundleFileName);
+
+            if (relativeBundlePath == null) {
+                throw new CodePushInvalidUpdateException("Update is invalid - A JS bundle file named \"" + expectedBundleFileName + "\" could not be found within the downloaded contents. Please check that you are releasing your CodePush updates using the exact same JS bundle file name that was shipped with your app's binary.");
+            } else {
+                if (FileUtils.fileAtPathExists(newUpdateMetadataPath)) {
+                    File metadataFileFromOldUpdate = new File(newUpdateMetadataPath);
+                    metadataFileFromOldUpdate.delete();
+                }
+                String fileHashManifestPath = CodePushUpdateUtils.getFileHashManifestPath(newUpdateFolderPath);
+                if (FileUtils.fileAtPathExists(fileHashManifestPath)) {
+                    FileUtils.deleteFileAtPathSilently(fileHashManifestPath);
+                }
+
+                if (storedZip != null) {
+                    // The files that are read as files rather than through the package: the bundle by the
+                    // JSBundleLoader, its images and raw assets by React Native, the signature and the asset
+                    // manifest by the code below.
+                    storedZip.materialize(relativeBundlePath);
+                    materializeBundleAssets(storedZip, relativeBundlePath);
+                    String signatureRelativePath = CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/" + CodePushConstants.BUNDLE_JWT_FILE;
+                    String lazyAssetManifestRelativePath = CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/" + CodePushConstants.LAZY_ASSET_MANIFEST_FILE_NAME;
+                    for (String relativePath : new String[] { signatureRelativePath, lazyAssetManifestRelativePath }) {
+                        if (storedZip.contains(relativePath)) {
+                            storedZip.materialize(relativePath);
+                        }
+                    }
+                }
+
+                if (isDiffUpdate) {
+                    CodePushUtils.log("Applying diff update.", mResourceName);
+                } else {
+                    CodePushUtils.log("Applying full update.", mResourceName);
+                }
+
+                boolean isSignatureVerificationEnabled = (stringPublicKey != null);
+
+                String signaturePath = CodePushUpdateUtils.getSignatureFilePath(newUpdateFolderPath);
+                Map<String, String> fileHashes = null;
+                boolean isSignatureAppearedInBundle = FileUtils.fileAtPathExists(signaturePath);
+
+                if (isSignatureVerificationEnabled) {
+                    if (isSignatureAppearedInBundle) {
+                        fileHashes = verifyPackageHash(newUpdateFolderPath, storedZip, newUpdateHash, downloadProgress, knownFileHashes);
+                        CodePushUpdateUtils.verifyUpdateSignature(newUpdateFolderPath, newUpdateHash, stringPublicKey);
+                    } else {
+                        throw new CodePushInvalidUpdateException(
+                                "Error! Public key was provided but there is no JWT signature within app bundle to verify. " +
+                                "Possible reasons, why that might happen: \n" +
+                                "1. You've been released CodePush bundle update using version of CodePush CLI that is not support code signing.\n" +
+                                "2. You've been released CodePush bundle update without providing --privateKeyPath option."
+                        );
+                    }
+                } else {
+                    if (isSignatureAppearedInBundle) {
+                        CodePushUtils.log(
+                                "Warning! JWT signature exists in codepush update but code integrity check couldn't be performed because there is no public key configured. " +
+                                "Please ensure that public key is properly configured within your application.", mResourceName
+                        );
+                        fileHashes = verifyPackageHash(newUpdateFolderPath, storedZip, newUpdateHash, downloadProgress, knownFileHashes);
+                    } else {
+                        if (isDiffUpdate) {
+                            fileHashes = verifyPackageHash(newUpdateFolderPath, storedZip, newUpdateHash, downloadProgress, knownFileHashes);
+                        }
+                    }
+                }
+
+                // Lets the verification of the next diff update hash only the files it changes.
+                if (fileHashes != null) {
+                    CodePushUpdateUtils.writeFileHashManifest(newUpdateFolderPath, fileHashes);
+                }
+
+                CodePushUtils.setJSONValueForKey(updatePackage, CodePushConstants.RELATIVE_BUNDLE_PATH_KEY, relativeBundlePath);
+            }
+        } else {
+            // File is a jsbundle, move it to a folder with the packageHash as its name
+            FileUtils.moveFile(downloadFile, newUpdateFolderPath, expectedBundleFileName);
+            moveToTrash(getStagingFolderPath(newUpdateHash));
+        }
+
+        // Assets left out of the package are only fetched up front if lazy assets are disabled.
+        CodePushLazyAssets lazyAssets = new CodePushLazyAssets(newUpdateFolderPath, mHttpTransport);
+        if (!lazyAssets.getPendingAssets().isEmpty()) {
+            String currentPackageFolderPath = getCurrentPackageFolderPath();
+            if (currentPackageFolderPath != null) {
+                lazyAssets.copyFetchedAssetsFrom(new CodePushLazyAssets(currentPackageFolderPath, mHttpTransport));
+            }
+
+            if (!CodePushCoreConfig.isLazyAssetsEnabled()) {
+                lazyAssets.fetchAll();
+            }
+        }
+
+        // Save metadata to the folder.
+        CodePushUtils.writeJsonToFile(updatePackage, newUpdateMetadataPath);
+        addToPackageCache(updatePackage);
+        lazyAssets.prefetchInBackground();
+    }
+
+    // React Native resolves the images and raw assets of a bundle loaded from a file to the drawable-* and raw
+    // folders next to it, so those must exist as files even when the package is kept as a zip.
+    private static void materializeBundleAssets(CodePushStoredZip storedZip, String relativeBundlePath) throws IOException {
+        String bundleFolderPrefix = relativeBundlePath.substring(0, relativeBundlePath.lastIndexOf('/') + 1);
+        for (String relativePath : storedZip.getPaths()) {
+            if (!relativePath.startsWith(bundleFolderPrefix)) {
+                continue;
+            }
+
+            String assetPath = relativePath.substring(bundleFolderPrefix.length());
+            if (assetPath.startsWith("raw/") || assetPath.startsWith("drawable-") && assetPath.indexOf('/') > 0) {
+                storedZip.materialize(relativePath);
+            }
+        }
+    }
+
+    private static Map<String, String> verifyPackageHash(String packageFolderPath, CodePushStoredZip storedZip, String packageHash,
+                                                         DownloadProgress downloadProgress, Map<String, String> knownFileHashes) {
+        if (storedZip != null) {
+            return CodePushUpdateUtils.verifyStoredZipHash(storedZip, packageHash, downloadProgress);
+        }
+
+        return CodePushUpdateUtils.verifyFolderHash(packageFolderPath, packageHash, downloadProgress, knownFileHashes);
+    }
+
+    public void installPackage(JSONObject updatePackage, boolean removePendingUpdate) {
+        installPackage(updatePackage.optString(CodePushConstants.PACKAGE_HASH_KEY, null), removePendingUpdate);
+    }
+
+    public void installPackage(String packageHash, boolean removePendingUpdate) {
+        long startedAt = CodePushPerformanceMetrics.startTimer();
+        long traceStartedAt = CodePushTracer.beginSection("installPackage");
+        try {
+            installPackageInternal(packageHash, removePendingUpdate);
+        } finally {
+            CodePushTracer.endSection("installPackage", traceStartedAt);
+            CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.INSTALL_PACKAGE, startedAt);
+        }
+    }
+
+    private void installPackageInternal(String packageHash, boolean removePendingUpdate) {
+        synchronized (sStatusFileLock) {
+            JSONObject info = getCurrentPackageInfo();
+
+            String currentPackageHash = info.optString(CodePushConstants.CURRENT_PACKAGE_KEY, null);
+            if (packageHash != null && packageHash.equals(currentPackageHash)) {
+                // The current package is already the one being installed, so we should no-op.
+                return;
+            }
+
+            // The packages that are replaced stay in the package cache until they are evicted.
+            if (!removePendingUpdate) {
+                CodePushUtils.setJSONValueForKey(info, CodePushConstants.PREVIOUS_PACKAGE_KEY, currentPackageHash);
+            }
+            touchCachedPackage(info, currentPackageHash);
+
+            CodePushUtils.setJSONValueForKey(info, CodePushConstants.CURRENT_PACKAGE_KEY, packageHash);
+            touchCachedPackage(info, packageHash);
+            evictCachedPackages(info, null);
+            updateCurrentPackageInfo(info);
+        }
+    }
+
+    // Runs during app startup, so the failed package is only moved to the trash and deleted in the background.
+    // Falls back to the binary's bundle if the previous package can no longer be read, since throwing here
+    // would leave the failed package current and pending on every launch.
+    public void rollbackPackage() {
+        String previousPackageHash = getPreviousPackageHash();
+        if (previousPackageHash != null && !isPackageCached(previousPackageHash)) {
+            CodePushUtils.log(CodePushLogLevel.WARN, "Previous package " + previousPackageHash + " is not in the package cache, rolling back to the binary");
+            previousPackageHash = null;
+        }
+
+        rollbackToPackage(previousPackageHash);
+    }
+
+    /**
+     * Makes a package from the package cache current again, e.g. to roll back further than the previous package,
+     * or the binary's bundle if packageHash is null. The current package, which is assumed to have failed, is
+     * removed from the cache.
+     */
+    public void rollbackToPackage(String packageHash) {
+        String failedPackageHash;
+        synchronized (sStatusFileLock) {
+            JSONObject info = getCurrentPackageInfo();
+            failedPackageHash = info.optString(CodePushConstants.CURRENT_PACKAGE_KEY, null);
+            if (packageHash != null && !isPackageCached(packageHash)) {
+                throw new CodePushUnknownException("Unable to roll back to " + packageHash + ", it is not in the package cache");
+            }
+
+            CodePushUtils.setJSONValueForKey(info, CodePushConstants.CURRENT_PACKAGE_KEY, packageHash);
+            CodePushUtils.setJSONValueForKey(info, CodePushConstants.PREVIOUS_PACKAGE_KEY, null);
+            touchCachedPackage(info, packageHash);
+            if (failedPackageHash != null) {
+                getPackageCache(info).remove(failedPackageHash);
+            }
+            updateCurrentPackageInfo(info);
+        }
+
+        if (failedPackageHash != null && !failedPackageHash.equals(packageHash)) {
+            moveToTrash(getPackageFolderPath(failedPackageHash));
+        }
+    }
+
+    private boolean isPackageCached(String packageHash) {
+        try {
+            return getPackage(packageHash) != null;
+        } catch (CodePushMalformedDataException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the packages kept on disk, most recently used first, with their deployment key, label, size and
+     * last use, e.g. to pick a package for rollbackToPackage().
+     */
+    public JSONArray getCachedPackages() {
+        JSONObject packageCache = getPackageCache(getCurrentPackageInfo());
+        List<String> packageHashes = getPackageHashesByLastUse(packageCache);
+        Collections.reverse(packageHashes);
+        JSONArray cachedPackages = new JSONArray();
+        for (String packageHash : packageHashes) {
+            JSONObject entry = packageCache.optJSONObject(packageHash);
+            JSONObject cachedPackage = new JSONObject();
+            CodePushUtils.setJSONValueForKey(cachedPackage, CodePushConstants.PACKAGE_HASH_KEY, packageHash);
+            CodePushUtils.setJSONValueForKey(cachedPackage, CACHE_DEPLOYMENT_KEY_KEY, entry.opt(CACHE_DEPLOYMENT_KEY_KEY));
+            CodePushUtils.setJSONValueForKey(cachedPackage, CACHE_LABEL_KEY, entry.opt(CACHE_LABEL_KEY));
+            CodePushUtils.setJSONValueForKey(cachedPackage, CACHE_SIZE_KEY, entry.optLong(CACHE_SIZE_KEY));
+            CodePushUtils.setJSONValueForKey(cachedPackage, CACHE_LAST_USED_AT_KEY, entry.optLong(CACHE_LAST_USED_AT_KEY));
+            cachedPackages.put(cachedPackage);
+        }
+        return cachedPackages;
+    }
+
+    // Returns the metadata of a package that is in the package cache and complete on disk.
+    private JSONObject getCachedPackage(String packageHash) {
+        if (packageHash == null || !getPackageCache(getCurrentPackageInfo()).has(packageHash)) {
+            return null;
+        }
+
+        return getPackage(packageHash);
+    }
+
+    private void addToPackageCache(JSONObject updatePackage) {
+        String packageHash = updatePackage.optString(CodePushConstants.PACKAGE_HASH_KEY, null);
+        synchronized (sStatusFileLock) {
+            JSONObject info = getCurrentPackageInfo();
+            JSONObject entry = touchCachedPackage(info, packageHash);
+            CodePushUtils.setJSONValueForKey(entry, CACHE_SIZE_KEY, FileUtils.getFolderSize(new File(getPackageFolderPath(packageHash))));
+            CodePushUtils.setJSONValueForKey(entry, CACHE_DEPLOYMENT_KEY_KEY, updatePackage.opt(CACHE_DEPLOYMENT_KEY_KEY));
+            CodePushUtils.setJSONValueForKey(entry, CACHE_LABEL_KEY, updatePackage.opt(CACHE_LABEL_KEY));
+            // The downloaded package is about to be installed, so it must not be the one evicted.
+            evictCachedPackages(info, packageHash);
+            updateCurrentPackageInfo(info);
+        }
+    }
+
+    // Marks a package as used now, adding it to the package cache if needed, e.g. when it was installed before
+    // the cache existed.
+    private JSONObject touchCachedPackage(JSONObject info, String packageHash) {
+        if (packageHash == null) {
+            return null;
+        }
+
+        JSONObject packageCache = getPackageCache(info);
+        JSONObject entry = packageCache.optJSONObject(packageHash);
+        if (entry == null) {
+            entry = new JSONObject();
+            CodePushUtils.setJSONValueForKey(entry, CACHE_SIZE_KEY, FileUtils.getFolderSize(new File(getPackageFolderPath(packageHash))));
+            CodePushUtils.setJSONValueForKey(packageCache, packageHash, entry);
+        }
+        CodePushUtils.setJSONValueForKey(entry, CACHE_LAST_USED_AT_KEY, CodePushPlatform.getClock().currentTimeMillis());
+        return entry;
+    }
+
+    // Moves the least recently used packages to the trash until the cache fits its count and byte budget. The
+    // current and previous packages are never evicted.
+    private void evictCachedPackages(JSONObject info, String protectedPackageHash) {
+        int maxCount = CodePushCoreConfig.getPackageCacheMaxCount();
+        long maxBytes = CodePushCoreConfig.getPackageCacheMaxBytes();
+        JSONObject packageCache = getPackageCache(info);
+        int count = packageCache.length();
+        long totalBytes = 0;
+        List<String> packageHashes = getPackageHashesByLastUse(packageCache);
+        for (String packageHash : packageHashes) {
+            totalBytes += packageCache.optJSONObject(packageHash).optLong(CACHE_SIZE_KEY);
+        }
+
+        Set<String> protectedPackageHashes = new HashSet<>();
+        protectedPackageHashes.add(info.optString(CodePushConstants.CURRENT_PACKAGE_KEY, null));
+        protectedPackageHashes.add(info.optString(CodePushConstants.PREVIOUS_PACKAGE_KEY, null));
+        protectedPackageHashes.add(protectedPackageHash);
+        for (String packageHash : packageHashes) {
+            if (count <= maxCount && (maxBytes <= 0 || totalBytes <= maxBytes)) {
+                break;
+            }
+
+            if (protectedPackageHashes.contains(packageHash)) {
+                continue;
+            }
+
+            CodePushUtils.log("Evicting cached package " + packageHash, mResourceName);
+            totalBytes -= packageCache.optJSONObject(packageHash).optLong(CACHE_SIZE_KEY);
+            count--;
+            packageCache.remove(packageHash);
+            moveToTrash(getPackageFolderPath(packageHash));
+        }
+    }
+
+    private static JSONObject getPackageCache(JSONObject info) {
+        JSONObject packageCache = info.optJSONObject(CodePushConstants.PACKAGE_CACHE_KEY);
+        if (packageCache == null) {
+            packageCache = new JSONObject();
+            CodePushUtils.setJSONValueForKey(info, CodePushConstants.PACKAGE_CACHE_KEY, packageCache);
+        }
+        return packageCache;
+    }
+
+    // Least recently used first.
+    private static List<String> getPackageHashesByLastUse(final JSONObject packageCache) {
+        List<String> packageHashes = new ArrayList<>();
+        Iterator<String> keys = packageCache.keys();
+        while (keys.hasNext()) {
+            packageHashes.add(keys.next());
+        }
+
+        Collections.sort(packageHashes, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                long firstLastUsedAt = packageCache.optJSONObject(first).optLong(CACHE_LAST_USED_AT_KEY);
+                long secondLastUsedAt = packageCache.optJSONObject(second).optLong(CACHE_LAST_USED_AT_KEY);
+                return firstLastUsedAt < secondLastUsedAt ? -1 : (firstLastUsedAt == secondLastUsedAt ? 0 : 1);
+            }
+        });
+        return packageHashes;
+    }
+
+    public void downloadAndReplaceCurrentBundle(String remoteBundleUrl, String bundleFileName) throws IOException {
+        CodePushHttpResponse response = null;
+        BufferedInputStream bin = null;
+        FileOutputStream fos = null;
+        BufferedOutputStream bout = null;
+        byte[] data = null;
+        try {
+            response = executeRequest(new CodePushHttpRequest(remoteBundleUrl));
+            bin = new BufferedInputStream(response.getBody());
+            File downloadFile = new File(getCurrentPackageBundlePath(bundleFileName));
+            downloadFile.delete();
+            fos = new FileOutputStream(downloadFile);
+            bout = new BufferedOutputStream(fos, CodePushConstants.DOWNLOAD_BUFFER_SIZE);
+            data = CodePushBufferPool.acquire(CodePushConstants.DOWNLOAD_BUFFER_SIZE);
+            int numBytesRead = 0;
+            while ((numBytesRead = bin.read(data, 0, CodePushConstants.DOWNLOAD_BUFFER_SIZE)) >= 0) {
+                bout.write(data, 0, numBytesRead);
+            }
+        } catch (MalformedURLException e) {
+            throw new CodePushMalformedDataException(remoteBundleUrl, e);
+        } finally {
+            try {
+                if (bout != null) bout.close();
+                if (fos != null) fos.close();
+                if (bin != null) bin.close();
+                if (response != null) response.close();
+            } catch (IOException e) {
+                throw new CodePushUnknownException("Error closing IO resources.", e);
+            } finally {
+                CodePushBufferPool.release(data);
+            }
+        }
+    }
+
+    // Large packages are fetched over several connections if the mirror serves byte ranges.
+    private boolean isSegmentedDownload(CodePushMirrorInputStream mirrorInputStream) {
+        long threshold = CodePushCoreConfig.getSegmentedDownloadThreshold();
+        return threshold > 0 && CodePushCoreConfig.getDownloadSegmentCount() > 1
+                && mirrorInputStream.getContentLength() >= threshold && mirrorInputStream.isRangeSupported();
+    }
+
+    // Shared by all resources, next to their folders.
+    private CodePushTrash getTrash() {
+        return new CodePushTrash(CodePushUtils.appendPathComponent(getDocumentsDirectory(),
+                CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/" + CodePushConstants.TRASH_FOLDER_NAME));
+    }
+
+    private CodePushMirrorStats getMirrorStats() {
+        return new CodePushMirrorStats(CodePushUtils.appendPathComponent(getDocumentsDirectory(),
+                CodePushConstants.CODE_PUSH_FOLDER_PREFIX + "/" + CodePushConstants.MIRROR_STATS_FILE));
+    }
+
+    // The package URL itself, mirrors listed by the update check and the configured mirror hosts.
+    private List<String> getDownloadUrls(JSONObject updatePackage, String downloadUrl) throws MalformedURLException {
+        Set<String> downloadUrls = new LinkedHashSet<>();
+        downloadUrls.add(downloadUrl);
+        JSONArray mirrorUrls = updatePackage.optJSONArray(CodePushConstants.DOWNLOAD_MIRROR_URLS_KEY);
+        if (mirrorUrls != null) {
+            for (int i = 0; i < mirrorUrls.length(); i++) {
+                String mirrorUrl = mirrorUrls.optString(i, null);
+                if (mirrorUrl != null) {
+                    downloadUrls.add(mirrorUrl);
+                }
+            }
+        }
+
+        for (String mirrorBaseUrl : CodePushCoreConfig.getDownloadMirrors()) {
+            downloadUrls.add(CodePushMirrorInputStream.rebaseUrl(downloadUrl, mirrorBaseUrl));
+        }
+
+        return new ArrayList<>(downloadUrls);
+    }
+
+    private CodePushHttpResponse executeRequest(CodePushHttpRequest request) throws IOException {
+        CodePushHttpResponse response = mHttpTransport.execute(request);
+        int statusCode = response.getStatusCode();
+        if (statusCode < HttpURLConnection.HTTP_OK || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            response.close();
+            throw new IOException("Received HTTP status " + statusCode + " for " + request);
+        }
+
+        return response;
+    }
+
+    /**
+     * Returns how many of the assets of the current package that were left out of it are not fetched yet.
+     */
+    public JSONObject getLazyAssetStatus() throws IOException {
+        String currentPackageFolderPath = getCurrentPackageFolderPath();
+        if (currentPackageFolderPath == null) {
+            return new JSONObject();
+        }
+
+        return new CodePushLazyAssets(currentPackageFolderPath, mHttpTransport).getStatus();
+    }
+
+    /**
+     * Returns the absolute path of an asset that was left out of the current package, fetching it first if it is
+     * not fetched yet, or of a file of a package kept as a zip, writing it out first. Returns null for any other
+     * path, including one that leaves the package folder.
+     */
+    public String resolveLazyAsset(String relativePath) throws IOException {
+        String currentPackageFolderPath = getCurrentPackageFolderPath();
+        relativePath = CodePushStoredZip.normalizeEntryName(relativePath);
+        if (currentPackageFolderPath == null || relativePath == null) {
+            return null;
+        }
+
+        String path = new CodePushLazyAssets(currentPackageFolderPath, mHttpTransport).resolve(relativePath);
+        if (path == null && CodePushStoredZip.isStoredZipPackage(currentPackageFolderPath)) {
+            CodePushStoredZip storedZip = CodePushStoredZip.open(currentPackageFolderPath);
+            if (storedZip.contains(relativePath)) {
+                path = storedZip.materialize(relativePath);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Opens a file of the current package, which is read straight from the zip if the package was kept as one,
+     * or returns null if there is no such file.
+     */
+    public InputStream openPackageFile(String relativePath) throws IOException {
+        String currentPackageFolderPath = getCurrentPackageFolderPath();
+        relativePath = CodePushStoredZip.normalizeEntryName(relativePath);
+        if (currentPackageFolderPath == null || relativePath == null) {
+            return null;
+        }
+
+        if (CodePushStoredZip.isStoredZipPackage(currentPackageFolderPath)) {
+            CodePushStoredZip storedZip = CodePushStoredZip.open(currentPackageFolderPath);
+            if (storedZip.contains(relativePath)) {
+                return storedZip.openFile(relativePath);
+            }
+        }
+
+        File file = new File(currentPackageFolderPath, relativePath);
+        return file.exists() ? new FileInputStream(file) : null;
+    }
+
+    public void fetchLazyAssets() throws IOException {
+        String currentPackageFolderPath = getCurrentPackageFolderPath();
+        if (currentPackageFolderPath != null) {
+            new CodePushLazyAssets(currentPackageFolderPath, mHttpTransport).fetchAll();
+        }
+    }
+
+    public void prefetchLazyAssetsInBackground() throws IOException {
+        String currentPackageFolderPath = getCurrentPackageFolderPath();
+        if (currentPackageFolderPath != null) {
+            new CodePushLazyAssets(currentPackageFolderPath, mHttpTransport).prefetchInBackground();
+        }
+    }
+
+    public void clearUpdates() {
+        moveToTrash(getCodePushPath());
+    }
+
+    /**
+     * Deletes whatever was moved to the trash in the background, including what was left there when the
+     * process died.
+     */
+    public void emptyTrashInBackground() {
+        getTrash().emptyInBackground();
+    }
+
+    public JSONObject getTrashStatus() {
+        return getTrash().getStatus();
+    }
+
+    // Recursive deletes of package folders would block the caller for as long as there are files to delete.
+    private void moveToTrash(String path) {
+        CodePushTrash trash = getTrash();
+        trash.moveToTrash(path);
+        trash.emptyInBackground();
+    }
+}
@@ -0,0 +1,431 @@
+package com.microsoft.codepush.react;
+
+import java.security.interfaces.*;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jose.crypto.*;
+import com.nimbusds.jwt.*;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+public class CodePushUpdateUtils {
+
+    public static final String NEW_LINE = System.getProperty("line.separator");
+
+    // Note: The hashing logic here must mirror the hashing logic in other native SDK's, as well as in the
+    // CLI. Ensure that any changes here are propagated to these other locations.
+    public static boolean isHashIgnored(String relativeFilePath) {
+        final String __MACOSX = "__MACOSX/";
+        final String DS_STORE = ".DS_Store";
+        final String CODEPUSH_METADATA = ".codepushrelease";
+
+        return relativeFilePath.startsWith(__MACOSX)
+                || relativeFilePath.equals(DS_STORE)
+                || relativeFilePath.endsWith("/" + DS_STORE)
+                || relativeFilePath.equals(CODEPUSH_METADATA)
+                || relativeFilePath.endsWith("/" + CODEPUSH_METADATA)
+                // Written next to the contents by writeFileHashManifest, under a name reserved for it.
+                || relativeFilePath.equals(CodePushConstants.FILE_HASH_MANIFEST_FILE_NAME);
+    }
+
+    private static void addContentsOfFolderToManifest(String folderPath, String pathPrefix, ArrayList<String> relativePaths, ArrayList<File> files) {
+        File folder = new File(folderPath);
+        File[] folderFiles = folder.listFiles();
+        for (File file : folderFiles) {
+            String fileName = file.getName();
+            String fullFilePath = file.getAbsolutePath();
+            String relativePath = (pathPrefix.isEmpty() ? "" : (pathPrefix + "/")) + fileName;
+
+            if (CodePushUpdateUtils.isHashIgnored(relativePath)) {
+                continue;
+            }
+
+            if (file.isDirectory()) {
+                addContentsOfFolderToManifest(fullFilePath, relativePath, relativePaths, files);
+            } else {
+                relativePaths.add(relativePath);
+                files.add(file);
+            }
+        }
+    }
+
+    static String computeHash(InputStream dataStream) {
+        MessageDigest messageDigest = null;
+        DigestInputStream digestInputStream = null;
+        byte[] byteBuffer = CodePushBufferPool.acquire(1024 * 8);
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+            digestInputStream = new DigestInputStream(dataStream, messageDigest);
+            while (digestInputStream.read(byteBuffer) != -1) ;
+        } catch (NoSuchAlgorithmException | IOException e) {
+            // Should not happen.
+            throw new CodePushUnknownException("Unable to compute hash of update contents.", e);
+        } finally {
+            CodePushBufferPool.release(byteBuffer);
+            try {
+                if (digestInputStream != null) digestInputStream.close();
+                if (dataStream != null) dataStream.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        byte[] hash = messageDigest.digest();
+        return String.format("%064x", new java.math.BigInteger(1, hash));
+    }
+
+    public static void copyNecessaryFilesFromCurrentPackage(String diffManifestFilePath, String currentPackageFolderPath, String newPackageFolderPath) throws IOException {
+        JSONObject diffManifest = CodePushUtils.getJsonObjectFromFile(diffManifestFilePath);
+        if (CodePushStoredZip.isStoredZipPackage(currentPackageFolderPath)) {
+            // The merged package is extracted, since the diff changes some of the files. Every file of the current
+            // package is in its zip, so only the entries that the diff neither replaces nor deletes are written.
+            Set<String> excludedPaths = getRelativeFilePaths(new File(diffManifestFilePath).getParent());
+            JSONArray deletedFiles = diffManifest.optJSONArray("deletedFiles");
+            for (int i = 0; deletedFiles != null && i < deletedFiles.length(); i++) {
+                excludedPaths.add(deletedFiles.optString(i));
+            }
+            CodePushStoredZip.open(currentPackageFolderPath).extractTo(newPackageFolderPath, excludedPaths);
+        } else {
+            FileUtils.copyDirectoryContents(currentPackageFolderPath, newPackageFolderPath);
+        }
+
+        try {
+            JSONArray deletedFiles = diffManifest.getJSONArray("deletedFiles");
+            for (int i = 0; i < deletedFiles.length(); i++) {
+                String fileNameToDelete = deletedFiles.getString(i);
+                File fileToDelete = new File(newPackageFolderPath, fileNameToDelete);
+                if (fileToDelete.exists()) {
+                    fileToDelete.delete();
+                }
+            }
+        } catch (JSONException e) {
+            throw new CodePushUnknownException("Unable to copy files from current package during diff update", e);
+        }
+    }
+
+    public static String findJSBundleInUpdateContents(String folderPath, String expectedFileName) {
+        File folder = new File(folderPath);
+        File[] folderFiles = folder.listFiles();
+        for (File file : folderFiles) {
+            String fullFilePath = CodePushUtils.appendPathComponent(folderPath, file.getName());
+            if (file.isDirectory()) {
+                String mainBundlePathInSubFolder = findJSBundleInUpdateContents(fullFilePath, expectedFileName);
+                if (mainBundlePathInSubFolder != null) {
+                    // Keep the path relative, appendPathComponent would resolve it against the working directory.
+                    return new File(file.getName(), mainBundlePathInSubFolder).getPath();
+                }
+            } else {
+                String fileName = file.getName();
+                if (fileName.equals(expectedFileName)) {
+                    return fileName;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // Hashing algorithm:
+    // 1. Recursively generate a sorted array of format <relativeFilePath>: <sha256FileHash>
+    // 2. JSON stringify the array
+    // 3. SHA256-hash the result
+    public static void verifyFolderHash(String folderPath, String expectedHash) {
+        verifyFolderHash(folderPath, expectedHash, null, null);
+    }
+
+    /**
+     * Returns the hash of every file by its relative path, e.g. to store it with writeFileHashManifest().
+     * Files found in knownFileHashes are not read again, their hash is taken from there instead. Reports the
+     * number of file bytes hashed so far to downloadProgress, if given.
+     */
+    static Map<String, String> verifyFolderHash(String folderPath, String expectedHash, DownloadProgress downloadProgress, Map<String, String> knownFileHashes) {
+        long startedAt = CodePushPerformanceMetrics.startTimer();
+        long traceStartedAt = CodePushTracer.beginSection("verifyFolderHash");
+        try {
+            return verifyFolderHashInternal(folderPath, expectedHash, downloadProgress, knownFileHashes);
+        } finally {
+            CodePushTracer.endSection("verifyFolderHash", traceStartedAt);
+            CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.VERIFY_FOLDER_HASH, startedAt);
+        }
+    }
+
+    private static Map<String, String> verifyFolderHashInternal(String folderPath, String expectedHash, DownloadProgress downloadProgress, Map<String, String> knownFileHashes) {
+        CodePushUtils.log(CodePushLogLevel.DEBUG, "Verifying hash for folder path: " + folderPath);
+        ArrayList<String> relativePaths = new ArrayList<>();
+        ArrayList<File> files = new ArrayList<>();
+        addContentsOfFolderToManifest(folderPath, "", relativePaths, files);
+        if (knownFileHashes == null) {
+            knownFileHashes = Collections.emptyMap();
+        }
+
+        long totalBytes = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if (!knownFileHashes.containsKey(relativePaths.get(i))) {
+                totalBytes += files.get(i).length();
+            }
+        }
+        if (downloadProgress != null) {
+            downloadProgress.startPhase(DownloadProgress.Phase.VERIFY, totalBytes);
+        }
+
+        Map<String, String> fileHashes = new HashMap<>();
+        int reusedFileHashCount = 0;
+        ArrayList<String> updateContentsManifest = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            String relativePath = relativePaths.get(i);
+            String fileHash = knownFileHashes.get(relativePath);
+            if (fileHash == null) {
+                try {
+                    fileHash = computeHash(new FileInputStream(file));
+                } catch (FileNotFoundException e) {
+                    // Should not happen.
+                    throw new CodePushUnknownException("Unable to compute hash of update contents.", e);
+                }
+
+                if (downloadProgress != null) {
+                    downloadProgress.addPhaseProgress(file.length());
+                }
+            } else {
+                reusedFileHashCount++;
+            }
+
+            fileHashes.put(relativePath, fileHash);
+            updateContentsManifest.add(relativePath + ":" + fileHash);
+        }
+        CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.VERIFY_FOLDER_HASH_BYTES, totalBytes);
+        CodePushUtils.log(CodePushLogLevel.DEBUG, "Reused the stored hashes of " + reusedFileHashCount + " of " + files.size() + " files.");
+
+        verifyUpdateContentsManifest(updateContentsManifest, expectedHash);
+        return fileHashes;
+    }
+
+    /**
+     * Same as verifyFolderHash(), for a package that is kept as a zip of uncompressed files, which are hashed
+     * straight from the zip.
+     */
+    static Map<String, String> verifyStoredZipHash(CodePushStoredZip storedZip, String expectedHash, DownloadProgress downloadProgress) {
+        long startedAt = CodePushPerformanceMetrics.startTimer();
+        long traceStartedAt = CodePushTracer.beginSection("verifyFolderHash");
+        try {
+            return verifyStoredZipHashInternal(storedZip, expectedHash, downloadProgress);
+        } finally {
+            CodePushTracer.endSection("verifyFolderHash", traceStartedAt);
+            CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.VERIFY_FOLDER_HASH, startedAt);
+        }
+    }
+
+    private static Map<String, String> verifyStoredZipHashInternal(CodePushStoredZip storedZip, String expectedHash, DownloadProgress downloadProgress) {
+        ArrayList<String> relativePaths = new ArrayList<>();
+        long totalBytes = 0;
+        for (String relativePath : storedZip.getPaths()) {
+            if (!isHashIgnored(relativePath)) {
+                relativePaths.add(relativePath);
+                totalBytes += storedZip.getSize(relativePath);
+            }
+        }
+        if (downloadProgress != null) {
+            downloadProgress.startPhase(DownloadProgress.Phase.VERIFY, totalBytes);
+        }
+
+        Map<String, String> fileHashes = new HashMap<>();
+        ArrayList<String> updateContentsManifest = new ArrayList<>(relativePaths.size());
+        for (String relativePath : relativePaths) {
+            String fileHash = storedZip.computeHash(relativePath);
+            fileHashes.put(relativePath, fileHash);
+            updateContentsManifest.add(relativePath + ":" + fileHash);
+            if (downloadProgress != null) {
+                downloadProgress.addPhaseProgress(storedZip.getSize(relativePath));
+            }
+        }
+        CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.VERIFY_FOLDER_HASH_BYTES, totalBytes);
+
+        verifyUpdateContentsManifest(updateContentsManifest, expectedHash);
+        return fileHashes;
+    }
+
+    private static void verifyUpdateContentsManifest(ArrayList<String> updateContentsManifest, String expectedHash) {
+        //sort manifest strings to make sure, that they are completely equal with manifest strings has been generated in cli!
+        Collections.sort(updateContentsManifest);
+        JSONArray updateContentsJSONArray = new JSONArray();
+        for (String manifestEntry : updateContentsManifest) {
+            updateContentsJSONArray.put(manifestEntry);
+        }
+
+        // The JSON serialization turns path separators into "\/", e.g. "CodePush\/assets\/image.png"
+        final String updateContentsManifestString = updateContentsJSONArray.toString().replace("\\/", "/");
+        // The manifest has an entry per file and can be megabytes long, so it is only built for verbose logging.
+        CodePushUtils.log(CodePushLogLevel.VERBOSE, new CodePushUtils.LogMessageSupplier() {
+            @Override
+            public String get() {
+                return "Manifest string: " + updateContentsManifestString;
+            }
+        });
+
+        String updateContentsManifestHash = computeHash(new ByteArrayInputStream(updateContentsManifestString.getBytes()));
+
+        if (!expectedHash.equals(updateContentsManifestHash)) {
+            CodePushUtils.log(CodePushLogLevel.WARN, "Expected hash: " + expectedHash + ", actual hash: " + updateContentsManifestHash
+                    + " for " + updateContentsManifest.size() + " files");
+            throw new CodePushInvalidUpdateException("The update contents failed the data integrity check.");
+        }
+
+        CodePushUtils.log(CodePushLogLevel.DEBUG, "The update contents succeeded the data integrity check.");
+    }
+
+    public static Set<String> getRelativeFilePaths(String folderPath) {
+        ArrayList<String> relativePaths = new ArrayList<>();
+        addContentsOfFolderToManifest(folderPath, "", relativePaths, new ArrayList<File>());
+        return new HashSet<>(relativePaths);
+    }
+
+    public static String getFileHashManifestPath(String packageFolderPath) {
+        return CodePushUtils.appendPathComponent(packageFolderPath, CodePushConstants.FILE_HASH_MANIFEST_FILE_NAME);
+    }
+
+    // Returns null if the package was installed without its files being hashed, or the manifest is unreadable.
+    public static Map<String, String> readFileHashManifest(String packageFolderPath) {
+        String fileHashManifestPath = getFileHashManifestPath(packageFolderPath);
+        if (!FileUtils.fileAtPathExists(fileHashManifestPath)) {
+            return null;
+        }
+
+        try {
+            JSONObject fileHashManifest = CodePushUtils.getJsonObjectFromFile(fileHashManifestPath);
+            Map<String, String> fileHashes = new HashMap<>();
+            Iterator<String> relativePaths = fileHashManifest.keys();
+            while (relativePaths.hasNext()) {
+                String relativePath = relativePaths.next();
+                fileHashes.put(relativePath, fileHashManifest.getString(relativePath));
+            }
+            return fileHashes;
+        } catch (IOException | JSONException | CodePushMalformedDataException e) {
+            CodePushUtils.log(e);
+            return null;
+        }
+    }
+
+    public static void writeFileHashManifest(String packageFolderPath, Map<String, String> fileHashes) throws IOException {
+        CodePushUtils.writeJsonToFile(new JSONObject(fileHashes), getFileHashManifestPath(packageFolderPath));
+    }
+
+    public static Map<String, Object> verifyAndDecodeJWT(String jwt, PublicKey publicKey) {
+        try {
+            SignedJWT signedJWT = SignedJWT.parse(jwt);
+            JWSVerifier verifier = new RSASSAVerifier((RSAPublicKey)publicKey);
+            if (signedJWT.verify(verifier)) {
+                final Map<String, Object> claims = signedJWT.getJWTClaimsSet().getClaims();
+                CodePushUtils.log(CodePushLogLevel.VERBOSE, new CodePushUtils.LogMessageSupplier() {
+                    @Override
+                    public String get() {
+                        return "JWT verification succeeded, payload content: " + claims.toString();
+                    }
+                });
+                return claims;
+            }
+            return null;
+        } catch (Exception ex) {
+            CodePushUtils.log(ex);
+            return null;
+        }
+    }
+
+    public static PublicKey parsePublicKey(String stringPublicKey) {
+        try {
+            //remove unnecessary "begin/end public key" entries from string
+            stringPublicKey = stringPublicKey
+                    .replace("-----BEGIN PUBLIC KEY-----", "")
+                    .replace("-----END PUBLIC KEY-----", "")
+                    .replace(NEW_LINE, "");
+            byte[] byteKey = CodePushPlatform.getBase64().decode(stringPublicKey);
+            X509EncodedKeySpec X509Key = new X509EncodedKeySpec(byteKey);
+            KeyFactory kf = KeyFactory.getInstance("RSA");
+
+            return kf.generatePublic(X509Key);
+        } catch (Exception e) {
+            CodePushUtils.log(e);
+            return null;
+        }
+    }
+
+    public static String getSignatureFilePath(String updateFolderPath){
+        return CodePushUtils.appendPathComponent(
+                CodePushUtils.appendPathComponent(updateFolderPath, CodePushConstants.CODE_PUSH_FOLDER_PREFIX),
+                CodePushConstants.BUNDLE_JWT_FILE
+        );
+    }
+
+    public static String getSignature(String folderPath) {
+        final String signatureFilePath = getSignatureFilePath(folderPath);
+
+        try {
+            return FileUtils.readFileToString(signatureFilePath);
+        } catch (IOException e) {
+            CodePushUtils.log(e);
+            return null;
+        }
+    }
+
+    public static void verifyUpdateSignature(String folderPath, String packageHash, String stringPublicKey) throws CodePushInvalidUpdateException {
+        long startedAt = CodePushPerformanceMetrics.startTimer();
+        long traceStartedAt = CodePushTracer.beginSection("verifyUpdateSignature");
+        try {
+            verifyUpdateSignatureInternal(folderPath, packageHash, stringPublicKey);
+        } finally {
+            CodePushTracer.endSection("verifyUpdateSignature", traceStartedAt);
+            CodePushPerformanceMetrics.stopTimer(CodePushPerformanceMetrics.Metric.VERIFY_SIGNATURE, startedAt);
+        }
+    }
+
+    private static void verifyUpdateSignatureInternal(String folderPath, String packageHash, String stringPublicKey) throws CodePushInvalidUpdateException {
+        CodePushUtils.log(CodePushLogLevel.DEBUG, "Verifying signature for folder path: " + folderPath);
+
+        final PublicKey publicKey = parsePublicKey(stringPublicKey);
+        if (publicKey == null) {
+            throw new CodePushInvalidUpdateException("The update could not be verified because no public key was found.");
+        }
+
+        final String signature = getSignature(folderPath);
+        if (signature == null) {
+            throw new CodePushInvalidUpdateException("The update could not be verified because no signature was found.");
+        }
+
+        final Map<String, Object> claims = verifyAndDecodeJWT(signature, publicKey);
+        if (claims == null) {
+            throw new CodePushInvalidUpdateException("The update could not be verified because it was not signed by a trusted party.");
+        }
+
+        final String contentHash = (String)claims.get("contentHash");
+        if (contentHash == null) {
+            throw new CodePushInvalidUpdateException("The update could not be verified because the signature did not specify a content hash.");
+        }
+
+        if (!contentHash.equals(packageHash)) {
+            throw new CodePushInvalidUpdateException("The update contents failed the code signing check.");
+        }
+
+        CodePushUtils.log(CodePushLogLevel.DEBUG, "The update contents succeeded the code signing check.");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.microsoft.codepush.react;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+public class CodePushUtils {
+
+    public static String appendPathComponent(String basePath, String appendPathComponent) {
+        return new File(basePath, appendPathComponent).getAbsolutePath();
+    }
+
+    public static String getStringFromInputStream(InputStream inputStream) throws IOException {
+        BufferedReader bufferedReader = null;
+        try {
+            StringBuilder buffer = new StringBuilder();
+            bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
+
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                buffer.append(line);
+                buffer.append("\n");
+            }
+
+            return buffer.toString().trim();
+        } finally {
+            if (bufferedReader != null) bufferedReader.close();
+            if (inputStream != null) inputStream.close();
+        }
+    }
+
+    public static JSONObject getJsonObjectFromFile(String filePath) throws IOException {
+        String content = FileUtils.readFileToString(filePath);
+        try {
+            return new JSONObject(content);
+        } catch (JSONException jsonException) {
+            // Should not happen
+            throw new CodePushMalformedDataException(filePath, jsonException);
+        }
+    }
+
+    /**
+     * Builds a log message only once it is known that it will be logged.
+     */
+    public interface LogMessageSupplier {
+        String get();
+    }
+
+    private static class LogEvent {
+        final long timestamp;
+        final CodePushLogLevel level;
+        final String message;
+
+        LogEvent(long timestamp, CodePushLogLevel level, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.message = message;
+        }
+    }
+
+    private static volatile CodePushLogLevel sLogLevel = CodePushConstants.DEFAULT_LOG_LEVEL;
+    private static volatile CodePushRingBuffer<LogEvent> sRecentLogEvents = new CodePushRingBuffer<>(CodePushConstants.DEFAULT_LOG_BUFFER_SIZE);
+
+    /**
+     * Messages below this level are neither built, passed to the platform logger nor kept in the recent log buffer.
+     */
+    public static void setLogLevel(CodePushLogLevel logLevel) {
+        sLogLevel = logLevel;
+    }
+
+    public static CodePushLogLevel getLogLevel() {
+        return sLogLevel;
+    }
+
+    /**
+     * Sets the number of most recent log events kept in memory for {@link #getRecentLogEvents()}, 0 disables the buffer.
+     */
+    public static void setLogBufferSize(int logBufferSize) {
+        sRecentLogEvents = logBufferSize > 0 ? new CodePushRingBuffer<LogEvent>(logBufferSize) : null;
+    }
+
+    public static boolean isLoggable(CodePushLogLevel level) {
+        return level.getValue() >= sLogLevel.getValue();
+    }
+
+    public static void log(CodePushLogLevel level, String message) {
+        if (!isLoggable(level)) {
+            return;
+        }
+
+        String formattedMessage = "[CodePush] " + message;
+        CodePushPlatform.getLogger().log(level, formattedMessage);
+        CodePushRingBuffer<LogEvent> recentLogEvents = sRecentLogEvents;
+        if (recentLogEvents != null) {
+            recentLogEvents.add(new LogEvent(CodePushPlatform.getClock().currentTimeMillis(), level, formattedMessage));
+        }
+    }
+
+    public static void log(CodePushLogLevel level, LogMessageSupplier messageSupplier) {
+        if (isLoggable(level)) {
+            log(level, messageSupplier.get());
+        }
+    }
+
+    public static void log(CodePushLogLevel level, String resourceName, LogMessageSupplier messageSupplier) {
+        if (isLoggable(level)) {
+            log(level, "[" + resourceName + "] " + messageSupplier.get());
+        }
+    }
+
+    public static void log(String message) {
+        log(CodePushLogLevel.DEBUG, message);
+    }
+
+    public static void log(String message, String resourceName) {
+        if (isLoggable(CodePushLogLevel.DEBUG)) {
+            log(CodePushLogLevel.DEBUG, "[" + resourceName + "] " + message);
+        }
+    }
+
+    public static void log(Throwable tr) {
+        if (isLoggable(CodePushLogLevel.ERROR)) {
+            log(CodePushLogLevel.ERROR, "Exception\n" + getStackTraceString(tr));
+        }
+    }
+
+    public static void log(Throwable tr, String resourceName) {
+        if (isLoggable(CodePushLogLevel.ERROR)) {
+            log(CodePushLogLevel.ERROR, "[" + resourceName + "] Exception\n" + getStackTraceString(tr));
+        }
+    }
+
+    /**
+     * Returns the most recent log events that passed the log level, oldest first, e.g. to attach them to a
+     * bug report after a failed update.
+     */
+    public static JSONArray getRecentLogEvents() {
+        JSONArray logEvents = new JSONArray();
+        CodePushRingBuffer<LogEvent> recentLogEvents = sRecentLogEvents;
+        if (recentLogEvents == null) {
+            return logEvents;
+        }
+
+        for (LogEvent logEvent : recentLogEvents.snapshot()) {
+            JSONObject logEventJson = new JSONObject();
+            setJSONValueForKey(logEventJson, "timestamp", logEvent.timestamp);
+            setJSONValueForKey(logEventJson, "level", logEvent.level.name().toLowerCase());
+            setJSONValueForKey(logEventJson, "message", logEvent.message);
+            logEvents.put(logEventJson);
+        }
+
+        return logEvents;
+    }
+
+    private static String getStackTraceString(Throwable tr) {
+        StringWriter stackTrace = new StringWriter();
+        PrintWriter printWriter = new PrintWriter(stackTrace);
+        tr.printStackTrace(printWriter);
+        printWriter.flush();
+        return stackTrace.toString();
+    }
+
+    public static void logBundleUrl(String path, String resourceName) {
+        log("Loading JS bundle from \"" + path + "\"", resourceName);
+    }
+
+    public static void setJSONValueForKey(JSONObject json, String key, Object value) {
+        try {
+            json.put(key, value);
+        } catch (JSONException e) {
+            throw new CodePushUnknownException("Unable to set value " + value + " for key " + key + " to JSONObject");
+        }
+    }
+
+    public static void writeJsonToFile(JSONObject json, String filePath) throws IOException {
+        String jsonString = json.toString();
+        FileUtils.writeStringToFile(jsonString, filePath);
+    }
+}
@@ -0,0 +1,103 @@
+package com.microsoft.codepush.react;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a package download, shared between the thread doing the work and the thread reporting it.
+ * The worker only updates primitive atomics; the reporter samples them into a reusable {@link Snapshot}
+ * whenever it wants to, so nothing is allocated per chunk read.
+ *
+ * Callers of {@link CodePushUpdateManager#downloadPackage} pass one in and sample it from their own thread.
+ */
+public class DownloadProgress {
+
+    public enum Phase {
+        DOWNLOAD("download"),
+        EXTRACT("extract"),
+        VERIFY("verify");
+
+        private final String mName;
+        Phase(String name) {
+            mName = name;
+        }
+        public String getName() {
+            return mName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    // Odd while a phase switch is in progress, so a sample never mixes two phases.
+    private final AtomicInteger mPhaseSequence = new AtomicInteger();
+    private final AtomicInteger mPhase = new AtomicInteger(Phase.DOWNLOAD.ordinal());
+    private final AtomicLong mPhaseTotal = new AtomicLong(-1);
+    private final AtomicLong mPhaseCompleted = new AtomicLong();
+
+    private final AtomicLong mTotalBytes = new AtomicLong(-1);
+    private final AtomicLong mReceivedBytes = new AtomicLong();
+
+    // Set when the download joined one already in flight, whose progress is then reported instead.
+    private volatile DownloadProgress mSource;
+
+    public void follow(DownloadProgress source) {
+        mSource = source;
+    }
+
+    public void startDownload(long totalBytes) {
+        mTotalBytes.set(totalBytes);
+        mReceivedBytes.set(0);
+        startPhase(Phase.DOWNLOAD, totalBytes);
+    }
+
+    public void addReceivedBytes(long bytes) {
+        mReceivedBytes.addAndGet(bytes);
+        mPhaseCompleted.addAndGet(bytes);
+    }
+
+    public void startPhase(Phase phase, long phaseTotal) {
+        mPhaseSequence.incrementAndGet();
+        mPhase.set(phase.ordinal());
+        mPhaseTotal.set(phaseTotal);
+        mPhaseCompleted.set(0);
+        mPhaseSequence.incrementAndGet();
+    }
+
+    public void addPhaseProgress(long amount) {
+        mPhaseCompleted.addAndGet(amount);
+    }
+
+    public void sample(Snapshot snapshot) {
+        DownloadProgress source = mSource;
+        if (source != null) {
+            source.sample(snapshot);
+            return;
+        }
+
+        int sequence;
+        do {
+            sequence = mPhaseSequence.get();
+            snapshot.phase = PHASES[mPhase.get()];
+            snapshot.phaseTotal = mPhaseTotal.get();
+            snapshot.phaseCompleted = mPhaseCompleted.get();
+        } while ((sequence & 1) != 0 || sequence != mPhaseSequence.get());
+
+        snapshot.totalBytes = mTotalBytes.get();
+        snapshot.receivedBytes = mReceivedBytes.get();
+    }
+
+    /**
+     * A point-in-time copy of the progress, owned and reused by a single reader.
+     */
+    public static class Snapshot {
+        public Phase phase;
+        public long phaseTotal;
+        public long phaseCompleted;
+        public long totalBytes;
+        public long receivedBytes;
+
+        public boolean isPhaseCompleted() {
+            return phaseTotal >= 0 && phaseTotal == phaseCompleted;
+        }
+    }
+}
@@ -5,7 +5,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.util.zip.ZipEntry;
@@ -28,28 +30,33 @@ public class FileUtils {
                         CodePushUtils.appendPathComponent(sourceDirectoryPath, sourceFile.getName()),
                         CodePushUtils.appendPathComponent(destinationDirectoryPath, sourceFile.getName()));
             } else {
-                File destFile = new File(destDir, sourceFile.getName());
-                FileInputStream fromFileStream = null;
-                BufferedInputStream fromBufferedStream = null;
-                FileOutputStream destStream = null;
-                byte[] buffer = new byte[WRITE_BUFFER_SIZE];
-                try {
-                    fromFileStream = new FileInputStream(sourceFile);
-                    fromBufferedStream = new BufferedInputStream(fromFileStream);
-                    destStream = new FileOutputStream(destFile);
-                    int bytesRead;
-                    while ((bytesRead = fromBufferedStream.read(buffer)) > 0) {
-                        destStream.write(buffer, 0, bytesRead);
-                    }
-                } finally {
-                    try {
-                        if (fromFileStream != null) fromFileStream.close();
-                        if (fromBufferedStream != null) fromBufferedStream.close();
-                        if (destStream != null) destStream.close();
-                    } catch (IOException e) {
-                        throw new CodePushUnknownException("Error closing IO resources.", e);
-                    }
-                }
+                copyFile(sourceFile, new File(destDir, sourceFile.getName()));
+            }
+        }
+    }
+
+    public static void copyFile(File sourceFile, File destFile) throws IOException {
+        FileInputStream fromFileStream = null;
+        FileOutputStream destStream = null;
+        // Reads as much per call as a BufferedInputStream would, without allocating one per file.
+        byte[] buffer = CodePushBufferPool.acquire(WRITE_BUFFER_SIZE);
+        try {
+            fromFileStream = new FileInputStream(sourceFile);
+            destStream = new FileOutputStream(destFile);
+            int bytesRead;
+            long copiedBytes = 0;
+            while ((bytesRead = fromFileStream.read(buffer)) > 0) {
+                destStream.write(buffer, 0, bytesRead);
+                copiedBytes += bytesRead;
+            }
+            CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.FILE_COPY_BYTES, copiedBytes);
+        } finally {
+            CodePushBufferPool.release(buffer);
+            try {
+                if (fromFileStream != null) fromFileStream.close();
+                if (destStream != null) destStream.close();
+            } catch (IOException e) {
+                throw new CodePushUnknownException("Error closing IO resources.", e);
             }
         }
     }
@@ -82,7 +89,7 @@ public class FileUtils {
         }
 
         if (!file.delete()) {
-            CodePushUtils.log("Error deleting file " + file.getName());
+            CodePushUtils.log(CodePushLogLevel.WARN, "Error deleting file " + file.getName());
         }
     }
 
@@ -90,6 +97,19 @@ public class FileUtils {
         return new File(filePath).exists();
     }
 
+    public static long getFolderSize(File folder) {
+        long size = 0;
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return size;
+        }
+
+        for (File file : files) {
+            size += file.isDirectory() ? getFolderSize(file) : file.length();
+        }
+        return size;
+    }
+
     public static void moveFile(File fileToMove, String newFolderPath, String newFileName) {
         File newFolder = new File(newFolderPath);
         if (!newFolder.exists()) {
@@ -116,6 +136,7 @@ public class FileUtils {
                 sb.append(line).append("\n");
             }
 
+            CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.FILE_READ_BYTES, fl.length());
             return sb.toString();
         } finally {
             if (reader != null) reader.close();
@@ -124,11 +145,41 @@ public class FileUtils {
     }
 
     public static void unzipFile(File zipFile, String destination) throws IOException {
-        FileInputStream fileStream = null;
+        unzipFile(zipFile, destination, null);
+    }
+
+    // Reports the number of compressed bytes consumed so far to downloadProgress, if given.
+    static void unzipFile(File zipFile, String destination, final DownloadProgress downloadProgress) throws IOException {
+        InputStream fileStream = null;
         BufferedInputStream bufferedStream = null;
         ZipInputStream zipStream = null;
+        byte[] buffer = CodePushBufferPool.acquire(WRITE_BUFFER_SIZE);
         try {
             fileStream = new FileInputStream(zipFile);
+            if (downloadProgress != null) {
+                fileStream = new FilterInputStream(fileStream) {
+                    @Override
+                    public int read() throws IOException {
+                        int result = super.read();
+                        if (result != -1) downloadProgress.addPhaseProgress(1);
+                        return result;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int count) throws IOException {
+                        int numBytesRead = super.read(buffer, offset, count);
+                        if (numBytesRead > 0) downloadProgress.addPhaseProgress(numBytesRead);
+                        return numBytesRead;
+                    }
+
+                    @Override
+                    public long skip(long count) throws IOException {
+                        long numBytesSkipped = super.skip(count);
+                        downloadProgress.addPhaseProgress(numBytesSkipped);
+                        return numBytesSkipped;
+                    }
+                };
+            }
             bufferedStream = new BufferedInputStream(fileStream);
             zipStream = new ZipInputStream(bufferedStream);
             ZipEntry entry;
@@ -140,7 +191,7 @@ public class FileUtils {
             
             destinationFolder.mkdirs();
 
-            byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+            long unzippedBytes = 0;
             while ((entry = zipStream.getNextEntry()) != null) {
                 String fileName = entry.getName();
                 File file = new File(destinationFolder, fileName);
@@ -157,6 +208,7 @@ public class FileUtils {
                         int numBytesRead;
                         while ((numBytesRead = zipStream.read(buffer)) != -1) {
                             fout.write(buffer, 0, numBytesRead);
+                            unzippedBytes += numBytesRead;
                         }
                     } finally {
                         fout.close();
@@ -167,7 +219,9 @@ public class FileUtils {
                     file.setLastModified(time);
                 }
             }
+            CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.UNZIP_BYTES, unzippedBytes);
         } finally {
+            CodePushBufferPool.release(buffer);
             try {
                 if (zipStream != null) zipStream.close();
                 if (bufferedStream != null) bufferedStream.close();
@@ -186,5 +240,6 @@ public class FileUtils {
         } finally {
             if (out != null) out.close();
         }
+        CodePushPerformanceMetrics.record(CodePushPerformanceMetrics.Metric.FILE_WRITE_BYTES, new File(filePath).length());
     }
 }
@@ -1,18 +1,15 @@
 package com.microsoft.codepush.react;
 
-import android.content.Context;
-import android.content.SharedPreferences;
-
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 public class SettingsManager {
 
-    private SharedPreferences mSettings;
+    private CodePushKeyValueStore mSettings;
 
-    public SettingsManager(Context applicationContext) {
-        mSettings = applicationContext.getSharedPreferences(CodePushConstants.CODE_PUSH_PREFERENCES, 0);
+    public SettingsManager(CodePushKeyValueStore settings) {
+        mSettings = settings;
     }
 
     public JSONArray getFailedUpdates() {
@@ -26,13 +23,18 @@ public class SettingsManager {
         } catch (JSONException e) {
             // Unrecognized data format, clear and replace with expected format.
             JSONArray emptyArray = new JSONArray();
-            mSettings.edit().putString(CodePushConstants.FAILED_UPDATES_KEY, emptyArray.toString()).commit();
+            mSettings.putString(CodePushConstants.FAILED_UPDATES_KEY, emptyArray.toString());
             return emptyArray;
         }
     }
 
-    public JSONObject getPendingUpdate() {
-        String pendingUpdateString = mSettings.getString(CodePushConstants.PENDING_UPDATE_KEY, null);
+    // Each resource has its own pending update, so that several of them can be pending at the same time.
+    private static String getPendingUpdateKey(String resourceName) {
+        return CodePushConstants.PENDING_UPDATE_KEY + "_" + resourceName;
+    }
+
+    public JSONObject getPendingUpdate(String resourceName) {
+        String pendingUpdateString = mSettings.getString(getPendingUpdateKey(resourceName), null);
         if (pendingUpdateString == null) {
             return null;
         }
@@ -42,11 +44,35 @@ public class SettingsManager {
         } catch (JSONException e) {
             // Should not happen.
             CodePushUtils.log("Unable to parse pending update metadata " + pendingUpdateString +
-                    " stored in SharedPreferences");
+                    " stored in SharedPreferences", resourceName);
             return null;
         }
     }
 
+    /**
+     * Moves the pending update saved by versions that kept a single one for all resources to the resource it
+     * belongs to, which is the one whose current package it is.
+     */
+    public void migrateLegacyPendingUpdate(String resourceName, String currentPackageHash) {
+        String legacyPendingUpdateString = mSettings.getString(CodePushConstants.PENDING_UPDATE_KEY, null);
+        if (legacyPendingUpdateString == null || currentPackageHash == null) {
+            return;
+        }
+
+        try {
+            JSONObject legacyPendingUpdate = new JSONObject(legacyPendingUpdateString);
+            if (!currentPackageHash.equals(legacyPendingUpdate.optString(CodePushConstants.PENDING_UPDATE_HASH_KEY, null))) {
+                return;
+            }
+        } catch (JSONException e) {
+            // Unrecognized data format, nothing to migrate.
+            mSettings.remove(CodePushConstants.PENDING_UPDATE_KEY);
+            return;
+        }
+
+        mSettings.putString(getPendingUpdateKey(resourceName), legacyPendingUpdateString);
+        mSettings.remove(CodePushConstants.PENDING_UPDATE_KEY);
+    }
 
     public boolean isFailedHash(String packageHash) {
         JSONArray failedUpdates = getFailedUpdates();
@@ -67,8 +93,8 @@ public class SettingsManager {
         return false;
     }
 
-    public boolean isPendingUpdate(String packageHash) {
-        JSONObject pendingUpdate = getPendingUpdate();
+    public boolean isPendingUpdate(String resourceName, String packageHash) {
+        JSONObject pendingUpdate = getPendingUpdate(resourceName);
 
         try {
             return pendingUpdate != null &&
@@ -79,12 +105,44 @@ public class SettingsManager {
         }
     }
 
+    public String getPrefetchedUpdateHash(String resourceName) {
+        return mSettings.getString(CodePushConstants.PREFETCHED_UPDATE_KEY + "_" + resourceName, null);
+    }
+
+    public void removePrefetchedUpdate(String resourceName) {
+        mSettings.remove(CodePushConstants.PREFETCHED_UPDATE_KEY + "_" + resourceName);
+    }
+
+    public void savePrefetchedUpdate(String resourceName, String packageHash) {
+        mSettings.putString(CodePushConstants.PREFETCHED_UPDATE_KEY + "_" + resourceName, packageHash);
+    }
+
+    public JSONObject getPrefetchConfig() {
+        String prefetchConfigString = mSettings.getString(CodePushConstants.PREFETCH_CONFIG_KEY, null);
+        if (prefetchConfigString == null) {
+            return null;
+        }
+
+        try {
+            return new JSONObject(prefetchConfigString);
+        } catch (JSONException e) {
+            // Should not happen.
+            CodePushUtils.log("Unable to parse prefetch config " + prefetchConfigString +
+                    " stored in SharedPreferences");
+            return null;
+        }
+    }
+
+    public void savePrefetchConfig(JSONObject prefetchConfig) {
+        mSettings.putString(CodePushConstants.PREFETCH_CONFIG_KEY, prefetchConfig.toString());
+    }
+
     public void removeFailedUpdates() {
-        mSettings.edit().remove(CodePushConstants.FAILED_UPDATES_KEY).commit();
+        mSettings.remove(CodePushConstants.FAILED_UPDATES_KEY);
     }
 
-    public void removePendingUpdate() {
-        mSettings.edit().remove(CodePushConstants.PENDING_UPDATE_KEY).commit();
+    public void removePendingUpdate(String resourceName) {
+        mSettings.remove(getPendingUpdateKey(resourceName));
     }
 
     public void saveFailedUpdate(JSONObject failedPackage) {
@@ -112,7 +170,7 @@ public class SettingsManager {
         }
 
         failedUpdates.put(failedPackage);
-        mSettings.edit().putString(CodePushConstants.FAILED_UPDATES_KEY, failedUpdates.toString()).commit();
+        mSettings.putString(CodePushConstants.FAILED_UPDATES_KEY, failedUpdates.toString());
     }
 
     public JSONObject getLatestRollbackInfo() {
@@ -150,20 +208,20 @@ public class SettingsManager {
 
         try {
             latestRollbackInfo.put(CodePushConstants.LATEST_ROLLBACK_PACKAGE_HASH_KEY, packageHash);
-            latestRollbackInfo.put(CodePushConstants.LATEST_ROLLBACK_TIME_KEY, System.currentTimeMillis());
+            latestRollbackInfo.put(CodePushConstants.LATEST_ROLLBACK_TIME_KEY, CodePushPlatform.getClock().currentTimeMillis());
             latestRollbackInfo.put(CodePushConstants.LATEST_ROLLBACK_COUNT_KEY, count + 1);
-            mSettings.edit().putString(CodePushConstants.LATEST_ROLLBACK_INFO_KEY, latestRollbackInfo.toString()).commit();
+            mSettings.putString(CodePushConstants.LATEST_ROLLBACK_INFO_KEY, latestRollbackInfo.toString());
         } catch (JSONException e) {
             throw new CodePushUnknownException("Unable to save latest rollback info.", e);
         }
     }
 
-    public void savePendingUpdate(String packageHash, boolean isLoading) {
+    public void savePendingUpdate(String resourceName, String packageHash, boolean isLoading) {
         JSONObject pendingUpdate = new JSONObject();
         try {
             pendingUpdate.put(CodePushConstants.PENDING_UPDATE_HASH_KEY, packageHash);
             pendingUpdate.put(CodePushConstants.PENDING_UPDATE_IS_LOADING_KEY, isLoading);
-            mSettings.edit().putString(CodePushConstants.PENDING_UPDATE_KEY, pendingUpdate.toString()).commit();
+            mSettings.putString(getPendingUpdateKey(resourceName), pendingUpdate.toString());
         } catch (JSONException e) {
             // Should not happen.
             throw new CodePushUnknownException("Unable to save pending update.", e);
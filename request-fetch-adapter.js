@@ -1,4 +1,5 @@
 const packageJson = require("./package.json");
+const { NativeModules, Platform } = require("react-native");
 
 module.exports = {
   async request(verb, url, requestBody, callback) {
@@ -20,6 +21,15 @@ module.exports = {
     }
 
     try {
+      // Let the native client answer update checks, it caches them and revalidates with ETags.
+      const NativeCodePush = NativeModules.CodePush;
+      if (Platform.OS === "android" && getHttpMethodName(verb) === "GET" && url.indexOf("update_check") !== -1 &&
+          NativeCodePush && NativeCodePush.requestUpdateCheck) {
+        const { statusCode, body } = await NativeCodePush.requestUpdateCheck(url, headers);
+        callback(null, { statusCode, body });
+        return;
+      }
+
       const response = await fetch(url, {
         method: getHttpMethodName(verb),
         headers: headers,
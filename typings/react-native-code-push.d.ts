@@ -20,6 +20,43 @@ export interface DownloadProgress {
      * The number of bytes downloaded thus far.
      */
     receivedBytes: number;
+
+    /**
+     * The step of the update that is currently in progress, always "download" for download progress (Android only).
+     */
+    phase?: "download";
+
+    /**
+     * The total amount of work in the current phase, in bytes (Android only).
+     */
+    phaseTotal?: number;
+
+    /**
+     * The amount of work completed in the current phase, in bytes (Android only).
+     */
+    phaseCompleted?: number;
+}
+
+/**
+ * Progress of the steps that follow the download, emitted as "CodePushUpdatePhaseProgress" events by the
+ * native module, e.g. through new NativeEventEmitter(NativeModules.CodePush) (Android only). Download
+ * progress callbacks are not called during these steps.
+ */
+export interface UpdatePhaseProgress {
+    /**
+     * The step of the update that is currently in progress.
+     */
+    phase: "extract" | "verify";
+
+    /**
+     * The total amount of work in the current phase, in bytes.
+     */
+    phaseTotal: number;
+
+    /**
+     * The amount of work completed in the current phase, in bytes.
+     */
+    phaseCompleted: number;
 }
 
 export interface LocalPackage extends Package {